@@ -0,0 +1,44 @@
+package minesweeper;
+
+/**
+ * An ApplicationMetricsMXBean is the management interface of the metrics of the whole application: everything recorded by every
+ * game, together with the work the games share, which is generating boards, loading and saving the scoreboard and ciphering its files.
+ * @author Nikola Stankovic
+ */
+public interface ApplicationMetricsMXBean extends GameMetricsMXBean {
+	/**
+	 * Returns the time it took to generate a board, placing its mines and labelling its openings.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getBoardGeneration();
+
+	/**
+	 * Returns the time it took to load the scoreboard from its files.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getScoreboardLoad();
+
+	/**
+	 * Returns the time it took to save the scoreboard to its files.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getScoreboardSave();
+
+	/**
+	 * Returns the number of characters ciphered or deciphered.
+	 * @return number of characters.
+	 */
+	long getCipherCharacters();
+
+	/**
+	 * Returns the time it took to cipher or decipher a string.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getCipherLatency();
+
+	/**
+	 * Returns the average speed of ciphering and deciphering.
+	 * @return characters per second, or 0 if nothing was ciphered.
+	 */
+	double getCipherThroughput();
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+package minesweeper;
+
+/**
+ * A BitboardStorage object keeps the cells of a board in bit-planes, one bit per cell, so that most operations process 64 cells at
+ * once. Every row of the board starts at a new word of a plane, and the bits past the last column of a row are always zero. There
+ * are planes for mines, opened and flagged cells, and four planes for the bits of the number of surrounding mines, which are computed
+ * for whole words at a time by adding the eight shifted neighbour planes with bitwise adders. A whole opening is found without visiting
+ * single cells, by repeatedly dilating the opened area through the cells without surrounding mines.
+ * @author Nikola Stankovic
+ */
+public class BitboardStorage implements CellStorage {
+	private int rows, columns, words;
+	private long lastMask;
+	private long mines[], opened[], flagged[];
+	private long counts[][];
+	private long zero[];
+	private long area[];
+
+	/**
+	 * Creates a BitboardStorage object with all cells closed and without mines.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 */
+	public BitboardStorage(int rows, int columns) {
+		this.rows = rows;
+		this.columns = columns;
+		this.words = (columns + 63) >>> 6;
+		this.lastMask = -1L >>> (words * 64 - columns);
+		int length = rows * words;
+		this.mines = new long[length];
+		this.opened = new long[length];
+		this.flagged = new long[length];
+		this.counts = new long[4][length];
+		this.zero = new long[length];
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public boolean hasMine(int index) {
+		return get(mines, index);
+	}
+
+	public void setMine(int index) {
+		set(mines, index, true);
+	}
+
+	/**
+	 * Computes the number of surrounding mines of every cell, 64 cells at a time. The eight neighbours of a word are the words above,
+	 * below and beside it, shifted by one column, and they are added bit by bit with full and half adders into a 4-bit number.
+	 */
+	public void minesPlaced() {
+		for (int x = 0; x < rows; x++) {
+			for (int w = 0; w < words; w++) {
+				long a = west(mines, x - 1, w), b = row(mines, x - 1, w), c = east(mines, x - 1, w);
+				long d = west(mines, x, w), e = east(mines, x, w);
+				long f = west(mines, x + 1, w), g = row(mines, x + 1, w), h = east(mines, x + 1, w);
+
+				/* Bit 0 of the sum and the carries of weight 2. */
+				long s0 = a ^ b ^ c, c0 = (a & b) | (c & (a ^ b));
+				long s1 = d ^ e ^ f, c1 = (d & e) | (f & (d ^ e));
+				long s2 = g ^ h, c2 = g & h;
+				long bit0 = s0 ^ s1 ^ s2, k0 = (s0 & s1) | (s2 & (s0 ^ s1));
+
+				/* Bit 1 adds the four carries of weight 2, giving the carries of weight 4. */
+				long u = c0 ^ c1 ^ c2, v = (c0 & c1) | (c2 & (c0 ^ c1));
+				long bit1 = u ^ k0, k1 = u & k0;
+				long bit2 = v ^ k1, bit3 = v & k1;
+
+				long valid = w == words - 1 ? lastMask : -1L;
+				int word = x * words + w;
+				counts[0][word] = bit0 & valid;
+				counts[1][word] = bit1 & valid;
+				counts[2][word] = bit2 & valid;
+				counts[3][word] = bit3 & valid;
+				zero[word] = ~(bit0 | bit1 | bit2 | bit3 | mines[word]) & valid;
+			}
+		}
+	}
+
+	public int getSurroundingMines(int index) {
+		int word = word(index);
+		long bit = 1L << (index % columns);
+		int count = 0;
+		for (int i = 0; i < 4; i++) if ((counts[i][word] & bit) != 0) count |= 1 << i;
+		return count;
+	}
+
+	public byte getState(int index) {
+		if (get(opened, index)) return Delta.OPENED;
+		else if (get(flagged, index)) return Delta.FLAGGED;
+		else return Delta.CLOSED;
+	}
+
+	public void setState(int index, byte state) {
+		set(opened, index, state == Delta.OPENED);
+		set(flagged, index, state == Delta.FLAGGED);
+	}
+
+	public void moveFinished() {}
+
+	/**
+	 * Finds the whole opening at once. A cell with surrounding mines is opened on its own. Otherwise the area grows from the opened
+	 * cell by dilating its cells without surrounding mines into their neighbours, one row at a time, sweeping down and then up the rows
+	 * reached so far until a pair of sweeps adds nothing. Inside a row, the area spreads along contiguous cells without surrounding
+	 * mines with a shift-and-mask fill, 64 cells at a time. The area is kept in a scratch plane which is allocated once, and only the
+	 * rows it reached are scanned and cleared, so a move costs as much as the rows of its opening and not the whole board.
+	 */
+	public boolean openArea(int index, Delta.Builder move) {
+		if (get(opened, index)) return true;
+		if (!get(zero, index)) {
+			move.add(index, getState(index), Delta.OPENED);
+			setState(index, Delta.OPENED);
+			return true;
+		}
+		if (area == null) area = new long[mines.length];
+		set(area, index, true);
+
+		int x = index / columns;
+		int top = x, bottom = x;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int r = Math.max(top - 1, 0); r <= Math.min(bottom + 1, rows - 1); r++) {
+				if (growRow(area, r)) {
+					changed = true;
+					top = Math.min(top, r);
+					bottom = Math.max(bottom, r);
+				}
+			}
+			for (int r = Math.min(bottom + 1, rows - 1); r >= Math.max(top - 1, 0); r--) {
+				if (growRow(area, r)) {
+					changed = true;
+					top = Math.min(top, r);
+					bottom = Math.max(bottom, r);
+				}
+			}
+		}
+
+		/* Records the opened cells in ascending order, then opens the whole area with a few operations per word and clears it. */
+		for (int word = top * words; word < (bottom + 1) * words; word++) {
+			long bits = area[word];
+			if (bits == 0) continue;
+			area[word] = 0;
+			int base = (word / words) * columns + (word % words) * 64;
+			for (long rest = bits; rest != 0; rest &= rest - 1) {
+				int cell = base + Long.numberOfTrailingZeros(rest);
+				move.add(cell, (flagged[word] & (rest & -rest)) != 0 ? Delta.FLAGGED : Delta.CLOSED, Delta.OPENED);
+			}
+			opened[word] |= bits;
+			flagged[word] &= ~bits;
+		}
+		return true;
+	}
+
+	/**
+	 * Opens the claimed cells 64 at a time, reading the claims of every word of the board from the reveal's row-major bitmap.
+	 */
+	public boolean openClaimed(ParallelReveal reveal, Delta.Builder move) {
+		for (int word = 0; word < opened.length; word++) {
+			int base = (word / words) * columns + (word % words) * 64;
+			long bits = reveal.getClaimed(base) & (word % words == words - 1 ? lastMask : -1L);
+			if (bits == 0) continue;
+			for (long rest = bits; rest != 0; rest &= rest - 1) {
+				int cell = base + Long.numberOfTrailingZeros(rest);
+				move.add(cell, (flagged[word] & (rest & -rest)) != 0 ? Delta.FLAGGED : Delta.CLOSED, Delta.OPENED);
+			}
+			opened[word] |= bits;
+			flagged[word] &= ~bits;
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the mines 64 cells at a time, skipping empty words.
+	 */
+	public int[] getMineCells() {
+		int count = 0;
+		for (long word : mines) count += Long.bitCount(word);
+		int mineCells[] = new int[count];
+		int found = 0;
+		for (int word = 0; word < mines.length; word++) {
+			int base = (word / words) * columns + (word % words) * 64;
+			for (long rest = mines[word]; rest != 0; rest &= rest - 1) mineCells[found++] = base + Long.numberOfTrailingZeros(rest);
+		}
+		return mineCells;
+	}
+
+	/**
+	 * Adds to a row of the area every closed neighbour of the area's cells without surrounding mines in the rows above and below,
+	 * and then spreads the row along its own cells without surrounding mines.
+	 * @param area The area being opened.
+	 * @param r The row.
+	 * @return true if the row changed, false otherwise.
+	 */
+	private boolean growRow(long area[], int r) {
+		int base = r * words;
+		boolean changed = false;
+
+		for (int w = 0; w < words; w++) {
+			long closed = ~opened[base + w] & (w == words - 1 ? lastMask : -1L);
+			long grown = area[base + w];
+			if (r > 0) grown |= dilate(area, r - 1, w) & closed;
+			if (r < rows - 1) grown |= dilate(area, r + 1, w) & closed;
+			if (grown != area[base + w]) {
+				area[base + w] = grown;
+				changed = true;
+			}
+		}
+
+		/* Spreads towards higher columns, carrying between words, then towards lower columns. */
+		long carry = 0;
+		for (int w = 0; w < words; w++) {
+			long passable = zero[base + w] & ~opened[base + w];
+			long seeds = (area[base + w] & passable) | (carry & passable);
+			long fill = seeds, open = passable;
+			for (int shift = 1; shift < 64; shift <<= 1) {
+				fill |= open & (fill << shift);
+				open &= open << shift;
+			}
+			carry = fill >>> 63;
+			if ((fill & ~area[base + w]) != 0) changed = true;
+			area[base + w] |= fill;
+		}
+		carry = 0;
+		for (int w = words - 1; w >= 0; w--) {
+			long passable = zero[base + w] & ~opened[base + w];
+			long seeds = (area[base + w] & passable) | (carry & passable);
+			long fill = seeds, open = passable;
+			for (int shift = 1; shift < 64; shift <<= 1) {
+				fill |= open & (fill >>> shift);
+				open &= open >>> shift;
+			}
+			carry = (fill & 1) << 63;
+			if ((fill & ~area[base + w]) != 0) changed = true;
+			area[base + w] |= fill;
+		}
+
+		/* Every cell beside a filled cell without surrounding mines is opened too. */
+		for (int w = 0; w < words; w++) {
+			long closed = ~opened[base + w] & (w == words - 1 ? lastMask : -1L);
+			long grown = area[base + w] | (dilate(area, r, w) & closed);
+			if (grown != area[base + w]) {
+				area[base + w] = grown;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns the cells of a word of a row which touch a cell of the area without surrounding mines in that row.
+	 */
+	private long dilate(long area[], int r, int w) {
+		int word = r * words + w;
+		long middle = area[word] & zero[word];
+		long before = w > 0 ? area[word - 1] & zero[word - 1] : 0;
+		long after = w < words - 1 ? area[word + 1] & zero[word + 1] : 0;
+		return middle | (middle << 1) | (before >>> 63) | (middle >>> 1) | (after << 63);
+	}
+
+	/**
+	 * Returns a word of a row of a plane, or zero for rows outside the board.
+	 */
+	private long row(long plane[], int r, int w) {
+		return r < 0 || r >= rows ? 0 : plane[r * words + w];
+	}
+
+	/**
+	 * Returns a word of a row of a plane shifted so that every cell holds the bit of its western neighbour.
+	 */
+	private long west(long plane[], int r, int w) {
+		return (row(plane, r, w) << 1) | (w > 0 ? row(plane, r, w - 1) >>> 63 : 0);
+	}
+
+	/**
+	 * Returns a word of a row of a plane shifted so that every cell holds the bit of its eastern neighbour.
+	 */
+	private long east(long plane[], int r, int w) {
+		return (row(plane, r, w) >>> 1) | (w < words - 1 ? row(plane, r, w + 1) << 63 : 0);
+	}
+
+	/**
+	 * Returns the word of a plane which holds a cell.
+	 */
+	private int word(int index) {
+		return (index / columns) * words + ((index % columns) >>> 6);
+	}
+
+	/**
+	 * Reads the bit of a cell.
+	 */
+	private boolean get(long plane[], int index) {
+		return (plane[word(index)] & (1L << (index % columns))) != 0;
+	}
+
+	/**
+	 * Writes the bit of a cell.
+	 */
+	private void set(long plane[], int index, boolean value) {
+		long bit = 1L << (index % columns);
+		if (value) plane[word(index)] |= bit;
+		else plane[word(index)] &= ~bit;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,525 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A Board object is a compact, headless version of the playable field. It follows the same rules as Field and Tile, but doesn't depend
+ * on any GUI classes, so many boards can be played at once in a single JVM. The cells are kept in a CellStorage: small boards use
+ * a DenseStorage with a single byte per cell, larger boards use a BitboardStorage which processes 64 cells at once, and giant boards
+ * with a low density of mines use a SparseStorage. The numbers of opened cells, flags and flagged mines are kept up to date on every
+ * change, so checking if the game is completed doesn't visit any cell. Boards of up to LABELLED_CELLS cells label their openings once
+ * the mines are placed, which gives their 3BV and lets a click on an opening reveal it without visiting any neighbours. Mines are
+ * placed at random, or read from a file by a BoardFile straight into the storage.
+ * <p>
+ * A board can have any Topology. Boards kept in a DenseStorage, which are all small boards and every board whose topology isn't
+ * square, visit the neighbours of a cell through the NeighbourTable of the storage; the other storages only keep square boards.
+ * @author Nikola Stankovic
+ */
+public class Board {
+	public static final int BITBOARD_CELLS = 1 << 12;
+	public static final int SPARSE_CELLS = 1 << 24;
+	public static final int SPARSE_DENSITY = 16;
+	public static final int LABELLED_CELLS = 1 << 20;
+
+	private int rows, columns, mines, flags;
+	private CellStorage cells;
+	private int size;
+	private int opened, flaggedMines;
+	private Status status;
+	private History history;
+	private Openings openings;
+	private NeighbourTable table;
+	private int parallelThreshold = ParallelReveal.THRESHOLD;
+
+	/**
+	 * Creates a Board object with randomly placed mines.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 */
+	public Board(int rows, int columns, int mines) {
+		this(rows, columns, mines, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates a Board object whose mines are placed randomly, but reproducibly for the same seed.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @param seed Seed of the random number generator used to place the mines.
+	 */
+	public Board(int rows, int columns, int mines, long seed) {
+		this(rows, columns, mines, seed, Topology.SQUARE);
+	}
+
+	/**
+	 * Creates a Board object of a given topology whose mines are placed randomly, but reproducibly for the same seed.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @param seed Seed of the random number generator used to place the mines.
+	 * @param topology The topology which decides the neighbours of the cells.
+	 */
+	public Board(int rows, int columns, int mines, long seed, Topology topology) {
+		this(createStorage(rows, columns, mines, topology), mines, seed);
+	}
+
+	/**
+	 * Creates a Board object which keeps its cells in a given storage, with randomly placed mines.
+	 * @param storage An empty storage, which also determines the size of the board.
+	 * @param mines Number of mines the board has.
+	 * @param seed Seed of the random number generator used to place the mines.
+	 */
+	public Board(CellStorage storage, int mines, long seed) {
+		this(storage, mines, seed, true);
+	}
+
+	/**
+	 * Creates a Board object which keeps its cells in a given storage, with randomly placed mines, and possibly without labelled
+	 * openings. Package-private, so that tests can compare the paths which open cells without the openings against the labelled ones.
+	 * @param storage An empty storage, which also determines the size of the board.
+	 * @param mines Number of mines the board has.
+	 * @param seed Seed of the random number generator used to place the mines.
+	 * @param labelled true if the openings are labelled when the board is small enough, false if they never are.
+	 */
+	Board(CellStorage storage, int mines, long seed, boolean labelled) {
+		long start = System.nanoTime();
+		create(storage, mines);
+
+		/* Generates random coordinates in the board and places mines without placing multiple mines on the same cell. */
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < mines; i++) {
+			int index = random.nextInt(size);
+			if (!cells.hasMine(index)) cells.setMine(index);
+			else i--;
+		}
+		label(start, labelled);
+	}
+
+	/**
+	 * Creates a Board object out of a storage whose mines were already placed, such as a board read by a BoardFile.
+	 * @param storage A storage with mines placed and all cells closed, which also determines the size of the board.
+	 * @param mines Number of mines placed in the storage.
+	 */
+	public Board(CellStorage storage, int mines) {
+		long start = System.nanoTime();
+		create(storage, mines);
+		label(start, true);
+	}
+
+	/**
+	 * Sets up an empty game on a storage, before any mines are placed or counted.
+	 * @param storage The storage of the board.
+	 * @param mines Number of mines the board has.
+	 */
+	private void create(CellStorage storage, int mines) {
+		this.rows = storage.getRows();
+		this.columns = storage.getColumns();
+		this.size = rows * columns;
+		if (mines < 0 || mines >= size) throw new IllegalArgumentException("Invalid number of mines " + mines + ".");
+
+		this.flags = this.mines = mines;
+		this.cells = storage;
+		this.status = Status.PLAYING;
+		this.history = new History();
+		if (storage instanceof DenseStorage) table = ((DenseStorage)storage).getTable();
+	}
+
+	/**
+	 * Counts the surrounding mines of every cell once all mines are placed, and labels the openings of boards which aren't too large.
+	 * @param start The time the generation of the board started, in nanoseconds.
+	 * @param labelled false if the openings are never labelled.
+	 */
+	private void label(long start, boolean labelled) {
+		cells.minesPlaced();
+		if (labelled && size <= LABELLED_CELLS) openings = new Openings(cells, table);
+		GameMetrics.getApplication().boardGenerated(System.nanoTime() - start);
+	}
+
+	/**
+	 * Creates the storage best suited for a board. Giant boards with a low density of mines use a SparseStorage, other boards with
+	 * at least BITBOARD_CELLS cells use a BitboardStorage, and small boards use a DenseStorage.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @return an empty storage.
+	 */
+	public static CellStorage createStorage(int rows, int columns, int mines) {
+		return createStorage(rows, columns, mines, Topology.SQUARE);
+	}
+
+	/**
+	 * Creates the storage best suited for a board of a given topology. Square boards get the storage chosen by their size and density
+	 * of mines, and boards of other topologies, which can have at most LABELLED_CELLS cells, get a DenseStorage.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @param topology The topology of the board.
+	 * @return an empty storage.
+	 */
+	public static CellStorage createStorage(int rows, int columns, int mines, Topology topology) {
+		if (rows <= 0 || columns <= 0 || (long)rows * columns > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid board size " + rows + "x" + columns + ".");
+		}
+		long cells = (long)rows * columns;
+		if (topology != Topology.SQUARE) {
+			if (cells > LABELLED_CELLS) throw new IllegalArgumentException("Invalid board size " + rows + "x" + columns + " for " + topology + ".");
+			return new DenseStorage(NeighbourTable.get(rows, columns, topology));
+		}
+		if (cells >= SPARSE_CELLS && (long)mines * SPARSE_DENSITY <= cells) return new SparseStorage(rows, columns, mines);
+		if (cells >= BITBOARD_CELLS) return new BitboardStorage(rows, columns);
+		return new DenseStorage(rows, columns);
+	}
+
+	/**
+	 * Sets the number of cells a move opens before the rest of its area is opened in parallel. Package-private, so that tests can make
+	 * the parallel reveal run on boards small enough to compare cell by cell.
+	 * @param threshold Number of cells, ParallelReveal.THRESHOLD by default.
+	 */
+	void setParallelThreshold(int threshold) {
+		this.parallelThreshold = threshold;
+	}
+
+	/**
+	 * Returns the number of rows of the board.
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the board.
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the topology of the board.
+	 * @return topology which decides the neighbours of the cells.
+	 */
+	public Topology getTopology() {
+		return table == null ? Topology.SQUARE : table.getTopology();
+	}
+
+	/**
+	 * Returns the number of mines of the board.
+	 * @return number of mines.
+	 */
+	public int getMines() {
+		return mines;
+	}
+
+	/**
+	 * Returns the number of flags left on the board.
+	 * @return remaining number of flags.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Returns the number of opened cells.
+	 * @return number of opened cells.
+	 */
+	public int getOpened() {
+		return opened;
+	}
+
+	/**
+	 * Returns the 3BV of the board, the smallest number of clicks needed to open all cells without a mine.
+	 * @return 3BV of the board, or 0 if the board is too large for its openings to be labelled.
+	 */
+	public int getValue() {
+		return openings == null ? 0 : openings.getValue();
+	}
+
+	/**
+	 * Returns the status of the game played on the board.
+	 * @return PLAYING, WON or LOST.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the state of the cell at row x and column y.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public byte getState(int x, int y) {
+		return cells.getState(x * columns + y);
+	}
+
+	/**
+	 * Checks if the cell at row x and column y has a mine.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return true if a mine is present, false otherwise.
+	 */
+	public boolean hasMine(int x, int y) {
+		return cells.hasMine(x * columns + y);
+	}
+
+	/**
+	 * Returns the number of mines surrounding the cell at row x and column y.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return number of surrounding mines.
+	 */
+	public int getSurroundingMines(int x, int y) {
+		return cells.getSurroundingMines(x * columns + y);
+	}
+
+	/**
+	 * Opens the cell at row x and column y. Opening a cell with a mine ends the game, and opening a cell without surrounding mines also
+	 * opens all of its neighbours. Opening the last cell without a mine ends the game as well.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return the cells changed by the move.
+	 */
+	public Delta open(int x, int y) {
+		Delta.Builder move = new Delta.Builder();
+		if (status != Status.PLAYING || !contains(x, y)) return move.build();
+
+		int index = x * columns + y;
+		if (cells.hasMine(index)) {
+			endGame();
+			return move.build();
+		}
+
+		/* A labelled opening is revealed straight from its list of cells. Otherwise, storages which can open a whole area in bulk do so,
+		 * and the counters are updated from the recorded cells afterwards, or cells are opened iteratively, using an explicit stack
+		 * instead of recursion, so that large openings can't overflow the call stack. Once a move has opened enough cells to be worth the
+		 * setup, the cells left on the stack become the frontier of a parallel reveal. A bulk opening runs on a single core, so on a board
+		 * large enough to reach the parallel reveal it is skipped once the pool has enough threads to beat it. Boards with a neighbour
+		 * table visit the neighbours from the table, where the missing ones point to the sentinel, which is already opened.
+		 */
+		int opening = openings == null ? -1 : openings.getOpening(index), threads = ForkJoinPool.getCommonPoolParallelism();
+		boolean parallel = size > parallelThreshold && threads > 1, bulk = false;
+		int stack[] = new int[16];
+		int top = 0;
+		if (opening >= 0) {
+			for (int i = openings.getStart(opening); i < openings.getEnd(opening); i++) reveal(openings.getMember(i), move);
+		}
+		else {
+			bulk = (!parallel || threads < ParallelReveal.BULK_PARALLELISM) && cells.openArea(index, move);
+			if (!bulk && reveal(index, move)) stack[top++] = index;
+		}
+		while (top > 0) {
+			if (parallel && move.size() >= parallelThreshold) {
+				revealParallel(stack, top, move);
+				break;
+			}
+			int cell = stack[--top];
+			if (table != null) {
+				int neighbours[] = table.getNeighbours(), degree = table.getDegree();
+				for (int i = cell * degree; i < cell * degree + degree; i++) {
+					int next = neighbours[i];
+					if (reveal(next, move)) {
+						if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+						stack[top++] = next;
+					}
+				}
+				continue;
+			}
+			int cx = cell / columns, cy = cell % columns;
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					if (!contains(cx + dx, cy + dy)) continue;
+					int next = cell + dx * columns + dy;
+					if (reveal(next, move)) {
+						if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+						stack[top++] = next;
+					}
+				}
+			}
+		}
+
+		cells.moveFinished();
+		Delta delta = move.build();
+		if (bulk) countOpened(delta);
+		history.record(delta);
+		if (opened == size - mines) endGame();
+		return delta;
+	}
+
+	/**
+	 * Places a flag on the cell at row x and column y if it wasn't opened and there are flags remaining, or removes the flag if one is
+	 * already placed.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return the cells changed by the move.
+	 */
+	public Delta flag(int x, int y) {
+		Delta.Builder move = new Delta.Builder();
+		if (status != Status.PLAYING || !contains(x, y)) return move.build();
+
+		int index = x * columns + y;
+		byte state = cells.getState(index);
+		if (state == Delta.CLOSED && flags > 0) {
+			setState(index, Delta.FLAGGED);
+			move.add(index, Delta.CLOSED, Delta.FLAGGED);
+		}
+		else if (state == Delta.FLAGGED) {
+			setState(index, Delta.CLOSED);
+			move.add(index, Delta.FLAGGED, Delta.CLOSED);
+		}
+
+		cells.moveFinished();
+		Delta delta = move.build();
+		history.record(delta);
+		return delta;
+	}
+
+	/**
+	 * Reverts the last move in the history while the game is in progress.
+	 * @return the reverted move, or null if there was nothing to undo.
+	 */
+	public Delta undo() {
+		if (status != Status.PLAYING) return null;
+		Delta delta = history.undo();
+		if (delta == null) return null;
+		for (int r = 0; r < delta.getRuns(); r++) {
+			for (int i = delta.getStart(r); i < delta.getStart(r) + delta.getLength(r); i++) setState(i, delta.getBefore(r));
+		}
+		cells.moveFinished();
+		return delta;
+	}
+
+	/**
+	 * Plays the last undone move again while the game is in progress.
+	 * @return the redone move, or null if there was nothing to redo.
+	 */
+	public Delta redo() {
+		if (status != Status.PLAYING) return null;
+		Delta delta = history.redo();
+		if (delta == null) return null;
+		for (int r = 0; r < delta.getRuns(); r++) {
+			for (int i = delta.getStart(r); i < delta.getStart(r) + delta.getLength(r); i++) setState(i, delta.getAfter(r));
+		}
+		cells.moveFinished();
+		return delta;
+	}
+
+	/**
+	 * Steps to any position of the history while the game is in progress, undoing or redoing all moves in between at once.
+	 * @param position Number of moves applied after the step, between 0 and the number of recorded moves.
+	 * @return the cells changed by the step, or null if the game is over.
+	 * @throws IllegalArgumentException if the position is outside the history.
+	 */
+	public Delta seek(int position) {
+		if (status != Status.PLAYING) return null;
+		Delta delta = history.seek(position);
+		for (int r = 0; r < delta.getRuns(); r++) {
+			for (int i = delta.getStart(r); i < delta.getStart(r) + delta.getLength(r); i++) setState(i, delta.getAfter(r));
+		}
+		cells.moveFinished();
+		return delta;
+	}
+
+	/**
+	 * Ends the game. The game is won if the board is successfully completed, otherwise it is lost.
+	 */
+	public void endGame() {
+		if (status != Status.PLAYING) return;
+		status = checkTiles() ? Status.WON : Status.LOST;
+	}
+
+	/**
+	 * Checks if the game is completed. If all cells with a mine have been flagged or if the remaining number of unopened cells
+	 * is equal to the number of mines, the game was successfully completed and the call returns true, otherwise returns false.
+	 * Both numbers are kept up to date on every change, so the check doesn't visit any cell.
+	 * @return true if game was successfully completed, false otherwise.
+	 */
+	public boolean checkTiles() {
+		return flaggedMines == mines || size - opened == mines;
+	}
+
+	/**
+	 * Returns the positions of all mines, used to open all tiles with mines once the game ends.
+	 * @return row-major indices of all cells with a mine, in ascending order.
+	 */
+	public int[] getMineCells() {
+		return cells.getMineCells();
+	}
+	
+	/**
+	 * Checks if the coordinates are inside the board.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return true if the cell exists, false otherwise.
+	 */
+	public boolean contains(int x, int y) {
+		return x >= 0 && x < rows && y >= 0 && y < columns;
+	}
+
+	/**
+	 * Opens a single cell if it wasn't already opened, and records the change.
+	 * @param index Row-major index of the cell.
+	 * @param move The move the change is recorded in.
+	 * @return true if the cell was opened and has no surrounding mines, meaning that its neighbours need to be opened too.
+	 */
+	private boolean reveal(int index, Delta.Builder move) {
+		byte state = cells.getState(index);
+		if (state == Delta.OPENED) return false;
+		move.add(index, state, Delta.OPENED);
+		setState(index, Delta.OPENED);
+		return cells.getSurroundingMines(index) == 0;
+	}
+
+	/**
+	 * Updates the counters after a storage opened an area in bulk. Opened cells never have a mine, so only the numbers of opened cells
+	 * and remaining flags change.
+	 * @param delta The cells opened by the storage.
+	 */
+	private void countOpened(Delta delta) {
+		for (int r = 0; r < delta.getRuns(); r++) {
+			opened += delta.getLength(r);
+			if (delta.getBefore(r) == Delta.FLAGGED) flags += delta.getLength(r);
+		}
+	}
+
+	/**
+	 * Opens the rest of a large area in parallel, then applies all of the claimed cells in ascending order, in bulk if the storage
+	 * can. Claimed cells neighbour cells without surrounding mines, so they have no mines and only their flags are counted.
+	 * @param frontier Opened cells without surrounding mines whose neighbours haven't been visited yet.
+	 * @param length Number of cells in the frontier.
+	 * @param move The move the changes are recorded in.
+	 */
+	private void revealParallel(int frontier[], int length, Delta.Builder move) {
+		ParallelReveal parallel = new ParallelReveal(cells, table, ForkJoinPool.commonPool());
+		long claimed = parallel.expand(frontier, length);
+		if (cells.openClaimed(parallel, move)) {
+			opened += claimed;
+			flags += parallel.getFlagged();
+			return;
+		}
+		for (int cell = parallel.nextClaimed(0); cell >= 0; cell = parallel.nextClaimed(cell + 1)) {
+			move.add(cell, cells.getState(cell), Delta.OPENED);
+			setState(cell, Delta.OPENED);
+		}
+	}
+
+	/**
+	 * Changes the state of a cell and keeps the counters of flags, flagged mines and opened cells consistent with it.
+	 * @param index Row-major index of the cell.
+	 * @param state The new state of the cell.
+	 */
+	private void setState(int index, byte state) {
+		byte old = cells.getState(index);
+		if (old == state) return;
+
+		boolean mine = cells.hasMine(index);
+		if (old == Delta.FLAGGED) { flags++; if (mine) flaggedMines--; }
+		if (state == Delta.FLAGGED) { flags--; if (mine) flaggedMines++; }
+		if (old == Delta.OPENED) opened--;
+		if (state == Delta.OPENED) opened++;
+		cells.setState(index, state);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+
+/**
+ * A BoardCanvas object displays the board of a game engine on a single Canvas, for boards too large to be made of Tiles. It keeps
+ * the sprite of every cell in a byte array which is updated from the engine's snapshots, and paints the visible cells by copying
+ * their sprites from a SpriteAtlas into a VolatileImage back buffer, so a frame never lays out any text. The view can be zoomed with
+ * the mouse wheel or the + and - keys. Once cells get too small for sprites, the view is drawn from a MipmapPyramid of the board
+ * instead, which also provides the minimap shown in the corner whenever the board doesn't fit into the view. The view is moved by
+ * dragging with the mouse, with the arrow keys or by clicking on the minimap; left click opens a cell and right click places or
+ * removes a flag.
+ * @author Nikola Stankovic
+ */
+public class BoardCanvas extends Canvas {
+	private static final long serialVersionUID = 1L;
+	private static final int DRAG_THRESHOLD = 4;
+	private static final int MINIMAP_SIZE = 150;
+	private static final int SPRITE_MIN = 8;
+	/* Zoom levels as pixels per cell. Sizes below SPRITE_MIN are drawn from the pyramid, and negative values are cells per pixel. */
+	private static final int ZOOMS[] = {32, 24, 20, 16, 12, 8, 4, 2, 1, -2, -4, -8, -16, -32};
+	private static final int DEFAULT_ZOOM = 2;
+	private static final int COLORS[] = new int[13];
+
+	static {
+		COLORS[SpriteAtlas.CLOSED] = 0xE0E0EB;
+		for (int mines = 0; mines <= 8; mines++) COLORS[SpriteAtlas.OPENED + mines] = 0x414158 + 0x0C0A00 * mines;
+		COLORS[SpriteAtlas.FLAG] = 0xB00000;
+		COLORS[SpriteAtlas.MINE] = 0x800000;
+		COLORS[SpriteAtlas.EXPLODED] = 0xE60000;
+	}
+
+	private GameEngine engine;
+	private int rows, columns;
+	private byte sprites[];
+	private MipmapPyramid pyramid;
+	private int exploded = -1, lastOpened = -1;
+	private int zoom = DEFAULT_ZOOM;
+	private double centerX, centerY;		// Position of the centre of the view on the board, in cells.
+	private int pressX, pressY;
+	private double pressCenterX, pressCenterY;
+	private boolean dragging;
+	private VolatileImage buffer;
+
+	/**
+	 * Creates a BoardCanvas object. It displays nothing until it is given the snapshot of a new game.
+	 * @param engine The engine which owns the state of the board.
+	 */
+	public BoardCanvas(GameEngine engine) {
+		this.engine = engine;
+		this.setBackground(new Color(41, 41, 61));
+
+		/* Clicking on the canvas works like clicking on a Tile: the click has no effect if the parent Game is disabled, otherwise it is
+		 * forwarded to the engine, and the canvas doesn't change until the result of the move is applied. Clicking while the cells are
+		 * too small to be told apart zooms in on the clicked spot instead.
+		 */
+		MouseAdapter mouse = new MouseAdapter() {
+			public void mousePressed(MouseEvent e) {
+				pressX = e.getX();
+				pressY = e.getY();
+				pressCenterX = centerX;
+				pressCenterY = centerY;
+				dragging = false;
+				requestFocus();
+			}
+
+			public void mouseDragged(MouseEvent e) {
+				if (Math.abs(e.getX() - pressX) + Math.abs(e.getY() - pressY) > DRAG_THRESHOLD) dragging = true;
+				if (dragging) moveTo(pressCenterX - (e.getX() - pressX) / scale(), pressCenterY - (e.getY() - pressY) / scale());
+			}
+
+			public void mouseReleased(MouseEvent e) {
+				if (dragging || sprites == null) return;
+				Rectangle minimap = minimapBounds();
+				if (minimap != null && minimap.contains(e.getPoint())) {
+					moveTo((e.getX() - minimap.x) * (double)columns / minimap.width, (e.getY() - minimap.y) * (double)rows / minimap.height);
+					return;
+				}
+
+				double column = centerX + (e.getX() - getWidth() / 2.0) / scale(), row = centerY + (e.getY() - getHeight() / 2.0) / scale();
+				if (column < 0 || row < 0 || column >= columns || row >= rows) return;
+				if (ZOOMS[zoom] < SPRITE_MIN) {
+					zoom = DEFAULT_ZOOM;
+					moveTo(column, row);
+					return;
+				}
+
+				Game game = (Game)getParent();
+				if (game.isDisabled()) return;
+				int x = (int)row, y = (int)column;
+				if (e.getButton() == MouseEvent.BUTTON1) {			// Left click
+					lastOpened = x * columns + y;
+					engine.open(x, y);
+				}
+				else if (e.getButton() == MouseEvent.BUTTON3) {		// Right click
+					engine.flag(x, y);
+				}
+			}
+
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoomBy(e.getWheelRotation() > 0 ? 1 : -1);
+			}
+		};
+		this.addMouseListener(mouse);
+		this.addMouseMotionListener(mouse);
+		this.addMouseWheelListener(mouse);
+
+		this.addKeyListener(new KeyAdapter() {
+			public void keyPressed(KeyEvent e) {
+				double step = Math.max(1, 20 / scale());
+				switch (e.getKeyCode()) {
+					case KeyEvent.VK_UP: moveTo(centerX, centerY - step); break;
+					case KeyEvent.VK_DOWN: moveTo(centerX, centerY + step); break;
+					case KeyEvent.VK_LEFT: moveTo(centerX - step, centerY); break;
+					case KeyEvent.VK_RIGHT: moveTo(centerX + step, centerY); break;
+					case KeyEvent.VK_PLUS: case KeyEvent.VK_ADD: case KeyEvent.VK_EQUALS: zoomBy(-1); break;
+					case KeyEvent.VK_MINUS: case KeyEvent.VK_SUBTRACT: zoomBy(1); break;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Displays a snapshot published by the engine. A snapshot of a new game replaces the whole board, otherwise only the sprites of
+	 * the cells changed by the command are updated, along with the tiles of the pyramid they belong to. Snapshots of an earlier game
+	 * which arrive before the first snapshot of a new game are ignored. Must be called on the event dispatch thread, in the order the
+	 * snapshots were published.
+	 * @param snapshot The snapshot being displayed.
+	 */
+	public void applySnapshot(Snapshot snapshot) {
+		if (snapshot.isRestarted()) {
+			rows = snapshot.getRows();
+			columns = snapshot.getColumns();
+			sprites = new byte[rows * columns];
+			Arrays.fill(sprites, (byte)SpriteAtlas.CLOSED);
+			pyramid = new MipmapPyramid(rows, columns, COLORS, SpriteAtlas.CLOSED);
+			exploded = lastOpened = -1;
+			zoom = DEFAULT_ZOOM;
+			centerX = columns / 2.0;
+			centerY = rows / 2.0;
+		}
+		if (sprites == null) return;
+
+		for (int i = 0; i < snapshot.getChangedCount(); i++) {
+			setSprite(snapshot.getChangedCell(i), SpriteAtlas.sprite(snapshot.getChangedState(i), snapshot.getChangedMines(i)));
+		}
+		for (int i = 0; i < snapshot.getRevealedMines(); i++) {
+			int cell = snapshot.getRevealedMine(i);
+			setSprite(cell, SpriteAtlas.MINE);
+			if (cell == lastOpened) exploded = cell;
+		}
+		if (exploded >= 0) setSprite(exploded, SpriteAtlas.EXPLODED);
+		pyramid.flush();
+		repaint();
+	}
+
+	/**
+	 * Paints without clearing first, since every pixel of the view is painted anyway.
+	 */
+	@Override
+	public void update(Graphics g) {
+		paint(g);
+	}
+
+	/**
+	 * Paints the visible cells into the back buffer and copies it onto the canvas. The contents of a VolatileImage can be lost at
+	 * any time, for example when the display mode changes, so the frame is painted again until it was copied intact.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		int width = getWidth(), height = getHeight();
+		if (width <= 0 || height <= 0) return;
+
+		do {
+			if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) buffer = createVolatileImage(width, height);
+			if (buffer == null) return;
+			if (buffer.validate(getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+				buffer = createVolatileImage(width, height);
+				continue;
+			}
+			Graphics bg = buffer.getGraphics();
+			render(bg, width, height);
+			bg.dispose();
+			g.drawImage(buffer, 0, 0, null);
+		} while (buffer.contentsLost());
+	}
+
+	/**
+	 * Draws the visible part of the board and the minimap.
+	 * @param g The graphics the view is drawn with.
+	 * @param width The width of the view.
+	 * @param height The height of the view.
+	 */
+	private void render(Graphics g, int width, int height) {
+		g.setColor(getBackground());
+		g.fillRect(0, 0, width, height);
+		if (sprites == null) return;
+
+		double scale = scale();
+		double left = centerX - width / 2.0 / scale, top = centerY - height / 2.0 / scale;
+		if (ZOOMS[zoom] >= SPRITE_MIN) {
+			int size = ZOOMS[zoom];
+			SpriteAtlas atlas = SpriteAtlas.forSize(size);
+			int firstColumn = Math.max(0, (int)Math.floor(left)), firstRow = Math.max(0, (int)Math.floor(top));
+			int lastColumn = Math.min(columns - 1, (int)(left + width / scale)), lastRow = Math.min(rows - 1, (int)(top + height / scale));
+			int offsetX = (int)Math.round(-left * size), offsetY = (int)Math.round(-top * size);
+			for (int x = firstRow; x <= lastRow; x++) {
+				for (int y = firstColumn; y <= lastColumn; y++) atlas.draw(g, sprites[x * columns + y], offsetX + y * size, offsetY + x * size);
+			}
+		}
+		else {
+			/* A level of the pyramid is drawn scaled up by a whole factor when zoomed in, and one to one when zoomed out. */
+			int level = ZOOMS[zoom] > 0 ? 0 : Integer.numberOfTrailingZeros(-ZOOMS[zoom]);
+			int factor = ZOOMS[zoom] > 0 ? ZOOMS[zoom] : 1;
+			int dx = (int)Math.round(-left / (1 << level) * factor), dy = (int)Math.round(-top / (1 << level) * factor);
+			g.drawImage(pyramid.getImage(level), dx, dy, dx + pyramid.getWidth(level) * factor, dy + pyramid.getHeight(level) * factor,
+					0, 0, pyramid.getWidth(level), pyramid.getHeight(level), null);
+		}
+
+		Rectangle minimap = minimapBounds(width, height);
+		if (minimap == null) return;
+		g.drawImage(pyramid.getImage(minimapLevel()), minimap.x, minimap.y, null);
+		g.setColor(new Color(230, 195, 0));
+		g.drawRect(minimap.x - 1, minimap.y - 1, minimap.width + 1, minimap.height + 1);
+		double ratio = (double)minimap.width / columns;
+		g.setColor(new Color(161, 0, 53));
+		g.drawRect(minimap.x + (int)(left * ratio), minimap.y + (int)(top * ratio), (int)(width / scale * ratio), (int)(height / scale * ratio));
+	}
+
+	/**
+	 * Returns the number of pixels per cell of the current zoom level.
+	 */
+	private double scale() {
+		return ZOOMS[zoom] > 0 ? ZOOMS[zoom] : -1.0 / ZOOMS[zoom];
+	}
+
+	/**
+	 * Zooms in or out by one level, keeping the centre of the view in place.
+	 * @param steps -1 to zoom in, 1 to zoom out.
+	 */
+	private void zoomBy(int steps) {
+		zoom = Math.max(0, Math.min(ZOOMS.length - 1, zoom + steps));
+		repaint();
+	}
+
+	/**
+	 * Moves the centre of the view, keeping it on the board.
+	 * @param x The new column of the centre of the view.
+	 * @param y The new row of the centre of the view.
+	 */
+	private void moveTo(double x, double y) {
+		centerX = Math.max(0, Math.min(x, columns));
+		centerY = Math.max(0, Math.min(y, rows));
+		repaint();
+	}
+
+	/**
+	 * Returns the first level of the pyramid which fits into the minimap.
+	 */
+	private int minimapLevel() {
+		int level = 0;
+		while (level < pyramid.getLevels() - 1 && Math.max(pyramid.getWidth(level), pyramid.getHeight(level)) > MINIMAP_SIZE) level++;
+		return level;
+	}
+
+	/**
+	 * Returns the position of the minimap in the bottom right corner of the view.
+	 */
+	private Rectangle minimapBounds() {
+		return minimapBounds(getWidth(), getHeight());
+	}
+
+	/**
+	 * Returns the position of the minimap in the bottom right corner of a view of a given size, or null if the whole board fits into
+	 * the view and no minimap is needed.
+	 */
+	private Rectangle minimapBounds(int width, int height) {
+		if (sprites == null || (columns * scale() <= width && rows * scale() <= height)) return null;
+		int level = minimapLevel();
+		return new Rectangle(width - pyramid.getWidth(level) - 10, height - pyramid.getHeight(level) - 10, pyramid.getWidth(level), pyramid.getHeight(level));
+	}
+
+	/**
+	 * Changes the sprite of a cell and its color in the pyramid.
+	 */
+	private void setSprite(int cell, int sprite) {
+		sprites[cell] = (byte)sprite;
+		pyramid.set(cell / columns, cell % columns, sprite);
+	}
+}
\ No newline at end of file
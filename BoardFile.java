@@ -0,0 +1,381 @@
+package minesweeper;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A BoardFile object reads a board with predefined mines from a text file, so that puzzle sets, regression fixtures and benchmark
+ * boards can be shared between machines. Two formats are read, told apart by the first character which isn't part of a comment:
+ * <pre>
+ * # rows of cells        # list of coordinates
+ * *..*                   3 4
+ * ....                   0 0
+ * .*..                   0,3
+ *                        2 1
+ * </pre>
+ * In rows of cells, * is a mine and . is an empty cell, and all rows have the same length. A list of coordinates starts with the
+ * number of rows and columns, followed by the row and the column of every mine, separated by spaces, tabs or commas; a mine listed
+ * twice is placed once. Everything from # to the end of a line is a comment, empty lines are skipped and lines may end with \r\n.
+ * <p>
+ * Files of any size are read through memory-mapped windows of up to a gigabyte, copied in small chunks into an array which is parsed
+ * byte by byte, without creating a String for any line.
+ * A file is read twice: once when it is opened, to find the size of the board and the number of mines, which decide the storage of
+ * the board, and once when it is loaded, to place the mines straight into that storage, so a board never exists twice in memory.
+ * <pre>
+ * java minesweeper.BoardFile file...
+ * java minesweeper.BoardFile -w rows columns mines seed file
+ * </pre>
+ * The first form loads every file and prints its board and the time it took, the second writes a random board to a file.
+ * @author Nikola Stankovic
+ */
+public class BoardFile {
+	private static final long WINDOW = 1 << 30;
+	private static final int CHUNK = 1 << 16;
+
+	private File file;
+	private RandomAccessFile data;
+	private FileChannel channel;
+	private long length;
+	private MappedByteBuffer buffer;
+	private long base;
+	private byte chunk[];
+	private int position, limit;
+	private long line;
+	private boolean coordinates;
+	private int rows, columns, mines;
+
+	/**
+	 * Creates a BoardFile object and reads the file once to find the size of its board and its number of mines.
+	 * @param file The file holding the board.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the file isn't a valid board.
+	 */
+	public BoardFile(File file) throws IOException {
+		this.file = file;
+		this.data = new RandomAccessFile(file, "r");
+		boolean read = false;
+		try {
+			this.channel = data.getChannel();
+			this.length = channel.size();
+
+			/* The first character which isn't blank or part of a comment decides the format. */
+			rewind();
+			int c = next();
+			while (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '#') {
+				if (c == '#') c = skipLine();
+				c = next();
+			}
+			if (c == -1) throw new IllegalArgumentException("No board in " + file.getName() + ".");
+			coordinates = c >= '0' && c <= '9';
+			mines = coordinates ? readCoordinates(null) : readRows(null);
+			read = true;
+		} finally {
+			if (!read) close();
+		}
+	}
+
+	/**
+	 * Reads a whole board from a file.
+	 * @param file The file holding the board.
+	 * @return a new board with the mines of the file.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the file isn't a valid board.
+	 */
+	public static Board read(File file) throws IOException {
+		BoardFile boardFile = new BoardFile(file);
+		try {
+			return boardFile.load();
+		} finally {
+			boardFile.close();
+		}
+	}
+
+	/**
+	 * Returns the number of rows of the board.
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the board.
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of mines listed in the file. A mine listed twice is counted twice.
+	 * @return number of mines.
+	 */
+	public int getMines() {
+		return mines;
+	}
+
+	/**
+	 * Checks if the file is a list of coordinates.
+	 * @return true for a list of coordinates, false for rows of cells.
+	 */
+	public boolean isCoordinateList() {
+		return coordinates;
+	}
+
+	/**
+	 * Reads the file again and places its mines on a new board, in the storage chosen for its size and number of mines.
+	 * @return a new board with the mines of the file.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the board has no empty cell.
+	 */
+	public Board load() throws IOException {
+		CellStorage storage = Board.createStorage(rows, columns, mines);
+		int placed = coordinates ? readCoordinates(storage) : readRows(storage);
+		return new Board(storage, placed);
+	}
+
+	/**
+	 * Closes the file. The mapped windows are released once they are no longer reachable.
+	 */
+	public void close() {
+		try {
+			data.close();
+		} catch (IOException e) {}
+		buffer = null;
+	}
+
+	/**
+	 * Reads rows of cells from the beginning of the file.
+	 * @param storage The storage the mines are placed in, or null if the size of the board is only being found.
+	 * @return number of mines.
+	 */
+	private int readRows(CellStorage storage) throws IOException {
+		rewind();
+		int row = 0, count = 0;
+		while (true) {
+			int c = next(), cells = 0;
+			long word = 0;
+			for (; c != '\n' && c != -1 && c != '#'; c = next()) {
+				/* '*' and '.' differ only in their third bit, so mines are collected into words of 64 cells without a branch, which
+				   random mines would often mispredict, and each word is placed a mine at a time. */
+				if ((c | 4) == '.') {
+					long mine = ~c >> 2 & 1;
+					word |= mine << cells;
+					count += (int)mine;
+					if ((++cells & 63) == 0) {
+						if (storage != null) place(storage, row * columns + cells - 64, word);
+						word = 0;
+					}
+				}
+				else if (c != ' ' && c != '\t' && c != '\r') throw invalid(c);
+				if (cells == Integer.MAX_VALUE) throw new IllegalArgumentException("Board in " + file.getName() + " is too large.");
+			}
+			if (c == '#') c = skipLine();
+			if (storage != null) place(storage, row * columns + (cells & ~63), word);
+			if (cells > 0) {
+				if (row == 0) columns = cells;
+				else if (cells != columns) {
+					throw new IllegalArgumentException("Row of " + cells + " cells instead of " + columns + " at line " + line + " of " + file.getName() + ".");
+				}
+				if ((long)++row * columns > Integer.MAX_VALUE) throw new IllegalArgumentException("Board in " + file.getName() + " is too large.");
+			}
+			if (c == -1) break;
+			line++;
+		}
+		rows = row;
+		return count;
+	}
+
+	/**
+	 * Reads a list of coordinates from the beginning of the file.
+	 * @param storage The storage the mines are placed in, or null if the size of the board is only being found.
+	 * @return number of listed mines if the size is only being found, otherwise number of placed mines.
+	 */
+	private int readCoordinates(CellStorage storage) throws IOException {
+		rewind();
+		boolean header = false;
+		int count = 0, numbers[] = new int[2];
+		while (true) {
+			int c, found = 0;
+			long value = -1;
+			for (c = next(); c != '\n' && c != -1 && c != '#'; c = next()) {
+				if (c >= '0' && c <= '9') {
+					value = (value < 0 ? 0 : value * 10) + c - '0';
+					if (value > Integer.MAX_VALUE) throw new IllegalArgumentException("Number too large at line " + line + " of " + file.getName() + ".");
+				}
+				else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+					if (value >= 0) found = store(numbers, found, value);
+					value = -1;
+				}
+				else throw invalid(c);
+			}
+			if (value >= 0) found = store(numbers, found, value);
+			if (c == '#') c = skipLine();
+			if (found == 1) throw new IllegalArgumentException("Single number at line " + line + " of " + file.getName() + ".");
+			if (found == 2 && !header) {
+				if (numbers[0] == 0 || numbers[1] == 0 || (long)numbers[0] * numbers[1] > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Invalid board size " + numbers[0] + "x" + numbers[1] + " in " + file.getName() + ".");
+				}
+				rows = numbers[0];
+				columns = numbers[1];
+				header = true;
+			}
+			else if (found == 2) {
+				if (numbers[0] >= rows || numbers[1] >= columns) {
+					throw new IllegalArgumentException("Mine outside the board at line " + line + " of " + file.getName() + ".");
+				}
+				int index = numbers[0] * columns + numbers[1];
+				if (storage == null) count++;
+				else if (!storage.hasMine(index)) {
+					storage.setMine(index);
+					count++;
+				}
+			}
+			if (c == -1) break;
+			line++;
+		}
+		return count;
+	}
+
+	/**
+	 * Places the mines of a word of up to 64 consecutive cells of a row.
+	 * @param storage The storage the mines are placed in.
+	 * @param start The index of the cell of the lowest bit.
+	 * @param word The mines, one bit for every cell.
+	 */
+	private void place(CellStorage storage, int start, long word) {
+		for (; word != 0; word &= word - 1) storage.setMine(start + Long.numberOfTrailingZeros(word));
+	}
+
+	/**
+	 * Stores a number of a line of coordinates.
+	 * @return number of numbers found on the line so far.
+	 */
+	private int store(int numbers[], int found, long value) {
+		if (found == 2) throw new IllegalArgumentException("More than two numbers at line " + line + " of " + file.getName() + ".");
+		numbers[found] = (int)value;
+		return found + 1;
+	}
+
+	/**
+	 * Creates the exception thrown for a character which doesn't belong to the format.
+	 */
+	private IllegalArgumentException invalid(int c) {
+		return new IllegalArgumentException("Unexpected character '" + (char)c + "' at line " + line + " of " + file.getName() + ".");
+	}
+
+	/**
+	 * Skips the rest of a line.
+	 * @return the line break which ended the line, or -1 at the end of the file.
+	 */
+	private int skipLine() throws IOException {
+		int c;
+		while ((c = next()) != '\n' && c != -1);
+		return c;
+	}
+
+	/**
+	 * Goes back to the beginning of the file.
+	 */
+	private void rewind() {
+		if (chunk == null) chunk = new byte[CHUNK];
+		buffer = null;
+		base = position = limit = 0;
+		line = 1;
+	}
+
+	/**
+	 * Returns the next byte of the file. Bytes are parsed from a chunk copied out of the mapped window, so the parser reads a plain
+	 * array instead of going through the checks of the buffer for every byte.
+	 * @return the byte, or -1 at the end of the file.
+	 */
+	private int next() throws IOException {
+		if (position == limit && !fill()) return -1;
+		return chunk[position++] & 0xFF;
+	}
+
+	/**
+	 * Copies the next chunk of the file, mapping the next window when the current one is used up.
+	 * @return true if a chunk was copied, false at the end of the file.
+	 */
+	private boolean fill() throws IOException {
+		if (buffer == null || !buffer.hasRemaining()) {
+			long start = buffer == null ? 0 : base + buffer.capacity();
+			if (start >= length) return false;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, length - start));
+			base = start;
+		}
+		limit = Math.min(CHUNK, buffer.remaining());
+		buffer.get(chunk, 0, limit);
+		position = 0;
+		return true;
+	}
+
+	/**
+	 * Writes the mines of a board to a file. Boards with a low density of mines are written as a list of coordinates, other boards
+	 * as rows of cells. Only the mines are written, so a board of another topology is read back as a square board.
+	 * @param board The board being written.
+	 * @param file The file the board is written to. Any previous contents of the file are discarded.
+	 * @throws IOException
+	 */
+	public static void write(Board board, File file) throws IOException {
+		int rows = board.getRows(), columns = board.getColumns();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		try {
+			if ((long)board.getMines() * Board.SPARSE_DENSITY <= (long)rows * columns) {
+				out.write((rows + " " + columns + "\n").getBytes(StandardCharsets.US_ASCII));
+				for (int cell : board.getMineCells()) {
+					out.write((cell / columns + " " + cell % columns + "\n").getBytes(StandardCharsets.US_ASCII));
+				}
+			}
+			else {
+				byte row[] = new byte[columns + 1];
+				row[columns] = '\n';
+				for (int x = 0; x < rows; x++) {
+					for (int y = 0; y < columns; y++) row[y] = (byte)(board.hasMine(x, y) ? '*' : '.');
+					out.write(row);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads board files and prints their boards, or writes a random board to a file.
+	 * @param args Arguments for the main function.
+	 * @throws IOException
+	 */
+	public static void main(String args[]) throws IOException {
+		if (args.length == 6 && args[0].equals("-w")) {
+			int rows = Integer.parseInt(args[1]), columns = Integer.parseInt(args[2]), mines = Integer.parseInt(args[3]);
+			Board board = new Board(rows, columns, mines, Long.parseLong(args[4]));
+			write(board, new File(args[5]));
+			System.out.println("Wrote a " + rows + "x" + columns + " board with " + mines + " mines to " + args[5] + ".");
+			return;
+		}
+		if (args.length == 0) {
+			System.out.println("Usage: java minesweeper.BoardFile file... | -w rows columns mines seed file");
+			return;
+		}
+		for (String name : args) {
+			File file = new File(name);
+			try {
+				long start = System.nanoTime();
+				Board board = read(file);
+				long time = System.nanoTime() - start;
+				System.out.printf("%s: %dx%d, %d mines, 3BV %d, loaded in %.1f ms (%.0f MB/s)%n", name, board.getRows(), board.getColumns(),
+					board.getMines(), board.getValue(), time / 1e6, file.length() * 1e3 / time);
+			} catch (IllegalArgumentException e) {
+				System.out.println(name + ": " + e.getMessage());
+			}
+		}
+	}
+}
\ No newline at end of file
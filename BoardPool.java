@@ -0,0 +1,144 @@
+package minesweeper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A BoardPool object keeps boards ready to be played, so a new game starts by taking a board instead of generating one. Every
+ * configuration of rows, columns and mines has its own pool, which a background thread fills up to a fixed depth as soon as the
+ * configuration is first asked for, and again every time a board is taken. Taking a board is a single poll of a queue; only when the
+ * pool of a configuration is empty is the board generated on the spot. So that large boards can't take up too much memory, all pools
+ * share a single cell budget: a configuration is pooled with a smaller depth when its boards are large, and not at all when a single
+ * board exceeds the budget, and the pools of the configurations requested least recently are dropped when a new one doesn't fit.
+ * @author Nikola Stankovic
+ */
+public class BoardPool {
+	private static final long CELL_BUDGET = 1 << 24;
+	private static final int SHUTDOWN[] = new int[0];
+
+	private int depth;
+	private LinkedHashMap<String, Pool> pools;
+	private long pooled;
+	private LinkedBlockingQueue<int[]> requests;
+	private Thread filler;
+
+	/**
+	 * Creates a BoardPool object and starts the thread which fills it.
+	 * @param depth Number of boards kept ready for every configuration, or 0 to generate every board when it is taken.
+	 */
+	public BoardPool(int depth) {
+		this.depth = depth;
+		this.pools = new LinkedHashMap<String, Pool>(16, 0.75f, true);
+		this.requests = new LinkedBlockingQueue<int[]>();
+
+		filler = new Thread("minesweeper-pool") {
+			public void run() {
+				try {
+					while (true) {
+						int request[] = requests.take();
+						if (request == SHUTDOWN) break;
+						fill(request[0], request[1], request[2]);
+					}
+				} catch (InterruptedException e) {}
+			}
+		};
+		filler.setDaemon(true);
+		filler.setPriority(Thread.MIN_PRIORITY);
+		filler.start();
+	}
+
+	/**
+	 * Asks for the pool of a configuration to be filled in the background, without taking a board.
+	 * @param rows Number of rows of the boards.
+	 * @param columns Number of columns of the boards.
+	 * @param mines Number of mines of the boards.
+	 */
+	public void prepare(int rows, int columns, int mines) {
+		requests.add(new int[] {rows, columns, mines});
+	}
+
+	/**
+	 * Takes a board of a configuration from its pool and asks for the pool to be filled again. Can be called from any thread.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines of the board.
+	 * @return a new board, generated on the spot only if the pool was empty.
+	 */
+	public Board take(int rows, int columns, int mines) {
+		Pool pool = getPool(rows, columns, mines);
+		Board board = pool == null ? null : pool.boards.poll();
+		if (pool != null) prepare(rows, columns, mines);
+		return board != null ? board : new Board(rows, columns, mines);
+	}
+
+	/**
+	 * Stops the thread which fills the pools once it has handled all previous requests.
+	 */
+	public void shutdown() {
+		requests.add(SHUTDOWN);
+	}
+
+	/**
+	 * Generates boards until the pool of a configuration is full, or until the pool is dropped to make room for another one, since its
+	 * boards would no longer be counted against the budget. Runs on the filler thread, which is the only thread adding boards, so the
+	 * pool can't be overfilled. Invalid configurations are ignored, since taking a board of one fails on its own.
+	 */
+	private void fill(int rows, int columns, int mines) {
+		try {
+			Pool pool = getPool(rows, columns, mines);
+			while (pool != null && pool.boards.remainingCapacity() > 0) {
+				Board board = new Board(rows, columns, mines);
+				synchronized (pools) {
+					if (pool.dropped) break;
+					pool.boards.offer(board);
+				}
+			}
+		} catch (IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Returns the pool of a configuration, creating it the first time. A new pool takes its cells from the budget shared by all pools,
+	 * dropping the pools of the configurations requested least recently until it fits, together with the boards they still hold.
+	 * @return the pool, or null if the boards of the configuration are too large to be pooled.
+	 */
+	private Pool getPool(int rows, int columns, int mines) {
+		long cells = (long)rows * columns;
+		if (depth <= 0 || rows <= 0 || columns <= 0 || cells > CELL_BUDGET) return null;
+		String key = rows + "x" + columns + "/" + mines;
+		synchronized (pools) {
+			Pool pool = pools.get(key);
+			if (pool == null) {
+				int capacity = (int)Math.max(1, Math.min(depth, CELL_BUDGET / cells));
+				Iterator<Pool> eldest = pools.values().iterator();
+				while (pooled + capacity * cells > CELL_BUDGET && eldest.hasNext()) {
+					Pool dropped = eldest.next();
+					pooled -= dropped.cells;
+					dropped.dropped = true;
+					dropped.boards.clear();
+					eldest.remove();
+				}
+				pool = new Pool(capacity, capacity * cells);
+				pools.put(key, pool);
+				pooled += pool.cells;
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * The boards kept ready for a configuration, with the number of cells they take up from the budget when the pool is full. A pool
+	 * is marked as dropped under the lock of the pools once it no longer takes part in the budget.
+	 */
+	private static class Pool {
+		private ArrayBlockingQueue<Board> boards;
+		private long cells;
+		private boolean dropped;
+
+		private Pool(int capacity, long cells) {
+			this.boards = new ArrayBlockingQueue<Board>(capacity);
+			this.cells = cells;
+		}
+	}
+}
\ No newline at end of file
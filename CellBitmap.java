@@ -0,0 +1,317 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * A CellBitmap object is a compressed set of cell indices in the style of a roaring bitmap. The indices are split into blocks of 65536
+ * cells, and every block which contains at least one cell is stored in the smallest of three containers: a sorted array of the cells
+ * for sparse blocks, a plain bitmap for dense blocks, or a list of runs for blocks made of a few contiguous areas, such as a large
+ * opened region of a board. Since inserting into a sorted array gets slow as the array grows, a block which keeps growing during a
+ * move is switched to a bitmap early, and blocks are only converted to their smallest container when compact is called, so that a
+ * series of changes doesn't convert the same block back and forth.
+ * @author Nikola Stankovic
+ */
+public class CellBitmap {
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int WRITE_LIMIT = 256;
+	private static final int BITMAP_WORDS = 1024;
+
+	private Container blocks[];
+	private boolean touched[];
+	private long cardinality;
+
+	/**
+	 * Creates an empty CellBitmap object.
+	 * @param size Number of cells the set can contain.
+	 */
+	public CellBitmap(int size) {
+		int count = (int)(((long)size + 0xFFFF) >>> 16);
+		this.blocks = new Container[count];
+		this.touched = new boolean[count];
+	}
+
+	/**
+	 * Checks if a cell is in the set.
+	 * @param index The cell.
+	 * @return true if the cell is in the set, false otherwise.
+	 */
+	public boolean get(int index) {
+		Container block = blocks[index >>> 16];
+		return block != null && block.get((char)index);
+	}
+
+	/**
+	 * Adds a cell to the set or removes it from the set.
+	 * @param index The cell.
+	 * @param value true to add the cell, false to remove it.
+	 */
+	public void set(int index, boolean value) {
+		int key = index >>> 16;
+		Container block = blocks[key];
+		if (block == null) {
+			if (!value) return;
+			block = new ArrayContainer();
+		}
+		int before = block.cardinality();
+		block = value ? block.add((char)index) : block.remove((char)index);
+		cardinality += block.cardinality() - before;
+		blocks[key] = block.cardinality() == 0 ? null : block;
+		touched[key] = true;
+	}
+
+	/**
+	 * Returns the number of cells in the set.
+	 * @return number of cells.
+	 */
+	public long getCardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Converts every block changed since the last call into its smallest container.
+	 */
+	public void compact() {
+		for (int key = 0; key < blocks.length; key++) {
+			if (!touched[key]) continue;
+			touched[key] = false;
+			if (blocks[key] != null) blocks[key] = blocks[key].optimize();
+		}
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the containers of the set.
+	 * @return memory used by the set.
+	 */
+	public long getMemory() {
+		long bytes = blocks.length * 5L;
+		for (Container block : blocks) if (block != null) bytes += block.memory();
+		return bytes;
+	}
+
+	/**
+	 * A Container stores the cells of a single block by their lowest 16 bits. Changing a container may return a different one.
+	 */
+	private static abstract class Container {
+		abstract boolean get(char low);
+		abstract Container add(char low);
+		abstract Container remove(char low);
+		abstract int cardinality();
+		abstract long memory();
+
+		/**
+		 * Returns the cells of the container in ascending order, so that conversions visit only the cells and not the whole block.
+		 */
+		abstract char[] toArray();
+
+		/**
+		 * Returns the smallest of the three containers holding the same cells.
+		 */
+		Container optimize() {
+			int runs = countRuns();
+			int card = cardinality();
+			long runBytes = runs * 4L, arrayBytes = card * 2L, bitmapBytes = BITMAP_WORDS * 8L;
+			if (runBytes < arrayBytes && runBytes < bitmapBytes) return this instanceof RunContainer ? this : RunContainer.from(this, runs);
+			if (card <= ARRAY_LIMIT) return this instanceof ArrayContainer ? this : ArrayContainer.from(this);
+			return this instanceof BitmapContainer ? this : BitmapContainer.from(this);
+		}
+
+		/**
+		 * Counts the number of contiguous runs of cells in the container.
+		 */
+		abstract int countRuns();
+	}
+
+	/**
+	 * An ArrayContainer keeps the cells of a sparse block in a sorted array.
+	 */
+	private static class ArrayContainer extends Container {
+		private char values[] = new char[4];
+		private int size;
+
+		static ArrayContainer from(Container other) {
+			ArrayContainer array = new ArrayContainer();
+			char cells[] = other.toArray();
+			array.values = cells.length < 4 ? Arrays.copyOf(cells, 4) : cells;
+			array.size = cells.length;
+			return array;
+		}
+
+		boolean get(char low) {
+			return Arrays.binarySearch(values, 0, size, low) >= 0;
+		}
+
+		Container add(char low) {
+			int position = Arrays.binarySearch(values, 0, size, low);
+			if (position >= 0) return this;
+			if (size >= WRITE_LIMIT) return BitmapContainer.from(this).add(low);
+			position = -position - 1;
+			if (size == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+			System.arraycopy(values, position, values, position + 1, size - position);
+			values[position] = low;
+			size++;
+			return this;
+		}
+
+		Container remove(char low) {
+			int position = Arrays.binarySearch(values, 0, size, low);
+			if (position < 0) return this;
+			System.arraycopy(values, position + 1, values, position, size - position - 1);
+			size--;
+			return this;
+		}
+
+		int cardinality() {
+			return size;
+		}
+
+		long memory() {
+			return values.length * 2L + 16;
+		}
+
+		char[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+		int countRuns() {
+			int runs = 0;
+			for (int i = 0; i < size; i++) if (i == 0 || values[i] != values[i - 1] + 1) runs++;
+			return runs;
+		}
+	}
+
+	/**
+	 * A BitmapContainer keeps the cells of a dense block as one bit per cell.
+	 */
+	private static class BitmapContainer extends Container {
+		private long words[] = new long[BITMAP_WORDS];
+		private int size;
+
+		static BitmapContainer from(Container other) {
+			BitmapContainer bitmap = new BitmapContainer();
+			if (other instanceof RunContainer) {
+				char runs[] = ((RunContainer)other).runs;
+				for (int r = 0; r < runs.length; r += 2) {
+					for (int i = runs[r]; i <= runs[r] + runs[r + 1]; i++) bitmap.words[i >>> 6] |= 1L << i;
+				}
+				bitmap.size = other.cardinality();
+			}
+			else {
+				for (char cell : other.toArray()) bitmap.add(cell);
+			}
+			return bitmap;
+		}
+
+		boolean get(char low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		Container add(char low) {
+			if (!get(low)) {
+				words[low >>> 6] |= 1L << low;
+				size++;
+			}
+			return this;
+		}
+
+		Container remove(char low) {
+			if (get(low)) {
+				words[low >>> 6] &= ~(1L << low);
+				size--;
+			}
+			return this;
+		}
+
+		int cardinality() {
+			return size;
+		}
+
+		long memory() {
+			return BITMAP_WORDS * 8L + 16;
+		}
+
+		char[] toArray() {
+			char cells[] = new char[size];
+			int n = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				for (long word = words[i]; word != 0; word &= word - 1) cells[n++] = (char)(i * 64 + Long.numberOfTrailingZeros(word));
+			}
+			return cells;
+		}
+
+		int countRuns() {
+			int runs = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				long carry = i == 0 ? 0 : words[i - 1] >>> 63;
+				runs += Long.bitCount(word & ~((word << 1) | carry));
+			}
+			return runs;
+		}
+	}
+
+	/**
+	 * A RunContainer keeps the cells of a block as a sorted list of runs, each stored as its first cell and its length minus one. It is
+	 * read-only, so any change converts it back to one of the other containers.
+	 */
+	private static class RunContainer extends Container {
+		private char runs[];
+		private int size;
+
+		static RunContainer from(Container other, int count) {
+			RunContainer container = new RunContainer();
+			container.runs = new char[count * 2];
+			char cells[] = other.toArray();
+			int run = -1;
+			for (int i = 0; i < cells.length; i++) {
+				if (i == 0 || cells[i] != cells[i - 1] + 1) container.runs[++run * 2] = cells[i];
+				container.runs[run * 2 + 1] = (char)(cells[i] - container.runs[run * 2]);
+			}
+			container.size = cells.length;
+			return container;
+		}
+
+		boolean get(char low) {
+			int lo = 0, hi = runs.length / 2 - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (runs[mid * 2] > low) hi = mid - 1;
+				else if (runs[mid * 2] + runs[mid * 2 + 1] < low) lo = mid + 1;
+				else return true;
+			}
+			return false;
+		}
+
+		Container add(char low) {
+			if (get(low)) return this;
+			Container writable = size < WRITE_LIMIT ? ArrayContainer.from(this) : BitmapContainer.from(this);
+			return writable.add(low);
+		}
+
+		Container remove(char low) {
+			if (!get(low)) return this;
+			Container writable = size <= WRITE_LIMIT ? ArrayContainer.from(this) : BitmapContainer.from(this);
+			return writable.remove(low);
+		}
+
+		int cardinality() {
+			return size;
+		}
+
+		long memory() {
+			return runs.length * 2L + 16;
+		}
+
+		char[] toArray() {
+			char cells[] = new char[size];
+			int n = 0;
+			for (int r = 0; r < runs.length; r += 2) {
+				for (int i = runs[r]; i <= runs[r] + runs[r + 1]; i++) cells[n++] = (char)i;
+			}
+			return cells;
+		}
+
+		int countRuns() {
+			return runs.length / 2;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package minesweeper;
+
+/**
+ * A CellStorage is the way a Board keeps the mines and the states of its cells. Different implementations trade memory for speed,
+ * so a board can use a compact byte per cell for regular boards and a sparse representation for giant boards with few mines.
+ * Cells are identified by their row-major index.
+ * @author Nikola Stankovic
+ */
+public interface CellStorage {
+	/**
+	 * Returns the number of rows of the stored board.
+	 * @return number of rows.
+	 */
+	int getRows();
+
+	/**
+	 * Returns the number of columns of the stored board.
+	 * @return number of columns.
+	 */
+	int getColumns();
+
+	/**
+	 * Checks if a cell has a mine.
+	 * @param index Row-major index of the cell.
+	 * @return true if a mine is present, false otherwise.
+	 */
+	boolean hasMine(int index);
+
+	/**
+	 * Places a mine on a cell. Mines are only placed before the first call of minesPlaced.
+	 * @param index Row-major index of the cell.
+	 */
+	void setMine(int index);
+
+	/**
+	 * Called once all mines have been placed, so that the storage can prepare anything it derives from the mines.
+	 */
+	void minesPlaced();
+
+	/**
+	 * Returns the number of mines surrounding a cell.
+	 * @param index Row-major index of the cell.
+	 * @return number of surrounding mines.
+	 */
+	int getSurroundingMines(int index);
+
+	/**
+	 * Returns the state of a cell.
+	 * @param index Row-major index of the cell.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	byte getState(int index);
+
+	/**
+	 * Changes the state of a cell.
+	 * @param index Row-major index of the cell.
+	 * @param state One of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	void setState(int index, byte state);
+
+	/**
+	 * Opens a cell which has no mine and, if it has no surrounding mines, the whole area around it in a single operation, recording
+	 * every changed cell in the move. Storages which can't do this faster than opening the cells one by one return false without
+	 * changing anything, and the board opens the area itself.
+	 * @param index Row-major index of the cell.
+	 * @param move The move the changes are recorded in.
+	 * @return true if the area was opened, false if the board has to open it.
+	 */
+	boolean openArea(int index, Delta.Builder move);
+
+	/**
+	 * Opens every cell claimed by a parallel reveal in a single operation, recording every changed cell in the move in ascending
+	 * order. Storages which can't do this faster than opening the cells one by one return false without changing anything, and the
+	 * board opens the cells itself.
+	 * @param reveal The parallel reveal which claimed the cells.
+	 * @param move The move the changes are recorded in.
+	 * @return true if the cells were opened, false if the board has to open them.
+	 */
+	boolean openClaimed(ParallelReveal reveal, Delta.Builder move);
+
+	/**
+	 * Called after every move, so that the storage can compact the parts changed by the move.
+	 */
+	void moveFinished();
+
+	/**
+	 * Returns the positions of all mines.
+	 * @return row-major indices of all cells with a mine, in ascending order.
+	 */
+	int[] getMineCells();
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+
+/**
+ * A Chunk object is a square part of an endless minefield. The mines of a chunk are never stored anywhere - they are generated from
+ * a hash of the world seed and the chunk's coordinates, so the same chunk always gets the same mines. Only the states of the cells
+ * have to be kept, and only once the player has changed them.
+ * @author Nikola Stankovic
+ */
+public class Chunk {
+	/** Number of rows and columns of a chunk. */
+	public static final int SIZE = 32;
+	/** Number of cells of a chunk. */
+	public static final int CELLS = SIZE * SIZE;
+
+	private int chunkX, chunkY;
+	private long mines[];
+	private byte counts[];
+	private byte states[];
+	private boolean modified;
+
+	/**
+	 * Creates a Chunk object with all cells closed.
+	 * @param seed The seed of the world.
+	 * @param density Probability of a cell having a mine.
+	 * @param chunkX The row of the chunk.
+	 * @param chunkY The column of the chunk.
+	 */
+	public Chunk(long seed, double density, int chunkX, int chunkY) {
+		this.chunkX = chunkX;
+		this.chunkY = chunkY;
+		this.mines = generateMines(seed, density, chunkX, chunkY);
+		this.states = new byte[CELLS];
+		this.counts = new byte[CELLS];
+
+		/* Cells on the edge of the chunk touch the mines of the eight surrounding chunks, which are generated just for counting. */
+		long around[][] = new long[9][];
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				around[(dx + 1) * 3 + dy + 1] = dx == 0 && dy == 0 ? mines : generateMines(seed, density, chunkX + dx, chunkY + dy);
+			}
+		}
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				int count = 0;
+				for (int dx = -1; dx <= 1; dx++) {
+					for (int dy = -1; dy <= 1; dy++) {
+						if (dx == 0 && dy == 0) continue;
+						int nx = x + dx, ny = y + dy;
+						int cx = nx < 0 ? 0 : nx < SIZE ? 1 : 2, cy = ny < 0 ? 0 : ny < SIZE ? 1 : 2;
+						if (isSet(around[cx * 3 + cy], Math.floorMod(nx, SIZE) * SIZE + Math.floorMod(ny, SIZE))) count++;
+					}
+				}
+				counts[x * SIZE + y] = (byte)count;
+			}
+		}
+	}
+
+	/**
+	 * Returns the row of the chunk.
+	 * @return row of the chunk.
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 * Returns the column of the chunk.
+	 * @return column of the chunk.
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 * Checks if a cell of the chunk has a mine.
+	 * @param cell Row-major index of the cell inside the chunk.
+	 * @return true if a mine is present, false otherwise.
+	 */
+	public boolean hasMine(int cell) {
+		return isSet(mines, cell);
+	}
+
+	/**
+	 * Returns the number of mines surrounding a cell of the chunk, including mines in the neighbouring chunks.
+	 * @param cell Row-major index of the cell inside the chunk.
+	 * @return number of surrounding mines.
+	 */
+	public int getSurroundingMines(int cell) {
+		return counts[cell];
+	}
+
+	/**
+	 * Returns the state of a cell of the chunk.
+	 * @param cell Row-major index of the cell inside the chunk.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public byte getState(int cell) {
+		return states[cell];
+	}
+
+	/**
+	 * Changes the state of a cell of the chunk and marks the chunk as modified.
+	 * @param cell Row-major index of the cell inside the chunk.
+	 * @param state One of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public void setState(int cell, byte state) {
+		states[cell] = state;
+		modified = true;
+	}
+
+	/**
+	 * Checks if any cell of the chunk was changed since it was generated or loaded.
+	 * @return true if the chunk was changed, false otherwise.
+	 */
+	public boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * Packs the states of the cells into two bits per cell, in the format used by ChunkFile.
+	 * @return the packed states.
+	 */
+	public byte[] pack() {
+		byte packed[] = new byte[CELLS / 4];
+		for (int i = 0; i < CELLS; i++) packed[i >> 2] |= states[i] << ((i & 3) * 2);
+		return packed;
+	}
+
+	/**
+	 * Restores the states of the cells from their packed form. The chunk is not marked as modified, since it matches what was saved.
+	 * @param packed The states packed by the pack method.
+	 */
+	public void unpack(byte packed[]) {
+		for (int i = 0; i < CELLS; i++) states[i] = (byte)((packed[i >> 2] >> ((i & 3) * 2)) & 3);
+		modified = false;
+	}
+
+	/**
+	 * Generates the mines of a chunk as one bit per cell. The cells around the origin of the world never get a mine, so that the
+	 * first move of a game is always safe.
+	 * @param seed The seed of the world.
+	 * @param density Probability of a cell having a mine.
+	 * @param chunkX The row of the chunk.
+	 * @param chunkY The column of the chunk.
+	 * @return the mines of the chunk.
+	 */
+	private static long[] generateMines(long seed, double density, int chunkX, int chunkY) {
+		SplittableRandom random = new SplittableRandom(mix(seed ^ mix(((long)chunkX << 32) ^ (chunkY & 0xFFFFFFFFL))));
+		long mines[] = new long[CELLS / 64];
+		for (int i = 0; i < CELLS; i++) {
+			if (random.nextDouble() >= density) continue;
+			long x = (long)chunkX * SIZE + i / SIZE, y = (long)chunkY * SIZE + i % SIZE;
+			if (Math.abs(x) <= 1 && Math.abs(y) <= 1) continue;
+			mines[i >> 6] |= 1L << i;
+		}
+		return mines;
+	}
+
+	/**
+	 * Checks a bit of a chunk's mines.
+	 */
+	private static boolean isSet(long mines[], int cell) {
+		return (mines[cell >> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Mixes the bits of a value, so that neighbouring chunks get unrelated seeds.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+
+/**
+ * A ChunkFile object is a local file where an endless minefield keeps the chunks it had to evict from memory. Every chunk gets a
+ * fixed-size record holding its packed cell states, written at the end of the file the first time the chunk is evicted and
+ * overwritten in place afterwards. The position of every record is kept in memory.
+ * @author Nikola Stankovic
+ */
+public class ChunkFile {
+	private static final int RECORD = Chunk.CELLS / 4;
+
+	private File file;
+	private RandomAccessFile data;
+	private HashMap<Long, Long> offsets;
+
+	/**
+	 * Creates a ChunkFile object which stores its records in a new file. Any previous contents of the file are discarded.
+	 * @param file The file used for the records.
+	 * @throws IOException
+	 */
+	public ChunkFile(File file) throws IOException {
+		this.file = file;
+		this.data = new RandomAccessFile(file, "rw");
+		this.data.setLength(0);
+		this.offsets = new HashMap<Long, Long>();
+	}
+
+	/**
+	 * Creates a ChunkFile object backed by a temporary file, which is deleted when the program exits.
+	 * @return the new chunk file.
+	 * @throws IOException
+	 */
+	public static ChunkFile createTemporary() throws IOException {
+		File file = File.createTempFile("minesweeper-chunks", ".dat");
+		file.deleteOnExit();
+		return new ChunkFile(file);
+	}
+
+	/**
+	 * Writes the cell states of a chunk.
+	 * @param key The key of the chunk.
+	 * @param chunk The chunk being written.
+	 * @throws IOException
+	 */
+	public void write(long key, Chunk chunk) throws IOException {
+		Long offset = offsets.get(key);
+		long position = offset == null ? data.length() : offset;
+		data.seek(position);
+		data.write(chunk.pack());
+		if (offset == null) offsets.put(key, position);
+	}
+
+	/**
+	 * Reads the cell states of a chunk into it, if the chunk was ever written.
+	 * @param key The key of the chunk.
+	 * @param chunk The chunk whose states are read.
+	 * @return true if the chunk was found in the file, false otherwise.
+	 * @throws IOException
+	 */
+	public boolean read(long key, Chunk chunk) throws IOException {
+		Long offset = offsets.get(key);
+		if (offset == null) return false;
+		byte packed[] = new byte[RECORD];
+		data.seek(offset);
+		data.readFully(packed);
+		chunk.unpack(packed);
+		return true;
+	}
+
+	/**
+	 * Returns the number of chunks stored in the file.
+	 * @return number of stored chunks.
+	 */
+	public int getChunks() {
+		return offsets.size();
+	}
+
+	/**
+	 * Closes the file and deletes it.
+	 */
+	public void close() {
+		try {
+			data.close();
+		} catch (IOException e) {}
+		file.delete();
+	}
+}
\ No newline at end of file
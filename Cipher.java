@@ -23,7 +23,16 @@ public class Cipher {
 	 * @throws IOException
 	 */
 	public Cipher() throws IOException {
-		File file = new File(System.getProperty("user.dir") + "/key.txt");
+		this(new File(System.getProperty("user.dir") + "/key.txt"));
+	}
+	
+	/**
+	 * Creates a Cipher object with the keys stored in a given file, such as the key file of another installation of the game. If the
+	 * file is empty or doesn't exist, keys are randomly generated and stored in it.
+	 * @param file The file with the keys.
+	 * @throws IOException
+	 */
+	public Cipher(File file) throws IOException {
 		file.createNewFile();
 		Scanner scan = new Scanner(file);
 		
@@ -44,20 +53,53 @@ public class Cipher {
 			sb.setCharAt(114, (char)(keyNumbers % 10));
 			sb.setCharAt(121, (char)(keyOther));
 			
-			FileWriter writer = new FileWriter(System.getProperty("user.dir") + "/key.txt");
+			FileWriter writer = new FileWriter(file);
 			writer.write(sb.toString() + "\n");
 			writer.close();
 		}
-		else {
-			StringBuilder sb = new StringBuilder(scan.nextLine());
-			keyBigLetters = (int)sb.charAt(17) * 10 + (int)sb.charAt(41);
-			keySmallLetters = (int)sb.charAt(62) * 10 + (int)sb.charAt(75);
-			keyNumbers = (int)sb.charAt(91) * 10 + (int)sb.charAt(114);
-			keyOther = (int)sb.charAt(121);
-		}
+		else load(scan.nextLine());
 		
 		scan.close();
 	}
+
+	/**
+	 * Reads the keys of another installation of the game without creating or changing its key file, so that reading its files never
+	 * modifies the installation.
+	 * @param file The file with the keys.
+	 * @return a Cipher object with the keys stored in the file.
+	 * @throws IOException if the file can't be read, or is empty or doesn't hold valid keys.
+	 */
+	public static Cipher read(File file) throws IOException {
+		Scanner scan = new Scanner(file);
+		String line = scan.hasNextLine() ? scan.nextLine() : "";
+		scan.close();
+		if (line.isEmpty()) throw new IOException("The key file " + file + " is empty.");
+		if (line.length() <= 121) throw new IOException("The key file " + file + " doesn't hold valid keys.");
+
+		Cipher cipher = new Cipher(line);
+		if (cipher.keyBigLetters < 1 || cipher.keyBigLetters > 25 || cipher.keySmallLetters < 1 || cipher.keySmallLetters > 25
+				|| cipher.keyNumbers < 1 || cipher.keyNumbers > 9 || cipher.keyOther < 1 || cipher.keyOther > 5) {
+			throw new IOException("The key file " + file + " doesn't hold valid keys.");
+		}
+		return cipher;
+	}
+
+	/**
+	 * Creates a Cipher object with the keys read from the line of a key file.
+	 */
+	private Cipher(String line) {
+		load(line);
+	}
+
+	/**
+	 * Loads the keys from the digits placed at predefined locations in the line of a key file.
+	 */
+	private void load(String line) {
+		keyBigLetters = (int)line.charAt(17) * 10 + (int)line.charAt(41);
+		keySmallLetters = (int)line.charAt(62) * 10 + (int)line.charAt(75);
+		keyNumbers = (int)line.charAt(91) * 10 + (int)line.charAt(114);
+		keyOther = (int)line.charAt(121);
+	}
 	
 	/**
 	 * Ciphers a string using keys that were previously generated.
@@ -65,6 +107,7 @@ public class Cipher {
 	 * @return ciphered string.
 	 */
 	public String encrypt(String code) {
+		long start = System.nanoTime();
 		StringBuilder sb = new StringBuilder(code);	
 		for (int i = 0; i < sb.length(); i++) {
 			char c = sb.charAt(i);
@@ -88,6 +131,7 @@ public class Cipher {
 			}
 		}
 		
+		GameMetrics.getApplication().ciphered(code.length(), System.nanoTime() - start);
 		return sb.toString();
 	}
 	
@@ -97,6 +141,7 @@ public class Cipher {
 	 * @return deciphered string.
 	 */
 	public String decrypt(String code) {
+		long start = System.nanoTime();
 		StringBuilder sb = new StringBuilder(code);	
 		for (int i = 0; i < sb.length(); i++) {
 			char c = sb.charAt(i);
@@ -117,6 +162,7 @@ public class Cipher {
 			}
 		}
 		
+		GameMetrics.getApplication().ciphered(code.length(), System.nanoTime() - start);
 		return sb.toString();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A Cli object plays a headless game from the command line, without loading any AWT classes, so it starts in a few tens of
+ * milliseconds and runs on servers and in scripts. Commands are read from the standard input or from batch files, one per line, and
+ * use the protocol of a Session, so every command prints a single line which lists only the cells it changed. Empty lines and lines
+ * starting with # are skipped, so batch files can hold comments. Unlike a client of a server, the command line may start a game on
+ * a board file with LOAD, so scripts can replay puzzle sets and regression fixtures.
+ * <pre>
+ * java minesweeper.Cli [-t] [file...]
+ * </pre>
+ * The files are played one after another in the same game, and - stands for the standard input, which is also used when no file is
+ * given. With -t, the time every command took is printed to the standard error in microseconds, to compare the latency with the GUI.
+ * @author Nikola Stankovic
+ */
+public class Cli {
+	private Session session;
+	private PrintWriter out;
+	private boolean timed;
+
+	/**
+	 * Creates a Cli object with a new game at easy difficulty.
+	 * @param out The writer the responses are printed to.
+	 * @param timed true if the time of every command is printed to the standard error.
+	 */
+	public Cli(PrintWriter out, boolean timed) {
+		this.session = new Session(Integer.MAX_VALUE);
+		this.session.setFilesAllowed(true);
+		this.out = out;
+		this.timed = timed;
+	}
+
+	/**
+	 * Plays all commands of a reader until it ends or a QUIT command is played.
+	 * @param in The reader the commands are read from.
+	 * @param interactive true if every response is flushed right away, false if responses may be buffered.
+	 * @return true if the game was quit, false if the reader ended first.
+	 * @throws IOException
+	 */
+	public boolean play(Reader in, boolean interactive) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		StringBuilder response = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+
+			long start = System.nanoTime();
+			response.setLength(0);
+			session.handle(line, response);
+			out.print(response);
+			if (interactive) out.flush();
+			if (timed) System.err.println(line + "\t" + (System.nanoTime() - start) / 1000 + " us");
+			if (session.isClosed()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the command line front end.
+	 * @param args -t to print the time of every command, followed by the batch files, or - for the standard input.
+	 * @throws IOException
+	 */
+	public static void main(String args[]) throws IOException {
+		boolean timed = args.length > 0 && args[0].equals("-t");
+		String files[] = Arrays.copyOfRange(args, timed ? 1 : 0, args.length);
+		if (files.length == 0) files = new String[] {"-"};
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), false);
+		Cli cli = new Cli(out, timed);
+		for (String file : files) {
+			boolean stdin = file.equals("-");
+			Reader in = new InputStreamReader(stdin ? System.in : new FileInputStream(file), StandardCharsets.UTF_8);
+			try {
+				if (cli.play(in, stdin)) break;
+			} finally {
+				if (!stdin) in.close();
+			}
+		}
+		out.flush();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package minesweeper;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A ConcurrentHistogram object records values from any number of threads without locks or contended writes. Every thread records
+ * into its own buckets, created the first time it records, which only that thread writes, so a value costs a read and an ordered
+ * write of a single counter. Reading merges the buckets of all threads into a Histogram, which is a consistent view of every counter
+ * although values recorded at the same time may or may not be included. The buckets of threads which ended are folded into shared
+ * buckets, when reading and whenever another thread records for the first time, so short-lived threads don't pile up.
+ * @author Nikola Stankovic
+ */
+public class ConcurrentHistogram {
+	private ThreadLocal<Buckets> local;
+	private CopyOnWriteArrayList<Buckets> all;
+	private Buckets retired;
+
+	/**
+	 * Creates an empty ConcurrentHistogram object.
+	 */
+	public ConcurrentHistogram() {
+		this.all = new CopyOnWriteArrayList<Buckets>();
+		this.retired = new Buckets(null);
+		all.add(retired);
+		this.local = new ThreadLocal<Buckets>() {
+			protected Buckets initialValue() {
+				Buckets buckets = new Buckets(Thread.currentThread());
+				synchronized (retired) {
+					retire();
+					all.add(buckets);
+				}
+				return buckets;
+			}
+		};
+	}
+
+	/**
+	 * Records a single value. Can be called from any thread.
+	 * @param value The value being recorded, usually a duration in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		local.get().record(Math.max(0, value));
+	}
+
+	/**
+	 * Merges the values recorded by all threads so far.
+	 * @return a new histogram with all values.
+	 */
+	public Histogram getHistogram() {
+		Histogram histogram = new Histogram();
+		synchronized (retired) {
+			retire();
+			for (Buckets buckets : all) {
+				long max = buckets.max;
+				for (int i = 0; i < Histogram.BUCKETS; i++) {
+					long count = buckets.counts.get(i);
+					if (count != 0) histogram.add(i, count, max);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Adds the counts of every thread which ended to the shared buckets and forgets its own. A thread which ended writes nothing more,
+	 * and everything it wrote is visible once it is seen as not alive. Called while holding the lock of the shared buckets, so no
+	 * reader sees the counts twice or not at all.
+	 */
+	private void retire() {
+		for (Buckets buckets : all) {
+			if (buckets == retired || buckets.isAlive()) continue;
+			for (int i = 0; i < Histogram.BUCKETS; i++) {
+				long count = buckets.counts.get(i);
+				if (count != 0) retired.counts.addAndGet(i, count);
+			}
+			if (buckets.max > retired.max) retired.max = buckets.max;
+			all.remove(buckets);
+		}
+	}
+
+	/**
+	 * A Buckets object holds the counts recorded by a single thread, or the counts of all threads which ended. The owner is only weakly
+	 * referenced, so the buckets don't keep a thread which ended from being collected.
+	 */
+	private static class Buckets {
+		private AtomicLongArray counts = new AtomicLongArray(Histogram.BUCKETS);
+		private volatile long max;
+		private WeakReference<Thread> owner;
+
+		private Buckets(Thread owner) {
+			this.owner = new WeakReference<Thread>(owner);
+		}
+
+		/**
+		 * Returns whether the owning thread can still record.
+		 */
+		private boolean isAlive() {
+			Thread thread = owner.get();
+			return thread != null && thread.isAlive();
+		}
+
+		/**
+		 * Records a value. Only the owning thread writes, so the count is increased without an atomic update.
+		 */
+		private void record(long value) {
+			int bucket = Histogram.bucket(value);
+			counts.lazySet(bucket, counts.get(bucket) + 1);
+			if (value > max) max = value;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Delta object describes a single move as the set of cells whose state changed during that move. Cells are identified by their
+ * row-major index in the field and are stored as runs of consecutive indices which share the same state before and after the move,
+ * so the memory needed for a delta grows with the size of the change and not with the size of the field. A flood fill which opens
+ * a large contiguous area is therefore stored as a handful of runs, one per row of the opened area.
+ * @author Nikola Stankovic
+ */
+public class Delta {
+	public static final byte CLOSED = 0;
+	public static final byte FLAGGED = 1;
+	public static final byte OPENED = 2;
+
+	private int starts[];
+	private int lengths[];
+	private byte before[];
+	private byte after[];
+	private int cells;
+
+	/**
+	 * Creates a Delta object out of already encoded runs. Used by the Builder.
+	 * @param starts Index of the first cell of every run.
+	 * @param lengths Number of cells in every run.
+	 * @param before State of the cells of every run before the move.
+	 * @param after State of the cells of every run after the move.
+	 * @param cells Total number of changed cells.
+	 */
+	private Delta(int starts[], int lengths[], byte before[], byte after[], int cells) {
+		this.starts = starts;
+		this.lengths = lengths;
+		this.before = before;
+		this.after = after;
+		this.cells = cells;
+	}
+
+	/**
+	 * Returns the number of runs the delta consists of.
+	 * @return number of runs.
+	 */
+	public int getRuns() {
+		return starts.length;
+	}
+
+	/**
+	 * Returns the index of the first cell of a run.
+	 * @param run The run.
+	 * @return index of the first cell.
+	 */
+	public int getStart(int run) {
+		return starts[run];
+	}
+
+	/**
+	 * Returns the number of cells in a run.
+	 * @param run The run.
+	 * @return length of the run.
+	 */
+	public int getLength(int run) {
+		return lengths[run];
+	}
+
+	/**
+	 * Returns the state all cells of a run had before the move.
+	 * @param run The run.
+	 * @return one of CLOSED, FLAGGED or OPENED.
+	 */
+	public byte getBefore(int run) {
+		return before[run];
+	}
+
+	/**
+	 * Returns the state all cells of a run have after the move.
+	 * @param run The run.
+	 * @return one of CLOSED, FLAGGED or OPENED.
+	 */
+	public byte getAfter(int run) {
+		return after[run];
+	}
+
+	/**
+	 * Returns the total number of cells changed by the move.
+	 * @return number of changed cells.
+	 */
+	public int getCells() {
+		return cells;
+	}
+
+	/**
+	 * Checks if the move didn't change any cell.
+	 * @return true if no cell was changed, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return cells == 0;
+	}
+
+	/**
+	 * Returns the delta which undoes this one, sharing its runs.
+	 * @return delta with the states before and after the move swapped.
+	 */
+	public Delta reverse() {
+		return new Delta(starts, lengths, after, before, cells);
+	}
+
+	/**
+	 * Combines consecutive moves into a single delta, which holds the state of every changed cell before the first move and after
+	 * the last one. Cells which end in the state they started in are left out, so the result grows only with the cells the moves
+	 * changed.
+	 * @param moves The moves in the order they were played.
+	 * @return the combined delta.
+	 */
+	public static Delta merge(List<Delta> moves) {
+		int total = 0;
+		for (Delta move : moves) total += move.cells;
+
+		/* Every change is keyed by the index of its cell and by its position in the sequence, so sorting the keys brings the changes
+		 * of every cell together in the order they were played. */
+		long keys[] = new long[total];
+		byte transitions[] = new byte[total];
+		int n = 0;
+		for (Delta move : moves) {
+			for (int r = 0; r < move.starts.length; r++) {
+				for (int i = move.starts[r]; i < move.starts[r] + move.lengths[r]; i++) {
+					keys[n] = ((long)i << 32) | n;
+					transitions[n++] = (byte)((move.before[r] << 2) | move.after[r]);
+				}
+			}
+		}
+		Arrays.sort(keys);
+
+		Builder builder = new Builder();
+		for (int first = 0, last; first < total; first = last + 1) {
+			long index = keys[first] >>> 32;
+			last = first;
+			while (last + 1 < total && keys[last + 1] >>> 32 == index) last++;
+			byte before = (byte)(transitions[(int)keys[first]] >> 2), after = (byte)(transitions[(int)keys[last]] & 3);
+			if (before != after) builder.add((int)index, before, after);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * A Builder object collects changed cells in any order while a move is being played and encodes them into a Delta once the
+	 * move is over.
+	 */
+	public static class Builder {
+		private long keys[] = new long[16];
+		private int size = 0;
+
+		/**
+		 * Records a state change of a single cell. Every cell should be recorded at most once per move.
+		 * @param index Row-major index of the cell.
+		 * @param before State of the cell before the move.
+		 * @param after State of the cell after the move.
+		 */
+		public void add(int index, byte before, byte after) {
+			if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+			keys[size++] = ((long)index << 4) | (before << 2) | after;
+		}
+
+		/**
+		 * Returns the number of cells recorded so far.
+		 * @return number of recorded cells.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Sorts the recorded cells by index and merges neighbouring cells with equal state transitions into runs.
+		 * @return the encoded delta.
+		 */
+		public Delta build() {
+			sort();
+
+			/* The first pass only counts the runs so that the arrays of the delta are allocated with their exact size. */
+			int runs = 0;
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || !continues(keys[i - 1], keys[i])) runs++;
+			}
+
+			int starts[] = new int[runs], lengths[] = new int[runs];
+			byte before[] = new byte[runs], after[] = new byte[runs];
+			int run = -1;
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || !continues(keys[i - 1], keys[i])) {
+					run++;
+					starts[run] = (int)(keys[i] >>> 4);
+					before[run] = (byte)((keys[i] >> 2) & 3);
+					after[run] = (byte)(keys[i] & 3);
+				}
+				lengths[run]++;
+			}
+			return new Delta(starts, lengths, before, after, size);
+		}
+
+		/**
+		 * Sorts the recorded cells. Large areas are recorded in ascending order after the cells opened one by one before them, so only
+		 * the cells before the ascending tail are sorted and then merged with it, which keeps a giant move from being sorted again.
+		 */
+		private void sort() {
+			int tail = size;
+			while (tail > 1 && keys[tail - 2] <= keys[tail - 1]) tail--;
+			if (tail <= 1) return;
+			if (tail > size / 2) {
+				Arrays.sort(keys, 0, size);
+				return;
+			}
+
+			Arrays.sort(keys, 0, tail - 1);
+			long head[] = Arrays.copyOf(keys, tail - 1);
+			int i = 0, j = tail - 1, k = 0;
+			while (i < head.length && j < size) keys[k++] = head[i] <= keys[j] ? head[i++] : keys[j++];
+			while (i < head.length) keys[k++] = head[i++];
+		}
+
+		/**
+		 * Checks if a cell directly follows the previous one and has the same state transition.
+		 */
+		private static boolean continues(long previous, long key) {
+			return (key >>> 4) == (previous >>> 4) + 1 && (key & 15) == (previous & 15);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package minesweeper;
+
+/**
+ * A DenseStorage object keeps the whole state of a cell in a single byte. Bits 0-1 hold the state of the cell, bit 2 tells if the
+ * cell has a mine and bits 3-6 hold the number of surrounding mines, which is computed once when the mines are placed. It is the
+ * fastest storage and the default one for boards of a regular size. The neighbours of its cells are taken from a NeighbourTable, so
+ * it can keep boards of any topology; the cell after the last one is the sentinel of the table, which stays opened without a mine.
+ * @author Nikola Stankovic
+ */
+public class DenseStorage implements CellStorage {
+	private static final int STATE = 3;
+	private static final int MINE = 4;
+	private static final int COUNT_SHIFT = 3;
+
+	private int rows, columns, size;
+	private byte cells[];
+	private NeighbourTable table;
+
+	/**
+	 * Creates a DenseStorage object of a square board with all cells closed and without mines.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 */
+	public DenseStorage(int rows, int columns) {
+		this(NeighbourTable.get(rows, columns, Topology.SQUARE));
+	}
+
+	/**
+	 * Creates a DenseStorage object with all cells closed and without mines, whose neighbours are given by a table.
+	 * @param table The neighbours of the cells, which also determine the size of the board.
+	 */
+	public DenseStorage(NeighbourTable table) {
+		this.table = table;
+		this.rows = table.getRows();
+		this.columns = table.getColumns();
+		this.size = table.getSize();
+		this.cells = new byte[size + 1];
+		cells[size] = Delta.OPENED;
+	}
+
+	/**
+	 * Returns the neighbours of the cells.
+	 * @return the neighbour table of the board.
+	 */
+	public NeighbourTable getTable() {
+		return table;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public boolean hasMine(int index) {
+		return (cells[index] & MINE) != 0;
+	}
+
+	public void setMine(int index) {
+		cells[index] |= MINE;
+	}
+
+	public void minesPlaced() {
+		int neighbours[] = table.getNeighbours(), degree = table.getDegree();
+		for (int cell = 0, i = 0; cell < size; cell++) {
+			int count = 0;
+			for (int end = i + degree; i < end; i++) count += cells[neighbours[i]] & MINE;
+			cells[cell] |= (count >> 2) << COUNT_SHIFT;
+		}
+	}
+
+	public int getSurroundingMines(int index) {
+		return cells[index] >> COUNT_SHIFT;
+	}
+
+	public byte getState(int index) {
+		return (byte)(cells[index] & STATE);
+	}
+
+	public void setState(int index, byte state) {
+		cells[index] = (byte)((cells[index] & ~STATE) | state);
+	}
+
+	public boolean openArea(int index, Delta.Builder move) {
+		return false;
+	}
+
+	public boolean openClaimed(ParallelReveal reveal, Delta.Builder move) {
+		return false;
+	}
+
+	public void moveFinished() {}
+
+	public int[] getMineCells() {
+		int count = 0;
+		for (int i = 0; i < size; i++) if ((cells[i] & MINE) != 0) count++;
+		int mineCells[] = new int[count];
+		for (int i = 0, found = 0; found < count; i++) if ((cells[i] & MINE) != 0) mineCells[found++] = i;
+		return mineCells;
+	}
+}
\ No newline at end of file
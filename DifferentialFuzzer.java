@@ -0,0 +1,269 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A DifferentialFuzzer object plays random games on every engine of a Board and on a ReferenceField with the same mines, and checks
+ * after every move that they agree on the number of opened cells, the number of flags left, the result of checkTiles and the status
+ * of the game, and on the state and the number shown of every cell any engine changed in that move; every cell is compared once the
+ * moves are over. Moves are opens and flags of random cells, and an undo followed by a redo, which the reference doesn't have and
+ * which must change nothing. Every case is derived from its own seed, so it can be played again, and the cases are spread over
+ * several threads.
+ * <p>
+ * The fuzzed boards are small enough for their openings to be labelled, so every storage is also played without labels, which is
+ * the only way the flood fills of the storages are reached on such boards: the bit-parallel dilation of a BitboardStorage, the stack
+ * of a SparseStorage and the neighbour table of a DenseStorage. One more engine of every storage hands every area of more than a few
+ * cells to a ParallelReveal, and main gives the common pool several threads if it wasn't configured, so the parallel reveal runs
+ * even on a single core.
+ * <pre>
+ * java minesweeper.DifferentialFuzzer [cases] [threads] [seed]
+ * </pre>
+ * When a case diverges, its moves are shrunk to a smallest sequence which still diverges, by removing ever smaller groups of moves
+ * while the divergence remains, and the case is printed with the first difference. The exit status is 1 if a case diverged. A single
+ * case can be played again by running one case on one thread with the seed of the case.
+ * @author Nikola Stankovic
+ */
+public class DifferentialFuzzer {
+	private static final String ENGINES[] = {"dense", "bitboard", "sparse", "dense unlabelled", "bitboard unlabelled", "sparse unlabelled",
+			"dense parallel", "bitboard parallel", "sparse parallel"};
+	private static final int PARALLEL_THRESHOLD = 8;
+	private static final String PARALLELISM = "java.util.concurrent.ForkJoinPool.common.parallelism";
+	private static final int OPEN = 0, FLAG = 1, UNDO_REDO = 2;
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	private long cases, seed;
+	private AtomicLong next, steps;
+	private AtomicReference<String> failure;
+
+	/**
+	 * Creates a DifferentialFuzzer object.
+	 * @param cases Number of cases to play.
+	 * @param seed Seed the seeds of the cases are derived from.
+	 */
+	public DifferentialFuzzer(long cases, long seed) {
+		this.cases = cases;
+		this.seed = seed;
+		this.next = new AtomicLong();
+		this.steps = new AtomicLong();
+		this.failure = new AtomicReference<String>();
+	}
+
+	/**
+	 * Plays the cases on the given number of threads until all of them are played or one diverges.
+	 * @param threads Number of threads.
+	 * @return a description of the shrunk divergent case, or null if all cases agreed.
+	 * @throws InterruptedException
+	 */
+	public String run(int threads) throws InterruptedException {
+		Thread workers[] = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			/* The reference opens cells recursively, so the workers get a stack deep enough for the largest openings. */
+			workers[i] = new Thread(null, new Runnable() {
+				public void run() {
+					for (long i = next.getAndIncrement(); i < cases && failure.get() == null; i = next.getAndIncrement()) {
+						String result = play(seed ^ i * GAMMA);
+						if (result != null) failure.compareAndSet(null, result);
+					}
+				}
+			}, "minesweeper-fuzzer-" + i, 1 << 26);
+			workers[i].start();
+		}
+		for (Thread worker : workers) worker.join();
+		return failure.get();
+	}
+
+	/**
+	 * Returns the number of moves played and checked so far.
+	 * @return number of moves.
+	 */
+	public long getSteps() {
+		return steps.get();
+	}
+
+	/**
+	 * Plays a single case and shrinks it if it diverges.
+	 * @param caseSeed The seed of the case.
+	 * @return a description of the shrunk case, or null if it agreed.
+	 */
+	private String play(long caseSeed) {
+		SplittableRandom random = new SplittableRandom(caseSeed);
+
+		/* Most boards are small, some are wide enough to span several words of a bitboard. */
+		boolean large = random.nextInt(10) == 0;
+		int rows = 1 + random.nextInt(large ? 40 : 16), columns = 1 + random.nextInt(large ? 80 : 30), size = rows * columns;
+		double density = random.nextDouble() * random.nextDouble() * 0.4;
+		int mines = Math.min(size - 1, (int)(size * density));
+		long boardSeed = random.nextLong();
+
+		int moves[][] = new int[1 + random.nextInt(60)][];
+		for (int i = 0; i < moves.length; i++) {
+			int roll = random.nextInt(10);
+			moves[i] = new int[] {roll < 6 ? OPEN : roll < 9 ? FLAG : UNDO_REDO, random.nextInt(rows), random.nextInt(columns)};
+		}
+
+		if (check(rows, columns, mines, boardSeed, moves, true) == null) return null;
+		moves = shrink(rows, columns, mines, boardSeed, moves);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("Case ").append(caseSeed).append(": ").append(rows).append('x').append(columns).append(" with ").append(mines);
+		sb.append(" mines, board seed ").append(boardSeed).append('\n');
+		for (int move[] : moves) {
+			sb.append("  ").append(move[0] == OPEN ? "OPEN " : move[0] == FLAG ? "FLAG " : "UNDO+REDO ");
+			if (move[0] != UNDO_REDO) sb.append(move[1]).append(' ').append(move[2]);
+			sb.append('\n');
+		}
+		sb.append(check(rows, columns, mines, boardSeed, moves, false));
+		return sb.toString();
+	}
+
+	/**
+	 * Removes groups of moves, halving the size of the groups whenever no group can be removed, for as long as the case diverges.
+	 * @return the smallest sequence of moves found which still diverges.
+	 */
+	private int[][] shrink(int rows, int columns, int mines, long boardSeed, int moves[][]) {
+		int chunk = Math.max(1, moves.length / 2);
+		while (true) {
+			boolean removed = false;
+			for (int start = 0; start < moves.length; ) {
+				int end = Math.min(moves.length, start + chunk);
+				int candidate[][] = new int[moves.length - (end - start)][];
+				System.arraycopy(moves, 0, candidate, 0, start);
+				System.arraycopy(moves, end, candidate, start, moves.length - end);
+				if (check(rows, columns, mines, boardSeed, candidate, false) != null) {
+					moves = candidate;
+					removed = true;
+				}
+				else start = end;
+			}
+			if (chunk == 1 && !removed) return moves;
+			if (!removed) chunk /= 2;
+		}
+	}
+
+	/**
+	 * Plays a sequence of moves on every engine and on the reference, and compares them after every move. The cells are only
+	 * compared where an engine recorded a change, since the counters catch a cell changed without being recorded, and all of them
+	 * after the last move.
+	 * @param count true if the moves are counted as played steps.
+	 * @return the first difference, or null if they agreed.
+	 */
+	private String check(int rows, int columns, int mines, long boardSeed, int moves[][], boolean count) {
+		Board boards[] = new Board[ENGINES.length];
+		for (int e = 0; e < ENGINES.length; e++) boards[e] = createBoard(ENGINES[e], rows, columns, mines, boardSeed);
+		int mineCells[] = boards[0].getMineCells();
+		ReferenceField reference = new ReferenceField(rows, columns, mineCells);
+
+		for (int e = 1; e < ENGINES.length; e++) {
+			if (!Arrays.equals(mineCells, boards[e].getMineCells())) return "Mines of " + ENGINES[e] + " differ from " + ENGINES[0] + ".";
+		}
+		int changed[] = new int[rows * columns];
+		boolean marked[] = new boolean[rows * columns];
+		for (int step = 0; step <= moves.length; step++) {
+			int size = 0;
+			if (step > 0) {
+				int move[] = moves[step - 1];
+				if (move[0] == OPEN) reference.open(move[1], move[2]);
+				else if (move[0] == FLAG) reference.flag(move[1], move[2]);
+				for (Board board : boards) {
+					Delta delta;
+					if (move[0] == OPEN) delta = board.open(move[1], move[2]);
+					else if (move[0] == FLAG) delta = board.flag(move[1], move[2]);
+					else if ((delta = board.undo()) != null) board.redo();
+					for (int r = 0; delta != null && r < delta.getRuns(); r++) {
+						for (int i = delta.getStart(r); i < delta.getStart(r) + delta.getLength(r); i++) {
+							if (!marked[i]) changed[size++] = i;
+							marked[i] = true;
+						}
+					}
+				}
+				for (int i = 0; i < size; i++) marked[changed[i]] = false;
+				if (count) steps.incrementAndGet();
+			}
+
+			/* The counters of the reference scan the whole field, so they are taken once for all engines. */
+			boolean last = step == moves.length || reference.getStatus() != Status.PLAYING;
+			boolean checkTiles = reference.checkTiles();
+			int opened = reference.getOpened();
+			for (int e = 0; e < ENGINES.length; e++) {
+				String difference = compare(reference, checkTiles, opened, boards[e], last ? null : changed, size);
+				if (difference != null) return "After move " + step + ", " + ENGINES[e] + ": " + difference;
+			}
+			if (last) break;
+		}
+		return null;
+	}
+
+	/**
+	 * Compares a board with the reference.
+	 * @param checkTiles The result of checkTiles of the reference.
+	 * @param opened The number of cells opened on the reference.
+	 * @param cells Row-major indices of the cells to compare, or null to compare all of them.
+	 * @param size Number of cells to compare.
+	 * @return the first difference, or null if they agree.
+	 */
+	private static String compare(ReferenceField reference, boolean checkTiles, int opened, Board board, int cells[], int size) {
+		if (reference.getStatus() != board.getStatus()) return "status " + board.getStatus() + ", expected " + reference.getStatus() + ".";
+		if (reference.getFlags() != board.getFlags()) return "flags " + board.getFlags() + ", expected " + reference.getFlags() + ".";
+		if (checkTiles != board.checkTiles()) return "checkTiles " + board.checkTiles() + ", expected " + checkTiles + ".";
+		if (opened != board.getOpened()) return "opened cells " + board.getOpened() + ", expected " + opened + ".";
+		int columns = board.getColumns();
+		if (cells == null) size = board.getRows() * columns;
+		for (int i = 0; i < size; i++) {
+			int cell = cells == null ? i : cells[i], x = cell / columns, y = cell % columns;
+			byte state = board.getState(x, y);
+			byte expected = reference.isOpened(x, y) ? Delta.OPENED : reference.hasFlag(x, y) ? Delta.FLAGGED : Delta.CLOSED;
+			if (state != expected) return "cell " + x + "," + y + " in state " + state + ", expected " + expected + ".";
+			if (state == Delta.OPENED && board.getSurroundingMines(x, y) != reference.getText(x, y)) {
+				return "cell " + x + "," + y + " shows " + board.getSurroundingMines(x, y) + ", expected " + reference.getText(x, y) + ".";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the board of an engine, named after its storage, and then whether its openings aren't labelled or its areas are opened
+	 * in parallel.
+	 */
+	private static Board createBoard(String engine, int rows, int columns, int mines, long boardSeed) {
+		CellStorage storage;
+		if (engine.startsWith("bitboard")) storage = new BitboardStorage(rows, columns);
+		else if (engine.startsWith("sparse")) storage = new SparseStorage(rows, columns, mines);
+		else storage = new DenseStorage(rows, columns);
+		Board board = new Board(storage, mines, boardSeed, !engine.contains(" "));
+		if (engine.endsWith("parallel")) board.setParallelThreshold(PARALLEL_THRESHOLD);
+		return board;
+	}
+
+	/**
+	 * Runs the fuzzer. The optional arguments are the number of cases, the number of threads and the seed.
+	 * @param args Arguments for the main function.
+	 * @throws InterruptedException
+	 */
+	public static void main(String args[]) throws InterruptedException {
+		/* Board only reveals in parallel when the common pool has more than one thread, and a BitboardStorage only hands its areas over
+		 * with BULK_PARALLELISM threads, so the pool gets that many even on a single core. */
+		if (System.getProperty(PARALLELISM) == null) System.setProperty(PARALLELISM, Integer.toString(ParallelReveal.BULK_PARALLELISM));
+		long cases = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+
+		System.out.println("Fuzzing " + cases + " cases on " + threads + " threads with seed " + seed + " and engines " + Arrays.toString(ENGINES) + ".");
+		if (ForkJoinPool.getCommonPoolParallelism() < 2) System.out.println("The common pool has a single thread, so the parallel engines reveal sequentially.");
+		else if (ForkJoinPool.getCommonPoolParallelism() < ParallelReveal.BULK_PARALLELISM) {
+			System.out.println("The common pool has fewer than " + ParallelReveal.BULK_PARALLELISM + " threads, so bitboard parallel opens its areas in bulk.");
+		}
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(cases, seed);
+		long start = System.nanoTime();
+		String failure = fuzzer.run(threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d moves checked in %.1f s.%n", fuzzer.getSteps(), seconds);
+		if (failure != null) System.out.println("Divergence found, shrunk to:\n" + failure);
+		else System.out.println("All cases agreed.");
+		System.exit(failure != null ? 1 : 0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,382 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * An EndlessBoard object is a minefield without borders. It is split into chunks which are generated from the world seed the first
+ * time they are needed, and only the most recently used chunks are kept in memory. When a chunk changed by the player is evicted,
+ * its cell states are written to a ChunkFile and read back the next time the chunk is needed. A spilled chunk which can't be read back
+ * is never generated again in its place, since the next eviction would overwrite the player's progress with it; the call which needed
+ * it fails with an UncheckedIOException instead, and the chunk is read again the next time it is needed. The game can't be won; it
+ * goes on until a mine is opened, and the score is the number of opened cells.
+ * <p>
+ * Opening an empty area floods at most a limited number of cells at a time. The cells the flood hasn't reached yet are kept as its
+ * frontier and opened by continueFlood, so that an opening interrupted by the limit or by an unreadable chunk is always completed.
+ * @author Nikola Stankovic
+ */
+public class EndlessBoard {
+	/** Default probability of a cell having a mine. */
+	public static final double DENSITY = 0.15;
+	/** Default number of chunks kept in memory. */
+	public static final int CAPACITY = 512;
+	/** Default maximum number of cells opened at a time, so that a move always ends even in an unusually large empty area. */
+	public static final int MAX_FLOOD = 1 << 18;
+
+	private long seed;
+	private double density;
+	private int capacity;
+	private LinkedHashMap<Long, Chunk> chunks;
+	private ChunkFile spill;
+	private Status status;
+	private long opened;
+	private int flags;
+	private int lostX, lostY;
+	private long frontier[];				// Packed positions the flood still has to visit.
+	private int pending, floodLimit;
+
+	/**
+	 * Creates an EndlessBoard object with the default density and cache capacity, which spills chunks to a temporary file.
+	 * @param seed The seed of the world.
+	 * @throws IOException
+	 */
+	public EndlessBoard(long seed) throws IOException {
+		this(seed, DENSITY, CAPACITY, ChunkFile.createTemporary());
+	}
+
+	/**
+	 * Creates an EndlessBoard object.
+	 * @param seed The seed of the world.
+	 * @param density Probability of a cell having a mine.
+	 * @param capacity Number of chunks kept in memory.
+	 * @param spill The file evicted chunks are written to.
+	 */
+	public EndlessBoard(long seed, double density, int capacity, ChunkFile spill) {
+		if (density < 0 || density >= 1 || capacity < 9) throw new IllegalArgumentException("Invalid endless board.");
+		this.seed = seed;
+		this.density = density;
+		this.capacity = capacity;
+		this.spill = spill;
+		this.status = Status.PLAYING;
+		this.chunks = new LinkedHashMap<Long, Chunk>(capacity * 2, 0.75f, true);
+		this.frontier = new long[64];
+		this.floodLimit = MAX_FLOOD;
+	}
+
+	/**
+	 * Sets the maximum number of cells opened at a time, so that checks can interrupt floods without huge empty areas.
+	 * @param limit Maximum number of cells opened by a move or by continueFlood.
+	 */
+	void setFloodLimit(int limit) {
+		this.floodLimit = limit;
+	}
+
+	/**
+	 * Returns the seed of the world.
+	 * @return seed of the world.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the status of the game.
+	 * @return Status.PLAYING while the game goes on, Status.LOST once a mine was opened.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the number of cells opened so far, which is the score of the game.
+	 * @return number of opened cells.
+	 */
+	public long getOpened() {
+		return opened;
+	}
+
+	/**
+	 * Returns the number of placed flags.
+	 * @return number of placed flags.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Returns the row of the mine which ended the game.
+	 * @return row of the opened mine.
+	 */
+	public int getLostX() {
+		return lostX;
+	}
+
+	/**
+	 * Returns the column of the mine which ended the game.
+	 * @return column of the opened mine.
+	 */
+	public int getLostY() {
+		return lostY;
+	}
+
+	/**
+	 * Returns the number of chunks currently kept in memory.
+	 * @return number of loaded chunks.
+	 */
+	public int getLoadedChunks() {
+		return chunks.size();
+	}
+
+	/**
+	 * Returns the number of chunks which were written to the chunk file.
+	 * @return number of spilled chunks.
+	 */
+	public int getSpilledChunks() {
+		return spill.getChunks();
+	}
+
+	/**
+	 * Returns the state of the cell at row x and column y.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public byte getState(int x, int y) {
+		return chunk(x, y).getState(cell(x, y));
+	}
+
+	/**
+	 * Checks if the cell at row x and column y has a mine.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return true if a mine is present, false otherwise.
+	 */
+	public boolean hasMine(int x, int y) {
+		return chunk(x, y).hasMine(cell(x, y));
+	}
+
+	/**
+	 * Returns the number of mines surrounding the cell at row x and column y.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return number of surrounding mines.
+	 */
+	public int getSurroundingMines(int x, int y) {
+		return chunk(x, y).getSurroundingMines(cell(x, y));
+	}
+
+	/**
+	 * Opens the cell at row x and column y. Opening a mine ends the game, and opening a cell without surrounding mines opens the
+	 * area around it, across as many chunks as needed. If the flood reaches the limit of cells opened at a time, or a chunk which
+	 * can't be read from the chunk file, the move stops there; the cells it opened so far stay opened and counted, and the rest of
+	 * the area is opened by continueFlood.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return number of cells opened by the move.
+	 * @throws UncheckedIOException if a chunk the move reaches can't be read from the chunk file.
+	 */
+	public int open(int x, int y) {
+		if (status != Status.PLAYING || getState(x, y) != Delta.CLOSED) return 0;
+		if (hasMine(x, y)) {
+			lostX = x;
+			lostY = y;
+			status = Status.LOST;
+			return 0;
+		}
+
+		push(pack(x, y));
+		return flood();
+	}
+
+	/**
+	 * Checks if an opening was interrupted and still has cells to open.
+	 * @return true if continueFlood has cells to open, false otherwise.
+	 */
+	public boolean isFlooding() {
+		return pending > 0 && status == Status.PLAYING;
+	}
+
+	/**
+	 * Continues an interrupted opening, opening at most as many cells as a single move.
+	 * @return number of cells opened.
+	 * @throws UncheckedIOException if a chunk the flood reaches can't be read from the chunk file.
+	 */
+	public int continueFlood() {
+		return status == Status.PLAYING ? flood() : 0;
+	}
+
+	/**
+	 * Opens cells from the frontier until it is empty or the limit is reached. A position is taken off the frontier only once its
+	 * chunk was read, so a chunk which can't be read is tried again by the next call.
+	 */
+	private int flood() {
+		int count = 0;
+		while (pending > 0 && count < floodLimit) {
+			long position = frontier[pending - 1];
+			int cx = (int)(position >> 32), cy = (int)position;
+			Chunk chunk = chunk(cx, cy);
+			int cell = cell(cx, cy);
+			pending--;
+			if (chunk.getState(cell) != Delta.CLOSED || chunk.hasMine(cell)) continue;
+			chunk.setState(cell, Delta.OPENED);
+			count++;
+			opened++;
+			if (chunk.getSurroundingMines(cell) != 0) continue;
+
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					if (dx != 0 || dy != 0) push(pack(cx + dx, cy + dy));
+				}
+			}
+		}
+		if (pending == 0 && frontier.length > 64) frontier = new long[64];
+		return count;
+	}
+
+	/**
+	 * Adds a position to the frontier of the flood.
+	 */
+	private void push(long position) {
+		if (pending == frontier.length) frontier = Arrays.copyOf(frontier, pending * 2);
+		frontier[pending++] = position;
+	}
+
+	/**
+	 * Places a flag on the cell at row x and column y, or removes it if the cell is already flagged. Flags are unlimited.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @return true if the state of the cell changed, false otherwise.
+	 */
+	public boolean flag(int x, int y) {
+		if (status != Status.PLAYING) return false;
+		Chunk chunk = chunk(x, y);
+		int cell = cell(x, y);
+		byte state = chunk.getState(cell);
+		if (state == Delta.OPENED) return false;
+		chunk.setState(cell, state == Delta.FLAGGED ? Delta.CLOSED : Delta.FLAGGED);
+		flags += state == Delta.FLAGGED ? -1 : 1;
+		return true;
+	}
+
+	/**
+	 * Releases the chunks and deletes the chunk file.
+	 */
+	public void close() {
+		pending = 0;
+		chunks.clear();
+		spill.close();
+	}
+
+	/**
+	 * Returns the chunk containing the cell at row x and column y, generating it or reading it from the chunk file if it isn't in
+	 * memory, and evicting the least recently used chunk if too many chunks are loaded.
+	 * @throws UncheckedIOException if the chunk was spilled and can't be read back. The chunk isn't cached, so it is read again later.
+	 */
+	private Chunk chunk(int x, int y) {
+		int chunkX = Math.floorDiv(x, Chunk.SIZE), chunkY = Math.floorDiv(y, Chunk.SIZE);
+		long key = pack(chunkX, chunkY);
+		Chunk chunk = chunks.get(key);
+		if (chunk != null) return chunk;
+
+		chunk = new Chunk(seed, density, chunkX, chunkY);
+		try {
+			spill.read(key, chunk);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Chunk " + chunkX + "," + chunkY + " can't be read.", e);
+		}
+		chunks.put(key, chunk);
+		evict();
+		return chunk;
+	}
+
+	/**
+	 * Evicts the least recently used chunks until the cache fits its capacity. Modified chunks are written to the chunk file first;
+	 * a chunk which can't be written stays in memory, so that the player's progress is never lost.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Long, Chunk>> iterator = chunks.entrySet().iterator();
+		int excess = chunks.size() - capacity;
+		while (excess > 0 && iterator.hasNext()) {
+			Map.Entry<Long, Chunk> eldest = iterator.next();
+			if (eldest.getValue().isModified()) {
+				try {
+					spill.write(eldest.getKey(), eldest.getValue());
+				} catch (IOException e) {
+					continue;
+				}
+			}
+			iterator.remove();
+			excess--;
+		}
+	}
+
+	/**
+	 * Returns the row-major index of a cell inside its chunk.
+	 */
+	private static int cell(int x, int y) {
+		return Math.floorMod(x, Chunk.SIZE) * Chunk.SIZE + Math.floorMod(y, Chunk.SIZE);
+	}
+
+	/**
+	 * Packs two coordinates into a single key.
+	 */
+	private static long pack(int x, int y) {
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Checks that interrupted openings are completed. Random cells around the origin of a sparse world are opened with a low flood
+	 * limit and a small cache, often before the previous opening is finished, and flags are placed on the mines. Once the floods
+	 * are continued to their end, no opened cell without surrounding mines may have a closed neighbour. The optional arguments are
+	 * the number of moves, the flood limit and the seed.
+	 * @param args Arguments for the main function.
+	 * @throws IOException
+	 */
+	public static void main(String args[]) throws IOException {
+		int moves = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int limit = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		int radius = 8 * Chunk.SIZE, checked = 4 * radius / Chunk.SIZE;
+
+		EndlessBoard board = new EndlessBoard(seed, 0.12, 16, ChunkFile.createTemporary());
+		board.setFloodLimit(limit);
+		SplittableRandom random = new SplittableRandom(seed);
+		int interrupted = 0;
+		for (int i = 0; i < moves; i++) {
+			int x = random.nextInt(-radius, radius), y = random.nextInt(-radius, radius);
+			if (!board.hasMine(x, y)) board.open(x, y);
+			else if (board.getState(x, y) == Delta.CLOSED) board.flag(x, y);
+			if (board.isFlooding()) interrupted++;
+			if (random.nextBoolean()) board.continueFlood();
+		}
+		while (board.isFlooding()) board.continueFlood();
+
+		long violations = 0;
+		for (int chunkX = -checked; chunkX < checked; chunkX++) {
+			for (int chunkY = -checked; chunkY < checked; chunkY++) {
+				for (int x = chunkX * Chunk.SIZE; x < (chunkX + 1) * Chunk.SIZE; x++) {
+					for (int y = chunkY * Chunk.SIZE; y < (chunkY + 1) * Chunk.SIZE; y++) {
+						if (board.getState(x, y) != Delta.OPENED || board.getSurroundingMines(x, y) != 0) continue;
+						for (int dx = -1; dx <= 1; dx++) {
+							for (int dy = -1; dy <= 1; dy++) {
+								if (board.getState(x + dx, y + dy) == Delta.CLOSED) violations++;
+							}
+						}
+					}
+				}
+			}
+		}
+		System.out.println(board.getOpened() + " cells opened by " + moves + " moves, " + interrupted + " of which left the opening "
+				+ "unfinished; " + board.getSpilledChunks() + " chunks spilled.");
+		System.out.println(violations + " closed neighbours of opened cells without surrounding mines.");
+		board.close();
+		boolean passed = violations == 0 && interrupted > 0;
+		System.out.println(passed ? "Passed." : "Failed.");
+		System.exit(passed ? 0 : 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+
+/**
+ * An EndlessGame object is a Frame used to play the endless mode, where the minefield has no borders. It displays the score, which is
+ * the number of opened cells, the number of placed flags and a view into the world.
+ * @author Nikola Stankovic
+ */
+public class EndlessGame extends Frame {
+	private static final long serialVersionUID = 1L;
+	private int width = 600, height = 600;
+
+	private EndlessBoard board;
+	private EndlessView view;
+	private Label scoreLabel, flagsLabel;
+
+	/**
+	 * Creates an EndlessGame object with a new world and displays it.
+	 * @throws IOException
+	 */
+	public EndlessGame() throws IOException {
+		super("Minesweeper - Endless");
+		this.setBackground(new Color(41, 41, 61));
+		int startX = ((int)Toolkit.getDefaultToolkit().getScreenSize().getWidth() - width) / 2;
+		int startY = ((int)Toolkit.getDefaultToolkit().getScreenSize().getHeight() - height) / 2;
+		setBounds(startX, startY, width, height);
+
+		this.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				board.close();
+				dispose();
+			}
+		});
+
+		this.setLayout(new BorderLayout());
+		Panel top = new Panel(new GridLayout(2, 2));
+		Label l1 = new Label("Score:", Label.CENTER), l2 = new Label("Flags:", Label.CENTER);
+		scoreLabel = new Label("0", Label.CENTER);
+		flagsLabel = new Label("0", Label.CENTER);
+		for (Label label : new Label[] {l1, l2}) {
+			label.setForeground(new Color(179, 179, 204)); label.setFont(new Font("Monospaced", Font.BOLD, 15));
+		}
+		for (Label label : new Label[] {scoreLabel, flagsLabel}) {
+			label.setForeground(new Color(230, 195, 0)); label.setFont(new Font("Monospaced", Font.BOLD, 15));
+		}
+		top.add(l1); top.add(l2); top.add(scoreLabel); top.add(flagsLabel);
+		this.add(top, BorderLayout.NORTH);
+
+		MenuBar mb = new MenuBar();
+		Menu gameM = new Menu("Game");
+		MenuItem newM = new MenuItem("New world");
+		newM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				try {
+					newWorld();
+				} catch (IOException ex) {
+					displayError("A new world can't be created: " + ex.getMessage());
+				}
+			}
+		});
+		gameM.add(newM);
+		MenuItem centerM = new MenuItem("Back to start");
+		centerM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				view.centerOn(0, 0);
+			}
+		});
+		gameM.add(centerM);
+		mb.add(gameM);
+		this.setMenuBar(mb);
+
+		newWorld();
+		setVisible(true);
+		view.centerOn(0, 0);
+	}
+
+	/**
+	 * Replaces the current world with a new one. The cells around the origin of every world are safe, so the first move can always
+	 * be made there.
+	 * @throws IOException
+	 */
+	private void newWorld() throws IOException {
+		EndlessBoard next = new EndlessBoard(System.nanoTime());
+		if (board != null) board.close();
+		board = next;
+		if (view != null) this.remove(view);
+		view = new EndlessView(board, new Runnable() {
+			public void run() {
+				displayScore();
+			}
+		}, new Runnable() {
+			public void run() {
+				displayError("The saved part of the world can't be read, so the move was stopped. Your progress is kept on disk.");
+			}
+		});
+		this.add(view, BorderLayout.CENTER);
+		displayScore();
+		this.validate();
+		view.centerOn(0, 0);
+	}
+
+	/**
+	 * Displays a modal Dialog which reports a failure of the chunk file, and waits until it is closed.
+	 * @param message The message.
+	 */
+	private void displayError(String message) {
+		final Dialog dialog = new Dialog(this, "Endless mode", true);
+		dialog.setBackground(new Color(41, 41, 61));
+		Label label = new Label(message, Label.CENTER);
+		label.setForeground(new Color(179, 179, 204));
+		dialog.add(label);
+		dialog.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				dialog.dispose();
+			}
+		});
+		dialog.pack();
+		dialog.setLocationRelativeTo(this);
+		dialog.setVisible(true);
+	}
+
+	/**
+	 * Displays the score and the number of flags, and reports the end of the game once a mine was opened.
+	 */
+	private void displayScore() {
+		scoreLabel.setText("" + board.getOpened());
+		flagsLabel.setText("" + board.getFlags());
+		if (board.getStatus() == Status.LOST) scoreLabel.setText(board.getOpened() + " (lost)");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.UncheckedIOException;
+
+/**
+ * An EndlessView object is a Canvas which displays the visible part of an endless minefield. A fixed grid of tiles can't represent a
+ * board without borders, so the view paints only the cells inside its window into the world, which can be moved by dragging with
+ * the mouse or with the arrow keys. Left click opens a cell and right click places or removes a flag. An opening larger than the
+ * board opens at a time is continued in later events of the event dispatch thread, so the view is repainted between its parts.
+ * @author Nikola Stankovic
+ */
+public class EndlessView extends Canvas {
+	private static final long serialVersionUID = 1L;
+	private static final int TILE = 25;
+	private static final int DRAG_THRESHOLD = 4;
+
+	private EndlessBoard board;
+	private Runnable onMove, onFailure;
+	private long viewX, viewY;				// World coordinates in pixels of the top left corner of the view.
+	private int pressX, pressY;
+	private long pressViewX, pressViewY;
+	private boolean dragging, continuing;
+	private Runnable flood;
+	private Image buffer;
+	private SpriteAtlas atlas;
+
+	/**
+	 * Creates an EndlessView object centred on the origin of the world.
+	 * @param board The board being displayed.
+	 * @param onMove Called on the event dispatch thread after every move, so that the frame can display the score.
+	 * @param onFailure Called on the event dispatch thread when a move fails because the chunk file can't be read.
+	 */
+	public EndlessView(EndlessBoard board, Runnable onMove, Runnable onFailure) {
+		this.board = board;
+		this.onMove = onMove;
+		this.onFailure = onFailure;
+		this.atlas = SpriteAtlas.forSize(TILE);
+		this.setBackground(new Color(41, 41, 61));
+
+		this.flood = new Runnable() {
+			public void run() {
+				continuing = false;
+				if (!EndlessView.this.board.isFlooding()) return;
+				try {
+					EndlessView.this.board.continueFlood();
+				} catch (UncheckedIOException e) {
+					EndlessView.this.onFailure.run();
+					return;
+				}
+				repaint();
+				EndlessView.this.onMove.run();
+				continueFlood();
+			}
+		};
+
+		MouseAdapter mouse = new MouseAdapter() {
+			public void mousePressed(MouseEvent e) {
+				pressX = e.getX();
+				pressY = e.getY();
+				pressViewX = viewX;
+				pressViewY = viewY;
+				dragging = false;
+				requestFocus();
+			}
+
+			public void mouseDragged(MouseEvent e) {
+				if (Math.abs(e.getX() - pressX) + Math.abs(e.getY() - pressY) > DRAG_THRESHOLD) dragging = true;
+				if (!dragging) return;
+				viewX = pressViewX - (e.getY() - pressY);
+				viewY = pressViewY - (e.getX() - pressX);
+				repaint();
+			}
+
+			public void mouseReleased(MouseEvent e) {
+				if (dragging) return;
+				int x = (int)Math.floorDiv(viewX + e.getY(), TILE), y = (int)Math.floorDiv(viewY + e.getX(), TILE);
+				try {
+					if (e.getButton() == MouseEvent.BUTTON1) board.open(x, y);
+					else if (e.getButton() == MouseEvent.BUTTON3) board.flag(x, y);
+					else return;
+				} catch (UncheckedIOException ex) {
+					EndlessView.this.onFailure.run();
+				}
+				repaint();
+				EndlessView.this.onMove.run();
+				continueFlood();
+			}
+		};
+		this.addMouseListener(mouse);
+		this.addMouseMotionListener(mouse);
+
+		this.addKeyListener(new KeyAdapter() {
+			public void keyPressed(KeyEvent e) {
+				switch (e.getKeyCode()) {
+					case KeyEvent.VK_UP: viewX -= TILE; break;
+					case KeyEvent.VK_DOWN: viewX += TILE; break;
+					case KeyEvent.VK_LEFT: viewY -= TILE; break;
+					case KeyEvent.VK_RIGHT: viewY += TILE; break;
+					default: return;
+				}
+				repaint();
+			}
+		});
+	}
+
+	/**
+	 * Centres the view on a cell.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 */
+	public void centerOn(int x, int y) {
+		viewX = (long)x * TILE + TILE / 2 - getHeight() / 2;
+		viewY = (long)y * TILE + TILE / 2 - getWidth() / 2;
+		repaint();
+	}
+
+	/**
+	 * Schedules the next part of an unfinished opening, unless it is already scheduled. After a failure, the opening is continued
+	 * once the player makes the next move.
+	 */
+	private void continueFlood() {
+		if (continuing || !board.isFlooding()) return;
+		continuing = true;
+		EventQueue.invokeLater(flood);
+	}
+
+	/**
+	 * Paints without clearing first, since every pixel of the view is painted anyway.
+	 */
+	@Override
+	public void update(Graphics g) {
+		paint(g);
+	}
+
+	/**
+	 * Paints the visible cells into an offscreen image by copying their sprites from the atlas, and then copies the image onto the
+	 * view, so that scrolling doesn't flicker. Cells of a chunk which can't be read from the chunk file are left blank.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		int width = getWidth(), height = getHeight();
+		if (width <= 0 || height <= 0) return;
+		if (buffer == null || buffer.getWidth(null) != width || buffer.getHeight(null) != height) buffer = createImage(width, height);
+
+		Graphics g2 = buffer.getGraphics();
+		g2.setColor(getBackground());
+		g2.fillRect(0, 0, width, height);
+
+		int firstX = (int)Math.floorDiv(viewX, TILE), firstY = (int)Math.floorDiv(viewY, TILE);
+		int offsetX = Math.floorMod(viewX, TILE), offsetY = Math.floorMod(viewY, TILE);
+		boolean lost = board.getStatus() == Status.LOST;
+		for (int row = 0; row * TILE - offsetX < height; row++) {
+			for (int column = 0; column * TILE - offsetY < width; column++) {
+				int x = firstX + row, y = firstY + column;
+				try {
+					byte state = board.getState(x, y);
+					int sprite = SpriteAtlas.sprite(state, state == Delta.OPENED ? board.getSurroundingMines(x, y) : 0);
+					if (lost && board.hasMine(x, y) && state != Delta.FLAGGED) sprite = SpriteAtlas.MINE;
+					if (lost && x == board.getLostX() && y == board.getLostY()) sprite = SpriteAtlas.EXPLODED;
+					atlas.draw(g2, sprite, column * TILE - offsetY, row * TILE - offsetX);
+				} catch (UncheckedIOException e) {}
+			}
+		}
+		g2.dispose();
+		g.drawImage(buffer, 0, 0, null);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+package minesweeper;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An EventBus object turns the snapshots of a GameEngine into typed game events - a game started, a cell revealed or closed again,
+ * a flag placed or removed, a tick of the timer, a game won or lost - and delivers them to any number of listeners, such as a
+ * renderer, a replay recorder, metrics or the network. Every snapshot is the batch of events of one command, and the engine's thread
+ * only stores it in a ring buffer and moves the cursor forward, two ordered writes which take the same time no matter how many
+ * listeners there are or how slow they are. Every listener has its own thread, which follows the cursor, turns the batches into
+ * events and calls the listener, so a listener never waits for another.
+ * <p>
+ * The engine never waits for a listener either. A listener which falls behind by a whole ring is told how many batches it lost and
+ * continues with the latest one; the snapshot passed at the end of every batch holds the counters of the whole game, so it can catch
+ * up from there. A listener which throws an exception is reported and skips the rest of that batch, but stays subscribed.
+ * <p>
+ * The game doesn't create a bus itself, since its own listeners are registered with the engine directly; a bus is created for
+ * components which want typed events on threads of their own.
+ * <pre>
+ * java minesweeper.EventBus [moves] [listeners]
+ * </pre>
+ * The main function plays random moves on an engine, first without a bus and then with the given number of listeners, half of which
+ * take a millisecond for every batch, and prints the processor time the engine's thread spent on a move in both runs. The moves come
+ * in bursts of 64, so the other listeners keep up and receive every batch, while the slow ones lose most of them.
+ * @author Nikola Stankovic
+ */
+public class EventBus implements GameEngine.Listener {
+	private static final int SPINS = 100;
+	private static final long MAX_PARK = 1000000L;
+
+	private AtomicReferenceArray<Snapshot> ring;
+	private int mask;
+	private AtomicLong cursor;
+	private CopyOnWriteArrayList<Consumer> consumers;
+
+	/**
+	 * Creates an EventBus object and subscribes it to an engine.
+	 * @param engine The engine whose snapshots are delivered.
+	 * @param capacity Number of batches a listener can fall behind before it loses some, rounded up to a power of two.
+	 */
+	public EventBus(GameEngine engine, int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		this.ring = new AtomicReferenceArray<Snapshot>(size);
+		this.mask = size - 1;
+		this.cursor = new AtomicLong(-1);
+		this.consumers = new CopyOnWriteArrayList<Consumer>();
+		engine.addListener(this);
+	}
+
+	/**
+	 * Stores a snapshot in the ring and makes it visible to the listeners. Called only on the engine's thread, which is the only
+	 * writer, so the ordered writes need no atomic update.
+	 * @param snapshot The snapshot taken after a command.
+	 */
+	public void snapshotPublished(Snapshot snapshot) {
+		long next = cursor.get() + 1;
+		ring.lazySet((int)next & mask, snapshot);
+		cursor.lazySet(next);
+	}
+
+	/**
+	 * Adds a listener, which receives the events of every batch published from now on, on its own thread.
+	 * @param listener The listener being added.
+	 * @param name Name of the listener, used to name its thread.
+	 */
+	public void subscribe(Listener listener, String name) {
+		Consumer consumer = new Consumer(listener, name);
+		consumers.add(consumer);
+		consumer.start();
+	}
+
+	/**
+	 * Removes a listener and stops its thread once it has finished the batch it is delivering.
+	 * @param listener The listener being removed.
+	 */
+	public void unsubscribe(Listener listener) {
+		for (Consumer consumer : consumers) {
+			if (consumer.listener != listener) continue;
+			consumers.remove(consumer);
+			consumer.interrupt();
+		}
+	}
+
+	/**
+	 * Removes all listeners.
+	 */
+	public void shutdown() {
+		for (Consumer consumer : consumers) unsubscribe(consumer.listener);
+	}
+
+	/**
+	 * Delivers the events of a single batch to a listener.
+	 * @param snapshot The snapshot which holds the batch.
+	 * @param listener The listener the events are delivered to.
+	 */
+	private static void dispatch(Snapshot snapshot, Listener listener) {
+		if (snapshot.isRestarted()) listener.gameStarted(snapshot.getRows(), snapshot.getColumns(), snapshot.getMines());
+
+		int columns = snapshot.getColumns();
+		for (int i = 0; i < snapshot.getChangedCount(); i++) {
+			int cell = snapshot.getChangedCell(i), x = cell / columns, y = cell % columns;
+			byte state = snapshot.getChangedState(i), previous = snapshot.getChangedPrevious(i);
+			if (previous == Delta.FLAGGED) listener.flagChanged(x, y, false);
+			else if (previous == Delta.OPENED) listener.cellClosed(x, y);
+			if (state == Delta.OPENED) listener.cellRevealed(x, y, snapshot.getChangedMines(i));
+			else if (state == Delta.FLAGGED) listener.flagChanged(x, y, true);
+		}
+
+		if (snapshot.isTick()) listener.timerTick(snapshot.getTime());
+		if (snapshot.isEnded()) {
+			if (snapshot.getStatus() == Status.WON) listener.gameWon(snapshot.getTime());
+			else listener.gameLost(snapshot.getTime());
+		}
+		listener.batchFinished(snapshot);
+	}
+
+	/**
+	 * A Consumer object is the thread of a single listener. It reads the batches between its own position and the cursor, spinning
+	 * and then parking for ever longer, up to a millisecond, while there are none, so the engine never has to wake it up.
+	 */
+	private class Consumer extends Thread {
+		private Listener listener;
+
+		/**
+		 * Creates a Consumer object which starts with the first batch published after it was created.
+		 */
+		private Consumer(Listener listener, String name) {
+			super("minesweeper-events-" + name);
+			this.listener = listener;
+			setDaemon(true);
+		}
+
+		public void run() {
+			long next = cursor.get() + 1;
+			int idle = 0;
+			while (!isInterrupted()) {
+				long available = cursor.get();
+				if (available < next) {
+					if (++idle < SPINS) Thread.yield();
+					else LockSupport.parkNanos(Math.min(MAX_PARK, 1000L << Math.min(idle - SPINS, 10)));
+					continue;
+				}
+				idle = 0;
+				while (next <= available && !isInterrupted()) {
+					Snapshot snapshot = ring.get((int)next & mask);
+
+					/* The writer stores the slot of a batch before it moves the cursor to it, so the slot read is only certain to be the
+					 * expected batch while the cursor is more than one batch short of a whole ring ahead. */
+					long latest = cursor.get();
+					if (latest + 1 - next >= ring.length()) {
+						try {
+							listener.eventsLost(latest - next);
+						} catch (RuntimeException e) {
+							failed(e);
+						}
+						next = available = latest;
+						continue;
+					}
+					try {
+						dispatch(snapshot, listener);
+					} catch (RuntimeException e) {
+						failed(e);
+					}
+					next++;
+				}
+			}
+		}
+
+		/**
+		 * Reports an exception thrown by the listener, which goes on with the next batch.
+		 */
+		private void failed(RuntimeException e) {
+			System.err.println("Event listener " + getName() + " failed:");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Plays random moves on a new engine until all of them were published, starting a new game whenever one ends.
+	 * @param bus true if the engine gets a bus with the given listeners.
+	 * @return processor time of the engine's thread per move in nanoseconds.
+	 */
+	private static double play(int moves, boolean bus, Counter listeners[]) throws InterruptedException {
+		Set<Thread> before = Thread.getAllStackTraces().keySet();
+		GameEngine engine = new GameEngine(100, 100, 300);
+		Thread writer = null;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("minesweeper-engine") && !before.contains(thread)) writer = thread;
+		}
+		EventBus events = bus ? new EventBus(engine, 1024) : null;
+		for (int i = 0; bus && i < listeners.length; i++) events.subscribe(listeners[i], "" + i);
+
+		SplittableRandom random = new SplittableRandom(42);
+		long start = ManagementFactory.getThreadMXBean().getThreadCpuTime(writer.getId());
+		long version = engine.getSnapshot().getVersion();
+		for (int i = 0; i < moves; i++) {
+			if (engine.getSnapshot().getStatus() != Status.PLAYING) engine.restart(100, 100, 300);
+			else if (random.nextInt(4) == 0) engine.flag(random.nextInt(100), random.nextInt(100));
+			else engine.open(random.nextInt(100), random.nextInt(100));
+
+			/* The moves come in bursts with short pauses, as from many players, which leaves the listeners time to keep up. */
+			if (i % 64 == 63) {
+				while (engine.getSnapshot().getVersion() < version + i + 1) Thread.yield();
+				Thread.sleep(1);
+			}
+		}
+		while (engine.getSnapshot().getVersion() < version + moves) Thread.sleep(1);
+		long cpu = ManagementFactory.getThreadMXBean().getThreadCpuTime(writer.getId()) - start;
+		engine.shutdown();
+		if (bus) {
+			for (Counter listener : listeners) {
+				while (!listener.slow && listener.batches + listener.lost < moves) Thread.sleep(1);
+			}
+			events.shutdown();
+		}
+		return (double)cpu / moves;
+	}
+
+	/**
+	 * Runs the benchmark. The optional arguments are the number of moves and the number of listeners.
+	 * @param args Arguments for the main function.
+	 * @throws InterruptedException
+	 */
+	public static void main(String args[]) throws InterruptedException {
+		int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+		Counter listeners[] = new Counter[count];
+		for (int i = 0; i < count; i++) listeners[i] = new Counter(i % 2 == 1);
+		play(moves, false, listeners);
+		double without = play(moves, false, listeners);
+		double with = play(moves, true, listeners);
+
+		System.out.printf("Engine processor time per move: %.0f ns without a bus, %.0f ns with %d listeners.%n", without, with, count);
+		for (int i = 0; i < count; i++) {
+			Counter c = listeners[i];
+			System.out.printf("Listener %d%s: %d batches, %d revealed, %d flag changes, %d games, %d batches lost.%n", i, c.slow ? " (slow)" : "",
+					c.batches, c.revealed, c.flags, c.games, c.lost);
+		}
+	}
+
+	/**
+	 * A Counter counts the events it receives, taking a millisecond for every batch if it is slow.
+	 */
+	private static class Counter extends Adapter {
+		private boolean slow;
+		private volatile long batches, lost;
+		private long revealed, flags, games;
+
+		private Counter(boolean slow) {
+			this.slow = slow;
+		}
+
+		public void gameStarted(int rows, int columns, int mines) {
+			games++;
+		}
+
+		public void cellRevealed(int x, int y, int mines) {
+			revealed++;
+		}
+
+		public void flagChanged(int x, int y, boolean flagged) {
+			flags++;
+		}
+
+		public void batchFinished(Snapshot snapshot) {
+			batches++;
+			if (slow) LockSupport.parkNanos(1000000L);
+		}
+
+		public void eventsLost(long batches) {
+			lost += batches;
+		}
+	}
+
+	/**
+	 * A Listener receives the events of an engine on its own thread, in the order of the commands, and every batch ends with the
+	 * snapshot it was taken from.
+	 */
+	public interface Listener {
+		/**
+		 * Called when a new game starts, before the events of any of its cells.
+		 * @param rows Number of rows of the board.
+		 * @param columns Number of columns of the board.
+		 * @param mines Number of mines the board has.
+		 */
+		void gameStarted(int rows, int columns, int mines);
+
+		/**
+		 * Called when a cell is opened.
+		 * @param x The row of the cell.
+		 * @param y The column of the cell.
+		 * @param mines Number of mines surrounding the cell.
+		 */
+		void cellRevealed(int x, int y, int mines);
+
+		/**
+		 * Called when an opened cell is closed again by undoing the move which opened it.
+		 * @param x The row of the cell.
+		 * @param y The column of the cell.
+		 */
+		void cellClosed(int x, int y);
+
+		/**
+		 * Called when a flag is placed on a cell or removed from it.
+		 * @param x The row of the cell.
+		 * @param y The column of the cell.
+		 * @param flagged true if the flag was placed, false if it was removed.
+		 */
+		void flagChanged(int x, int y, boolean flagged);
+
+		/**
+		 * Called at every whole second of a game while its timer runs.
+		 * @param time Time of the game in tens of milliseconds.
+		 */
+		void timerTick(int time);
+
+		/**
+		 * Called when a game is won.
+		 * @param time Final time of the game in tens of milliseconds.
+		 */
+		void gameWon(int time);
+
+		/**
+		 * Called when a game is lost.
+		 * @param time Final time of the game in tens of milliseconds.
+		 */
+		void gameLost(int time);
+
+		/**
+		 * Called after all events of a batch.
+		 * @param snapshot The snapshot the batch was taken from.
+		 */
+		void batchFinished(Snapshot snapshot);
+
+		/**
+		 * Called when the listener fell behind by a whole ring, before the events of the latest batch.
+		 * @param batches Number of batches which were skipped.
+		 */
+		void eventsLost(long batches);
+	}
+
+	/**
+	 * An Adapter is a Listener which ignores every event, so listeners interested in only a few events override only their methods.
+	 */
+	public static abstract class Adapter implements Listener {
+		public void gameStarted(int rows, int columns, int mines) {}
+		public void cellRevealed(int x, int y, int mines) {}
+		public void cellClosed(int x, int y) {}
+		public void flagChanged(int x, int y, boolean flagged) {}
+		public void timerTick(int time) {}
+		public void gameWon(int time) {}
+		public void gameLost(int time) {}
+		public void batchFinished(Snapshot snapshot) {}
+		public void eventsLost(long batches) {}
+	}
+}
\ No newline at end of file
@@ -3,63 +3,62 @@ package minesweeper;
 import java.awt.*;
 
 /**
- * A Field object is a collection of tiles which represents the entire playable field of the game.
+ * A Field object is a collection of tiles which represents the entire playable field of the game. The state of the field is owned
+ * by a GameEngine, so the field forwards every click to the engine and displays the snapshots the engine publishes.
  * @author Nikola Stankovic
  */
 public class Field extends Panel {
 	private static final long serialVersionUID = 1L;
-	private int rows, columns, mines, flags;
+	private int rows, columns;
 	private GridLayout layout;
-	private Tile field[][];
+	private Tile field[];
+	private int shown;
 	private Tile current;
+	private GameEngine engine;
 	
 	/**
-	 * Creates a Field object.
-	 * @param rows Number of rows of the field.
-	 * @param columns Number of columns of the field.
-	 * @param mines Number of mines the field has.
+	 * Creates a Field object displaying the current board of a game engine.
+	 * @param engine The engine which owns the state of the field.
 	 */
-	public Field(int rows, int columns, int mines) {
-		restartField(rows, columns, mines);
+	public Field(GameEngine engine) {
+		this.engine = engine;
+		Snapshot snapshot = engine.getSnapshot();
+		restartField(snapshot.getRows(), snapshot.getColumns());
 	}
 	
 	/**
-	 * Restarts the entire field by removing all tiles and creating a new set of tiles. It creates and places Tile objects and places mines
-	 * randomly across the field.
+	 * Restarts the entire field with closed tiles. The tiles of the previous game are closed and reused: if the field has the same
+	 * size, only the tiles which aren't closed change at all, and otherwise tiles are only added or removed at the end. Tiles which
+	 * are removed are kept for a later, larger field, so new tiles are created only when the field is larger than ever before.
 	 * @param rows Number of rows of the field.
 	 * @param columns Number of columns of the field.
-	 * @param mines Number of mines the field has.
 	 */
-	public void restartField(int rows, int columns, int mines) {
-		this.removeAll();
-		
+	public void restartField(int rows, int columns) {
+		int size = rows * columns;
+		boolean resized = rows != this.rows || columns != this.columns;
 		this.rows = rows;
 		this.columns = columns;
-		this.flags = this.mines = mines;
-		this.field = new Tile[rows][columns];
-		this.layout = new GridLayout(rows, columns, 1, 1);
 		this.setCurrent(null);
-		this.setLayout(layout);
 		
-		/* Generates random coordinates in the field and places mines without placing multiple mines on the same tile. */
-		for (int i = 0; i < mines; i++) {													
-			int randX = (int)(Math.random() * rows);
-			int randY = (int)(Math.random() * columns);
-			if (field[randX][randY] == null) {
-				field[randX][randY] = new Tile("", new Color(224, 224, 235), randX, randY);
-				field[randX][randY].setMine();
-			}
-			else i--;
+		if (field == null || field.length < size) {
+			Tile grown[] = new Tile[size];
+			int kept = field == null ? 0 : field.length;
+			if (kept > 0) System.arraycopy(field, 0, grown, 0, kept);
+			for (int cell = kept; cell < size; cell++) grown[cell] = new Tile(cell / columns, cell % columns);
+			field = grown;
 		}
+		for (int cell = 0; cell < size; cell++) field[cell].reset(cell / columns, cell % columns);
 		
-		/* Creates regular Tiles for the rest of the field. Adds all tiles both with and without mines to the field. */
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				if (field[i][j] == null) {
-					field[i][j] = new Tile("", new Color(224, 224, 235), i, j);	
-				}
-				this.add(field[i][j]);
+		if (resized) {
+			if (layout == null) {
+				layout = new GridLayout(rows, columns, 1, 1);
+				this.setLayout(layout);
 			}
+			layout.setRows(rows);
+			layout.setColumns(columns);
+			while (shown > size) this.remove(--shown);
+			while (shown < size) this.add(field[shown++]);
+			this.validate();
 		}
 		this.paintComponents(this.getGraphics());
 	}
@@ -89,25 +88,21 @@ public class Field extends Panel {
 	}
 	
 	/**
-	 * Explodes the field and ends the game.
-	 */
-	public void explode() {
-		Game game = (Game)this.getParent();
-		game.endGame();
-	}
-	
-	/**
-	 * Increases the number of flags by one.
+	 * Asks the engine to open the tile at row x and column y.
+	 * @param x The row of the tile.
+	 * @param y The column of the tile.
 	 */
-	public void incFlags() {
-		flags++;
+	public void open(int x, int y) {
+		engine.open(x, y);
 	}
 	
 	/**
-	 * Decreases the number of flags by one.
+	 * Asks the engine to place or remove a flag on the tile at row x and column y.
+	 * @param x The row of the tile.
+	 * @param y The column of the tile.
 	 */
-	public void decFlags() {
-		flags--;
+	public void flag(int x, int y) {
+		engine.flag(x, y);
 	}
 	
 	/**
@@ -115,101 +110,32 @@ public class Field extends Panel {
 	 * @return remaining number of flags.
 	 */
 	public int getFlags() {
-		return flags;
-	}
-	
-	/**
-	 * Sets the number of flags to a certain value.
-	 * @param flags Number of flags that flags is being set to.
-	 */
-	public void setFlags(int flags) {
-		this.flags = flags;
+		return engine.getSnapshot().getFlags();
 	}
 	
 	/**
-	 * Checks if the game is completed. If all tiles with a mine have been flagged or if the remaining number of unopened tiles
-	 * is equal to the number of mines, the game was successfully completed and the call returns true, otherwise returns false.
-	 * @return true if game was successfully completed, false otherwise.
+	 * Displays a snapshot published by the engine. A snapshot of a new game closes all tiles, otherwise only the tiles changed
+	 * by the command are updated. Must be called on the event dispatch thread, in the order the snapshots were published.
+	 * @param snapshot The snapshot being displayed.
 	 */
-	public boolean checkTiles() {
-		int success = 0;
-		int tiles = 0;
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				if (field[i][j].hasMine() && field[i][j].hasFlag()) success++;
-				if (!field[i][j].isOpened()) tiles++;
-			}
-		}
-		if (success == mines || tiles == mines) return true;
-		else return false;
-	}
-	
-	/**
-	 * Opens the tile at row x and column y.
-	 * @param x The row of the tile.
-	 * @param y The column of the tile.
-	 */
-	public void open(int x, int y) {
-		if (field[x][y] == null) return;
-		else field[x][y].open();
-		
-		/* First just sets the open flag of a tile to true before actually opening the tile due to the recursive calls of
-		 * countSurroundingMines. */
-		int mines = countSurruoundingMines(x, y);
-		field[x][y].openTile(mines);
+	public void applySnapshot(Snapshot snapshot) {
+		if (snapshot.isRestarted()) restartField(snapshot.getRows(), snapshot.getColumns());
 		
-		/* If all tiles without mines have been opened, the game ends. */
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				if (!(field[i][j].isOpened() || field[i][j].hasMine())) return;
-			}
+		for (int i = 0; i < snapshot.getChangedCount(); i++) {
+			int cell = snapshot.getChangedCell(i);
+			field[cell].setState(snapshot.getChangedState(i), snapshot.getChangedMines(i));
 		}
-		Game game = (Game)this.getParent();
-		game.endGame();
+		openMineTiles(snapshot);
 	}
 	
 	/**
-	 * Opens all tiles with mines to mark a game's end.
+	 * Opens all tiles with mines revealed by a snapshot to mark a game's end.
+	 * @param snapshot The snapshot which ended the game.
 	 */
-	public void openMineTiles() {
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				if (field[i][j].hasMine()) field[i][j].openMineTile();
-			}
+	public void openMineTiles(Snapshot snapshot) {
+		for (int i = 0; i < snapshot.getRevealedMines(); i++) {
+			int cell = snapshot.getRevealedMine(i);
+			field[cell].openMineTile();
 		}
 	}
-	
-	/**
-	 * Counts the number of surrounding tiles with mines. If the number is greater than 0, the value is returned. If the number is
-	 * equal to 0, the function for opening a tile is called for all surrounding tiles in order to open them, causing a recursive call.
-	 * @param x The row of the tile.
-	 * @param y The column of the tile.
-	 * @return number of surrounding tiles with mines.
-	 */
-	private int countSurruoundingMines(int x, int y) {
-		int count = 0;
-		
-		if ((x-1)>=0 && (y-1)>=0 && field[x-1][y-1].hasMine()) count++;						// Top left
-		if ((x-1)>=0 && y>=0 && field[x-1][y].hasMine()) count++;							// Left
-		if ((x-1)>=0 && (y+1)<rows && field[x-1][y+1].hasMine()) count++;					// Bottom left
-		if (x>=0 && (y+1)<rows && field[x][y+1].hasMine()) count++;							// Bottom
-		if ((x+1)<columns && (y+1)<rows && field[x+1][y+1].hasMine()) count++;				// Bottom right
-		if ((x+1)<columns && y>=0 && field[x+1][y].hasMine()) count++;						// Right
-		if ((x+1)<columns && (y-1)>=0 && field[x+1][y-1].hasMine()) count++;				// Top right
-		if (x>=0 && (y-1)>=0 && field[x][y-1].hasMine()) count++;							// Top
-		
-		// Opens unopened surrounding tiles recursively if there are no surrounding mines.
-		if (count == 0) {											
-			if ((x-1)>=0 && (y-1)>=0 && !field[x-1][y-1].isOpened()) this.open(x-1, y-1);
-			if ((x-1)>=0 && y>=0 && !field[x-1][y].isOpened()) this.open(x-1, y);
-			if ((x-1)>=0 && (y+1)<rows && !field[x-1][y+1].isOpened()) this.open(x-1, y+1);
-			if (x>=0 && (y+1)<rows && !field[x][y+1].isOpened()) this.open(x, y+1);
-			if ((x+1)<columns && (y+1)<rows && !field[x+1][y+1].isOpened()) this.open(x+1, y+1);
-			if ((x+1)<columns && y>=0 && !field[x+1][y].isOpened()) this.open(x+1, y);
-			if ((x+1)<columns && (y-1)>=0 && !field[x+1][y-1].isOpened()) this.open(x+1, y-1);
-			if (x>=0 && (y-1)>=0 && !field[x][y-1].isOpened()) this.open(x, y-1);
-		}
-		
-		return count;
-	}
 }
\ No newline at end of file
@@ -2,7 +2,9 @@ package minesweeper;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import javax.swing.*;
 
 /**
@@ -11,10 +13,21 @@ import javax.swing.*;
  */
 public class Game extends Frame {
 	private static final long serialVersionUID = 1L;	
+	private static final int FIELD_CELLS = 400;
+	private static final int MAX_CUSTOM_CELLS = 1 << 25;
+	private static final long LAUNCHED = System.nanoTime();
+	private static final String PLAYER = System.getProperty("user.name");
+	private static int games;
 	private int width, height;
 	private int startX, startY;
 	private Field field;
+	private BoardCanvas canvas;
+	private GameEngine engine;
+	private BoardPool pool;
+	private GameMetrics metrics;
 	private int mines;
+	private int customRows, customColumns, customMines;
+	private boolean custom, canvasShown;
 	
 	private Label timerLabel, flagsLabel;
 	private Button explodeB;
@@ -24,8 +37,14 @@ public class Game extends Frame {
 
 	private Difficulty currentDiff;	
 	private Scoreboard scoreboard;
+	private Statistics statistics;
 	private Timer timer;
-	private boolean started, disabled;
+	private boolean disabled;
+	private boolean painted;
+	
+	private MessageDialog scoreDialog, statisticsDialog, howToDialog, aboutDialog, wonDialog, lostDialog, boardDialog, endlessDialog;
+	private CustomDialog customDialog;
+	private EntryDialog entryDialog;
 	
 	/**
 	 * Creates a Game object.
@@ -53,9 +72,26 @@ public class Game extends Frame {
 			}
 		}
 		
-		this.field = new Field(rows, columns, mines);
-		this.scoreboard = new Scoreboard();
-		this.started = false;
+		/* Boards of the three difficulties are generated in the background, so choosing any of them starts a game right away. */
+		this.pool = new BoardPool(Integer.getInteger("minesweeper.pool", 2));
+		pool.prepare(10, 10, 10);
+		pool.prepare(15, 15, 35);
+		pool.prepare(20, 20, 60);
+		this.metrics = new GameMetrics();
+		this.engine = new GameEngine(rows, columns, mines, pool, metrics);
+		
+		/* With -Dminesweeper.spectate=port, the game is streamed live to spectators connecting to that port on localhost. */
+		Integer spectatePort = Integer.getInteger("minesweeper.spectate");
+		if (spectatePort != null) {
+			try {
+				SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(spectatePort);
+				broadcaster.attach(engine);
+				broadcaster.start();
+			} catch (IOException e) {
+				System.err.println("Spectators can't connect: " + e.getMessage());
+			}
+		}
+		this.field = new Field(engine);
 		this.disabled = false;
 		this.width = 300;
 		this.height = 380;
@@ -70,7 +106,18 @@ public class Game extends Frame {
 		populateWindow();
 		setIcon();
 		
-		timer = new Timer(timerLabel);	
+		timer = new Timer(timerLabel, engine);	
+		
+		/* Snapshots are published on the engine's thread, so they are handed over to the event dispatch thread in the same order. */
+		engine.addListener(new GameEngine.Listener() {
+			public void snapshotPublished(final Snapshot snapshot) {
+				EventQueue.invokeLater(new Runnable() {
+					public void run() {
+						applySnapshot(snapshot);
+					}
+				});
+			}
+		});
 		
 		setVisible(true);
 		this.requestFocus();
@@ -91,7 +138,10 @@ public class Game extends Frame {
 		this.addWindowListener(new WindowAdapter() {
 		    public void windowClosing(WindowEvent e) {     	
 		    	timer.stopTimer();
-		    	scoreboard.saveScoreboard();
+		    	engine.shutdown();
+		    	pool.shutdown();
+		    	metrics.unregister();
+		    	saveFiles();
 		    	dispose();
 		    }
 		});
@@ -106,7 +156,7 @@ public class Game extends Frame {
 		explodeB.setForeground(new Color(161, 0, 53));
 		explodeB.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				endGame();
+				engine.explode();
 			}
 		});
 		
@@ -163,6 +213,30 @@ public class Game extends Frame {
 		});
 		gameM.add(restartM);
 		
+		MenuItem openM = new MenuItem("Open board...");
+		openM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				openBoard();
+			}
+		});
+		gameM.add(openM);
+		
+		MenuItem undoM = new MenuItem("Undo", new MenuShortcut(KeyEvent.VK_Z));
+		undoM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				undoMove();
+			}
+		});
+		gameM.add(undoM);
+		
+		MenuItem redoM = new MenuItem("Redo", new MenuShortcut(KeyEvent.VK_Y));
+		redoM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				redoMove();
+			}
+		});
+		gameM.add(redoM);
+		gameM.addSeparator();
 		
 		Menu diffM = new Menu("Difficulty");
 		MenuItem easyDiff = new MenuItem("Easy");
@@ -170,24 +244,40 @@ public class Game extends Frame {
 		MenuItem hardDiff = new MenuItem("Hard");
 		easyDiff.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				currentDiff = Difficulty.EASY;
-				restartGame(Difficulty.EASY);
+				selectDifficulty(Difficulty.EASY);
 			}
 		});
 		mediumDiff.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				currentDiff = Difficulty.MEDIUM;
-				restartGame(Difficulty.MEDIUM);
+				selectDifficulty(Difficulty.MEDIUM);
 			}
 		});
 		hardDiff.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				currentDiff = Difficulty.HARD;
-				restartGame(Difficulty.HARD);
+				selectDifficulty(Difficulty.HARD);
+			}
+		});
+		MenuItem customDiff = new MenuItem("Custom...");
+		customDiff.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				displayCustomBoard();
 			}
 		});
-		diffM.add(easyDiff); diffM.add(mediumDiff); diffM.add(hardDiff);
+		diffM.add(easyDiff); diffM.add(mediumDiff); diffM.add(hardDiff); diffM.addSeparator(); diffM.add(customDiff);
 		gameM.add(diffM);
+		
+		MenuItem endlessM = new MenuItem("Endless mode");
+		endlessM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				try {
+					new EndlessGame();
+				} catch (IOException ex) {
+					if (endlessDialog == null) endlessDialog = new MessageDialog("Endless mode", 250, null, null);
+					endlessDialog.display("The endless mode can't be started: " + ex.getMessage(), 150);
+				}
+			}
+		});
+		gameM.add(endlessM);
 		gameM.addSeparator();
 		
 		MenuItem scoreM = new MenuItem("Scoreboard");
@@ -197,13 +287,24 @@ public class Game extends Frame {
 			}
 		});
 		gameM.add(scoreM);
+		
+		MenuItem statisticsM = new MenuItem("Statistics");
+		statisticsM.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {		
+				displayStatistics();
+			}
+		});
+		gameM.add(statisticsM);
 		gameM.addSeparator();
 		
 		MenuItem exitM = new MenuItem("Exit");
 		exitM.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {		
 				timer.stopTimer();
-				scoreboard.saveScoreboard();
+				engine.shutdown();
+				pool.shutdown();
+				metrics.unregister();
+				saveFiles();
 				dispose();
 			}
 		});	
@@ -232,20 +333,33 @@ public class Game extends Frame {
 		this.setMenuBar(mb);
 	}
 	
+	/**
+	 * Starts a new game at a difficulty chosen from the menu. Package-private, like restartCustom, so that benchmarks can start new
+	 * games without going through the menu.
+	 * @param diff The chosen difficulty.
+	 */
+	void selectDifficulty(Difficulty diff) {
+		currentDiff = diff;
+		custom = false;
+		restartGame(diff);
+	}
+	
 	/**
 	 * Restarts the game by restarting the field and the timer.
 	 * @param diff The difficulty of the game after restarting.
 	 */
 	private void restartGame(Difficulty diff) {
+		if (custom) {
+			restartCustom(customRows, customColumns, customMines);
+			return;
+		}
 		switch (diff) {
 			case EASY: {	
 				width = 300; height = 380;
 				startX = ((int)Toolkit.getDefaultToolkit().getScreenSize().getWidth() - width) / 2;
 				startY = ((int)Toolkit.getDefaultToolkit().getScreenSize().getHeight() - height) / 2;
 				setBounds(startX, startY, width, height);
-				field.restartField(10, 10, 10); 
-				field.setFlags(10);
-				displayFlagCount();
+				engine.restart(10, 10, 10);
 				break;
 			}
 			case MEDIUM: {
@@ -253,9 +367,7 @@ public class Game extends Frame {
 				startX = ((int)Toolkit.getDefaultToolkit().getScreenSize().getWidth() - width) / 2;
 				startY = ((int)Toolkit.getDefaultToolkit().getScreenSize().getHeight() - height) / 2;
 				setBounds(startX, startY, width, height);
-				field.restartField(15, 15, 35);
-				field.setFlags(35);
-				displayFlagCount();
+				engine.restart(15, 15, 35);
 				break;
 			}
 			case HARD: {			
@@ -263,30 +375,166 @@ public class Game extends Frame {
 				startX = ((int)Toolkit.getDefaultToolkit().getScreenSize().getWidth() - width) / 2;
 				startY = ((int)Toolkit.getDefaultToolkit().getScreenSize().getHeight() - height) / 2;
 				setBounds(startX, startY, width, height);
-				field.restartField(20, 20, 60);
-				field.setFlags(60);
-				displayFlagCount();
+				engine.restart(20, 20, 60);
 				break;
 			}
 		}
-		timer.stopTimer(); timer = new Timer(timerLabel); timer.start();
-		this.disabled = false;
-		explodeB.setEnabled(true);
+		timer.resumeTimer();
 		this.revalidate();
 	}
 	
 	/**
-	 * Displays the current number of flags.
+	 * Restarts the game on a board of a custom size. Boards with more than FIELD_CELLS cells are displayed on a BoardCanvas, which
+	 * is sized to fit the screen and scrolls over the board.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines of the board.
 	 */
-	public void displayFlagCount() {
-		flagsLabel.setText("" + field.getFlags());
+	void restartCustom(int rows, int columns, int mines) {
+		custom = true;
+		customRows = rows; customColumns = columns; customMines = mines;
+		resizeFor(rows, columns);
+		engine.restart(rows, columns, mines);
+		timer.resumeTimer();
+		this.revalidate();
+	}
+
+	/**
+	 * Restarts the game on a board read from a file. New game afterwards starts a random board of the same size and number of mines.
+	 * @param board The board read from the file.
+	 */
+	private void restartLoaded(Board board) {
+		custom = true;
+		customRows = board.getRows(); customColumns = board.getColumns(); customMines = board.getMines();
+		resizeFor(board.getRows(), board.getColumns());
+		engine.load(board);
+		timer.resumeTimer();
+		this.revalidate();
+	}
+
+	/**
+	 * Sizes the frame to fit a board of a custom size on the screen and centers it.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 */
+	private void resizeFor(int rows, int columns) {
+		Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+		long cells = (long)rows * columns;
+		width = (int)Math.max(300, Math.min((int)screen.getWidth() - 100, columns * (cells > FIELD_CELLS ? 20L : 25L) + 50));
+		height = (int)Math.max(380, Math.min((int)screen.getHeight() - 100, rows * (cells > FIELD_CELLS ? 20L : 25L) + 130));
+		startX = ((int)screen.getWidth() - width) / 2;
+		startY = ((int)screen.getHeight() - height) / 2;
+		setBounds(startX, startY, width, height);
+	}
+
+	/**
+	 * Lets the player choose a board file and starts a game on its board. The file is read on a thread of its own, so that a giant
+	 * board doesn't freeze the window, and the game starts on the event dispatch thread once the board is ready.
+	 */
+	private void openBoard() {
+		FileDialog dialog = new FileDialog(this, "Open board", FileDialog.LOAD);
+		dialog.setVisible(true);
+		if (dialog.getFile() == null) return;
+		final File file = new File(dialog.getDirectory(), dialog.getFile());
+		new Thread("minesweeper-board-file") {
+			public void run() {
+				try {
+					final Board board = BoardFile.read(file);
+					EventQueue.invokeLater(new Runnable() {
+						public void run() {
+							restartLoaded(board);
+						}
+					});
+				} catch (IOException e) {
+					displayBoardError("The file " + file.getName() + " can't be read.");
+				} catch (IllegalArgumentException e) {
+					displayBoardError(e.getMessage());
+				}
+			}
+		}.start();
+	}
+
+	/**
+	 * Displays a Dialog which explains why a board file wasn't opened. Can be called from any thread.
+	 * @param message The reason.
+	 */
+	private void displayBoardError(final String message) {
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				if (boardDialog == null) boardDialog = new MessageDialog("Open board", 250, null, null);
+				boardDialog.display(message, 150);
+			}
+		});
+	}
+
+	/**
+	 * Shows the component which displays a new board: a Field made of Tiles for boards of a regular size, or a BoardCanvas for
+	 * larger boards.
+	 * @param snapshot The first snapshot of the new board.
+	 */
+	private void showBoard(Snapshot snapshot) {
+		boolean large = snapshot.getRows() * snapshot.getColumns() > FIELD_CELLS;
+		if (large == canvasShown) return;
+		if (large) {
+			if (canvas == null) canvas = new BoardCanvas(engine);
+			this.remove(field);
+			this.add(canvas, BorderLayout.CENTER);
+		}
+		else {
+			this.remove(canvas);
+			this.add(field, BorderLayout.CENTER);
+		}
+		canvasShown = large;
+	}
+
+	/**
+	 * Undoes the last move if the game is still in progress.
+	 */
+	private void undoMove() {
+		if (!disabled) engine.undo();
 	}
 	
 	/**
-	 * If the game hadn't already started, it starts the timer and therefore, starts the game.
+	 * Redoes the last undone move if the game is still in progress.
 	 */
-	public void startGame() {
-		if (!started) timer.startCount();
+	private void redoMove() {
+		if (!disabled) engine.redo();
+	}
+	
+	/**
+	 * Displays a snapshot published by the engine. A snapshot of a new game enables the game again, and the first snapshot after the
+	 * game was won or lost ends the game. The time it takes to update the board is recorded in the metrics of the game.
+	 * @param snapshot The snapshot being displayed.
+	 */
+	private void applySnapshot(Snapshot snapshot) {
+		long start = System.nanoTime();
+		if (snapshot.isRestarted()) showBoard(snapshot);
+		if (canvasShown) canvas.applySnapshot(snapshot);
+		else field.applySnapshot(snapshot);
+		displayFlagCount(snapshot);
+		if (snapshot.isRestarted()) {
+			disabled = false;
+			explodeB.setEnabled(true);
+			this.validate();
+		}
+		if (!snapshot.isTick()) metrics.repainted(System.nanoTime() - start);
+		if (snapshot.getStatus() != Status.PLAYING && !disabled) endGame(snapshot);
+	}
+	
+	/**
+	 * Displays the number of flags of a snapshot.
+	 * @param snapshot The snapshot being displayed.
+	 */
+	private void displayFlagCount(Snapshot snapshot) {
+		flagsLabel.setText("" + snapshot.getFlags());
+	}
+	
+	/**
+	 * Returns the engine of the game.
+	 * @return the engine.
+	 */
+	GameEngine getEngine() {
+		return engine;
 	}
 	
 	/**
@@ -298,299 +546,506 @@ public class Game extends Frame {
 	}
 	
 	/**
-	 * Opens all tiles and checks if the game was successfully completed. Displays a win or lose dialog frame accordingly.
+	 * Ends the game once the engine reports that it was won or lost. Displays the final time and a win or lose dialog frame accordingly.
+	 * @param snapshot The snapshot which ended the game.
 	 */
-	public void endGame() {
-		boolean won = field.checkTiles();
-		field.openMineTiles();
-		timer.stopTimer();
+	private void endGame(Snapshot snapshot) {
+		timer.pauseTimer();
+		timerLabel.setText(Timer.formatTime(snapshot.getTime()));
 		disabled = true;
 		explodeB.setEnabled(false);
-		if (won) displayWonScreen();
+		getStatistics().record(PLAYER, getBoardName(), snapshot);
+		if (snapshot.getStatus() == Status.WON) displayWonScreen();
 		else displayLostScreen();
 	}	
 	
+	/**
+	 * Returns the scoreboard, loading it the first time it is needed, so that reading and deciphering its files doesn't delay the
+	 * first frame. Every game in the application shares the same scoreboard.
+	 * @return the scoreboard, or null if its files couldn't be read.
+	 */
+	private Scoreboard getScoreboard() {
+		if (scoreboard == null) {
+			try {
+				scoreboard = Scoreboard.getShared();
+			} catch (IOException e) {}
+		}
+		return scoreboard;
+	}
+	
+	/**
+	 * Returns the statistics, loading them the first time they are needed.
+	 * @return the statistics.
+	 */
+	private Statistics getStatistics() {
+		if (statistics == null) statistics = new Statistics();
+		return statistics;
+	}
+	
+	/**
+	 * Returns the name the statistics of the current kind of board are kept under.
+	 * @return the difficulty, or the size and the number of mines of a custom board.
+	 */
+	private String getBoardName() {
+		if (custom) return "CUSTOM " + customRows + "x" + customColumns + " " + customMines;
+		return "" + currentDiff;
+	}
+	
+	/**
+	 * Saves the scoreboard and the statistics if they were ever loaded.
+	 */
+	private void saveFiles() {
+		if (scoreboard != null) scoreboard.saveScoreboard();
+		if (statistics != null) statistics.save();
+	}
+	
+	/**
+	 * Paints the frame, and reports the time to the first frame once the frame is painted for the first time. The metrics of the game
+	 * are registered with JMX only afterwards, so loading JMX doesn't delay the first frame.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		super.paint(g);
+		if (!painted) {
+			painted = true;
+			reportStartup();
+			EventQueue.invokeLater(new Runnable() {
+				public void run() {
+					metrics.register("game-" + ++games);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Reports the time to the first frame if the minesweeper.startup property is set to a target time in milliseconds. The time is
+	 * printed both from the start of the virtual machine and from the start of main. All dialogs are then built without being
+	 * displayed, so that a training run for a class data sharing archive also loads their classes, and the application exits with
+	 * status 1 if the time from the start of the virtual machine exceeded the target, or 0 otherwise.
+	 */
+	private void reportStartup() {
+		String target = System.getProperty("minesweeper.startup");
+		if (target == null) return;
+		long fromMain = (System.nanoTime() - LAUNCHED) / 1000000;
+		long fromStart = ManagementFactory.getRuntimeMXBean().getUptime();
+		System.out.println("Time to first frame: " + fromStart + " ms (" + fromMain + " ms from main), target " + target + " ms");
+		
+		final int status = fromStart > Long.parseLong(target.trim()) ? 1 : 0;
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				prepareDialogs();
+				System.exit(status);
+			}
+		});
+	}
+	
+	/**
+	 * Builds every dialog and sets its text without displaying it.
+	 */
+	private void prepareDialogs() {
+		scoreDialog = new MessageDialog("Scoreboard", 180, null, null);
+		scoreDialog.setText(getScoreboardText());
+		statisticsDialog = new MessageDialog("Statistics", 200, null, null);
+		statisticsDialog.setText(getStatisticsText());
+		howToDialog = new MessageDialog("How to play?", 400, null, null);
+		howToDialog.setText(getHowToPlayText());
+		aboutDialog = new MessageDialog("About", 250, null, null);
+		aboutDialog.setText(getAboutText());
+		createWonDialog();
+		wonDialog.setText(getWonText());
+		createLostDialog();
+		lostDialog.setText(getLostText());
+		customDialog = new CustomDialog();
+		entryDialog = new EntryDialog();
+	}
+	
+	/**
+	 * Creates a button with the look of the buttons of the dialogs.
+	 * @param text The text of the button.
+	 * @param listener The listener which is notified when the button is pressed.
+	 * @return the button.
+	 */
+	private Button createButton(String text, ActionListener listener) {
+		Button button = new Button(text);
+		button.addActionListener(listener);
+		button.setBackground(new Color(148, 148, 184));
+		button.setForeground(new Color(41, 41, 61));
+		button.setFont(new Font("SansSerif", Font.BOLD, 11));
+		return button;
+	}
+	
+	/**
+	 * Places a dialog in the middle of the frame.
+	 * @param dialog The dialog being placed.
+	 * @param width The width of the dialog.
+	 * @param height The height of the dialog.
+	 */
+	private void center(Dialog dialog, int width, int height) {
+		dialog.setBounds(getX() + (this.width - width) / 2, getY() + (this.height - height) / 2, width, height);
+	}
+	
 	/**
 	 * Displays a Dialog which contains the scoreboard of the current game difficulty.
 	 */
 	private void displayScoreboard() {
-		class Score extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 180, height = 160;
-			
-			public Score(Frame owner) {
-				super(owner);
-				height = 160 + 15 * scoreboard.getNumOfEntries(currentDiff);
-				setTitle("Scoreboard");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				String labelText;
-				String diffString = "";
-				if (currentDiff == Difficulty.EASY) diffString = "(EASY)";
-				else if (currentDiff == Difficulty.MEDIUM) diffString = "(MEDIUM)";
-				else if (currentDiff == Difficulty.HARD) diffString = "(HARD)";
-				
-				if (scoreboard.getNumOfEntries(currentDiff) == 0) labelText = "<h3><font size=\"4\"><font color=\"#e6c300\">"
-						+ "SCOREBOARD</h3><font size=\"4\"><font color=\"#e6c300\"><b>" + diffString
-						+ "</b><br><br><font size=\"3\"><font color=\"#f0f0f5\"><b>No entries yet!</b>";
-				else labelText = "<h3><font size=\"4\"><font color=\"#e6c300\">SCOREBOARD</h3><font size=\"4\">"
-						+ "<font color=\"#e6c300\"><b>" + diffString + "</b><br><br><font size=\"3\">" 
-						+ scoreboard.getPrintable(currentDiff).replace("\n", "<br>");
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
-				this.add(label);
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				setVisible(true);
-			}
-		}
-		Score dialog = new Score(this);
-		dialog.dispose();
+		if (getScoreboard() == null) return;
+		if (scoreDialog == null) scoreDialog = new MessageDialog("Scoreboard", 180, null, null);
+		scoreDialog.display(getScoreboardText(), 160 + 15 * scoreboard.getNumOfEntries(currentDiff));
+	}
+	
+	/**
+	 * Returns the text of the scoreboard dialog for the current game difficulty.
+	 * @return text of the scoreboard dialog.
+	 */
+	private String getScoreboardText() {
+		String diffString = "";
+		if (currentDiff == Difficulty.EASY) diffString = "(EASY)";
+		else if (currentDiff == Difficulty.MEDIUM) diffString = "(MEDIUM)";
+		else if (currentDiff == Difficulty.HARD) diffString = "(HARD)";
+		
+		if (getScoreboard() == null || scoreboard.getNumOfEntries(currentDiff) == 0) return "<h3><font size=\"4\"><font color=\"#e6c300\">"
+				+ "SCOREBOARD</h3><font size=\"4\"><font color=\"#e6c300\"><b>" + diffString
+				+ "</b><br><br><font size=\"3\"><font color=\"#f0f0f5\"><b>No entries yet!</b>";
+		else return "<h3><font size=\"4\"><font color=\"#e6c300\">SCOREBOARD</h3><font size=\"4\">"
+				+ "<font color=\"#e6c300\"><b>" + diffString + "</b><br><br><font size=\"3\">" 
+				+ scoreboard.getPrintable(currentDiff).replace("\n", "<br>");
+	}
+	
+	/**
+	 * Displays a Dialog which contains the statistics of the player on the current kind of board.
+	 */
+	private void displayStatistics() {
+		if (statisticsDialog == null) statisticsDialog = new MessageDialog("Statistics", 200, null, null);
+		statisticsDialog.display(getStatisticsText(), 285);
+	}
+	
+	/**
+	 * Returns the text of the statistics dialog for the current kind of board.
+	 * @return text of the statistics dialog.
+	 */
+	private String getStatisticsText() {
+		return "<h3><font size=\"4\"><font color=\"#e6c300\">STATISTICS</h3><font size=\"4\"><font color=\"#e6c300\"><b>("
+				+ getBoardName() + ")</b><br><br><font size=\"3\"><font color=\"#f0f0f5\"><b>"
+				+ getStatistics().getPrintable(PLAYER, getBoardName()).replace("\n", "<br>") + "</b>";
+	}
+	
+	/**
+	 * Displays a Dialog with TextFields used to enter the size and the number of mines of a custom board.
+	 */
+	private void displayCustomBoard() {
+		if (customDialog == null) customDialog = new CustomDialog();
+		customDialog.display();
 	}
 	
 	/**
 	 * Displays a Dialog which contains a brief explanation of the game's rules.
 	 */
 	private void displayHowToPlay() {
-		class HTP extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 400, height = 280;
-			
-			public HTP(Frame owner) {
-				super(owner);
-				setTitle("How to play?");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				String labelText = "<h3><font size=\"5\"><font color=\"#e6c300\">HOW TO PLAY</h3>"
-						+ "<font size=\"4\"><font color=\"#e6c300\"> <b>Minesweeper</b> <font size=\"3\"><font color=\"#f0f0f5\">"
-						+ " is a game where mines are hidden"
-						+ " in a grid of squares. Safe squares have numbers telling"
-						+ " you how many mines touch the square. Use the number"
-						+ " clues to solve the game by opening all of the safe squares."
-						+ " If you click on a square with a mine you lose the game! You open squares"
-						+ " with the left mouse button and put or remove flags on squares"
-						+ " with the right mouse button. When you open a square that does not touch any mines, it will be empty."
-						+ " After placing all the flags, pressing the 'EXPLODE!' button will end the<br> game." 
-						+ " If all flags were correctly placed, you win the game, otherwise you lose! Opening all safe squares"
-						+ " wins you the game, regardless of the placed flags.";
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
-				this.add(label);
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				setVisible(true);
-			}
-		}
-		HTP dialog = new HTP(this);
-		dialog.dispose();
+		if (howToDialog == null) howToDialog = new MessageDialog("How to play?", 400, null, null);
+		howToDialog.display(getHowToPlayText(), 280);
+	}
+	
+	/**
+	 * Returns the text of the 'how to play' dialog.
+	 * @return text of the 'how to play' dialog.
+	 */
+	private String getHowToPlayText() {
+		return "<h3><font size=\"5\"><font color=\"#e6c300\">HOW TO PLAY</h3>"
+				+ "<font size=\"4\"><font color=\"#e6c300\"> <b>Minesweeper</b> <font size=\"3\"><font color=\"#f0f0f5\">"
+				+ " is a game where mines are hidden"
+				+ " in a grid of squares. Safe squares have numbers telling"
+				+ " you how many mines touch the square. Use the number"
+				+ " clues to solve the game by opening all of the safe squares."
+				+ " If you click on a square with a mine you lose the game! You open squares"
+				+ " with the left mouse button and put or remove flags on squares"
+				+ " with the right mouse button. When you open a square that does not touch any mines, it will be empty."
+				+ " After placing all the flags, pressing the 'EXPLODE!' button will end the<br> game." 
+				+ " If all flags were correctly placed, you win the game, otherwise you lose! Opening all safe squares"
+				+ " wins you the game, regardless of the placed flags.";
 	}
 	
 	/**
 	 * Displays a Dialog which contains the 'about' section of the application.
 	 */
 	private void displayAbout() {
-		class About extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 250, height = 275;
-			
-			public About(Frame owner) {
-				super(owner);
-				setTitle("About");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				String labelText = "<h3><font size=\"5\"><font color=\"#e6c300\">ABOUT</h3><h4><font size=\"4\">"
-							+ "<font color=\"#e6c300\">Minesweeper</h4>"
-							+ "<font color=\"#f0f0f5\">Version 1.1 (August 2022)<br>"
-							+ " Nikola Stankovic Games<br> All rights reserved.<br><br>"
-							+ "Usage of the code used to make this<br>game without permission is prohibited."
-							+ "<br><br><font color=\"#A10035\"><b>Created by Nikola Stankovic</b>";
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
-				this.add(label);
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				setVisible(true);
-			}
-		}
-		About dialog = new About(this);
-		dialog.dispose();
+		if (aboutDialog == null) aboutDialog = new MessageDialog("About", 250, null, null);
+		aboutDialog.display(getAboutText(), 275);
+	}
+	
+	/**
+	 * Returns the text of the 'about' dialog.
+	 * @return text of the 'about' dialog.
+	 */
+	private String getAboutText() {
+		return "<h3><font size=\"5\"><font color=\"#e6c300\">ABOUT</h3><h4><font size=\"4\">"
+				+ "<font color=\"#e6c300\">Minesweeper</h4>"
+				+ "<font color=\"#f0f0f5\">Version 1.1 (August 2022)<br>"
+				+ " Nikola Stankovic Games<br> All rights reserved.<br><br>"
+				+ "Usage of the code used to make this<br>game without permission is prohibited."
+				+ "<br><br><font color=\"#A10035\"><b>Created by Nikola Stankovic</b>";
 	}
 		
 	/**
 	 * Displays a Dialog which congratulates the player for winning the game and asks if a new game shall begin.
 	 */
 	private void displayWonScreen() {
-		class Won extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 200, height = 200;
-			
-			public Won(Frame owner) {
-				super(owner);
-				setTitle("Victorious");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				setLayout(new BorderLayout(2,1));
-				String labelText = "<h3><font color=\"#e6c300\">Congratulations!</h3>"
-						+ "Total time:<br>" + timerLabel.getText() + "<br><br>Another round?<br>";
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
-				label.setForeground(new Color(240, 240, 245));
-				this.add(label, BorderLayout.CENTER);
-				
-				Button button = new Button("NEW GAME");
-				button.addActionListener(new ActionListener() {
-					public void actionPerformed(ActionEvent e) {
-						dispose();
-						Game.this.restartGame(currentDiff);
-					}
-				});
-				button.setBackground(new Color(148, 148, 184));
-				button.setForeground(new Color(41, 41, 61));
-				button.setFont(new Font("SansSerif", Font.BOLD, 11));
-				this.add(button, BorderLayout.SOUTH);
-				
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				
-				displayScoreboardEntry();
-				setVisible(true);
+		if (wonDialog == null) createWonDialog();
+		if (!custom) displayScoreboardEntry();
+		wonDialog.display(getWonText(), 200);
+	}
+	
+	/**
+	 * Creates the Dialog displayed when the game is won.
+	 */
+	private void createWonDialog() {
+		wonDialog = new MessageDialog("Victorious", 200, new Color(240, 240, 245), createButton("NEW GAME", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				wonDialog.setVisible(false);
+				Game.this.restartGame(currentDiff);
 			}
-		}
-		Won dialog = new Won(this);
-		dialog.dispose();
+		}));
+	}
+	
+	/**
+	 * Returns the text of the dialog displayed when the game is won.
+	 * @return text of the dialog.
+	 */
+	private String getWonText() {
+		return "<h3><font color=\"#e6c300\">Congratulations!</h3>"
+				+ "Total time:<br>" + timerLabel.getText() + "<br><br>Another round?<br>";
 	}
 	
 	/**
 	 * Displays a Dialog which tells the player the game was lost and asks if a new game shall begin.
 	 */
 	private void displayLostScreen() {
-		class Lost extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 200, height = 200;
-			
-			public Lost(Frame owner) {
-				super(owner);
-				setTitle("Defeat");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				setLayout(new BorderLayout(2,1));
-				String labelText = "<h3><font color=\"#e6c300\">Too bad! You lost...</h3>"
-						+ "Total time:<br>" + timerLabel.getText() + "<br><br>Try again?<br>";
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
-				label.setForeground(new Color(240, 240, 245));
-				this.add(label, BorderLayout.CENTER);
-				
-				Button button = new Button("NEW GAME");
-				button.addActionListener(new ActionListener() {
-					public void actionPerformed(ActionEvent e) {
-						dispose();
-						Game.this.restartGame(currentDiff);
-					}
-				});
-				button.setBackground(new Color(148, 148, 184));
-				button.setForeground(new Color(41, 41, 61));
-				button.setFont(new Font("SansSerif", Font.BOLD, 11));
-				this.add(button, BorderLayout.SOUTH);
-				
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				setVisible(true);
+		if (lostDialog == null) createLostDialog();
+		lostDialog.display(getLostText(), 200);
+	}
+	
+	/**
+	 * Creates the Dialog displayed when the game is lost.
+	 */
+	private void createLostDialog() {
+		lostDialog = new MessageDialog("Defeat", 200, new Color(240, 240, 245), createButton("NEW GAME", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				lostDialog.setVisible(false);
+				Game.this.restartGame(currentDiff);
 			}
-		}
-		Lost dialog = new Lost(this);
-		dialog.dispose();
+		}));
+	}
+	
+	/**
+	 * Returns the text of the dialog displayed when the game is lost.
+	 * @return text of the dialog.
+	 */
+	private String getLostText() {
+		return "<h3><font color=\"#e6c300\">Too bad! You lost...</h3>"
+				+ "Total time:<br>" + timerLabel.getText() + "<br><br>Try again?<br>";
 	}
 	
 	/**
 	 * Displays a Dialog which contains a TextField used to enter a name, which will be used for a scoreboard entry in case of a win.
 	 */
 	private void displayScoreboardEntry() {
-		class Score extends Dialog {
-			private static final long serialVersionUID = 1L;
-			private int width = 170, height = 150;
+		if (entryDialog == null) entryDialog = new EntryDialog();
+		entryDialog.display();
+	}
+	
+	/**
+	 * A MessageDialog object is a modal Dialog which displays a text and, optionally, a button below it. It is built the first time
+	 * it is needed and only hidden when closed, so displaying it again only sets its text, which is parsed again only if it changed.
+	 */
+	private class MessageDialog extends Dialog {
+		private static final long serialVersionUID = 1L;
+		private int width;
+		private JLabel label;
+		private String text;
+		
+		/**
+		 * Creates a MessageDialog object.
+		 * @param title The title of the dialog.
+		 * @param width The width of the dialog.
+		 * @param foreground The color of the text, or null to use only the colors set in the text itself.
+		 * @param button The button below the text, or null if the dialog has no button.
+		 */
+		public MessageDialog(String title, int width, Color foreground, Button button) {
+			super(Game.this);
+			this.width = width;
+			setTitle(title);
+			setResizable(false);
+			setBackground(new Color(41, 41, 61));
 			
-			public Score(Frame owner) {
-				super(owner);
-				setTitle("Name");
-				setBounds(Game.this.getX() + (Game.this.width - width) / 2, Game.this.getY() + (Game.this.height - height) / 2, width, height);
-				setResizable(false);
-				setBackground(new Color(41, 41, 61));
-				
-				this.addWindowListener(new WindowAdapter() {
-				    public void windowClosing(WindowEvent e) { 
-				    	dispose();
-				    }
-				});
-				
-				setLayout(new BorderLayout(2,1));
-				String labelText = "<h3><font color=\"#e6c300\">Enter name:</h3>";
-				JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
-				label.setFont(new Font("SansSerif", Font.PLAIN, 12));
+			this.addWindowListener(new WindowAdapter() {
+			    public void windowClosing(WindowEvent e) { 
+			    	setVisible(false);
+			    }
+			});
+			
+			if (button != null) setLayout(new BorderLayout(2,1));
+			label = new JLabel("", JLabel.CENTER);
+			label.setFont(new Font("SansSerif", Font.PLAIN, 12));
+			if (foreground != null) label.setForeground(foreground);
+			this.add(label, BorderLayout.CENTER);
+			if (button != null) this.add(button, BorderLayout.SOUTH);
+			this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
+		}
+		
+		/**
+		 * Sets the text of the dialog.
+		 * @param text The text, as the body of an html document.
+		 */
+		public void setText(String text) {
+			if (text.equals(this.text)) return;
+			this.text = text;
+			label.setText("<html><center>" + text + "</center></html>");
+		}
+		
+		/**
+		 * Displays the dialog in the middle of the frame and waits until it is closed.
+		 * @param text The text, as the body of an html document.
+		 * @param height The height of the dialog.
+		 */
+		public void display(String text, int height) {
+			setText(text);
+			center(this, width, height);
+			setVisible(true);
+		}
+	}
+	
+	/**
+	 * A CustomDialog object is a Dialog with TextFields used to enter the size and the number of mines of a custom board. Like a
+	 * MessageDialog, it is built once and only hidden when closed.
+	 */
+	private class CustomDialog extends Dialog {
+		private static final long serialVersionUID = 1L;
+		private int width = 220, height = 220;
+		private Label error;
+		private TextField rowsTF, columnsTF, minesTF;
+		
+		/**
+		 * Creates a CustomDialog object.
+		 */
+		public CustomDialog() {
+			super(Game.this);
+			setTitle("Custom");
+			setResizable(false);
+			setBackground(new Color(41, 41, 61));
+			
+			this.addWindowListener(new WindowAdapter() {
+			    public void windowClosing(WindowEvent e) { 
+			    	setVisible(false);
+			    }
+			});
+			
+			setLayout(new BorderLayout(2,1));
+			error = new Label("", Label.CENTER);
+			error.setForeground(new Color(230, 195, 0));
+			this.add(error, BorderLayout.NORTH);
+			
+			Panel p = new Panel(new GridLayout(3, 2, 4, 4));
+			rowsTF = new TextField(6);
+			columnsTF = new TextField(6);
+			minesTF = new TextField(6);
+			String names[] = {"Rows:", "Columns:", "Mines:"};
+			TextField fields[] = {rowsTF, columnsTF, minesTF};
+			for (int i = 0; i < 3; i++) {
+				Label label = new Label(names[i]);
 				label.setForeground(new Color(240, 240, 245));
-				this.add(label, BorderLayout.NORTH);
-				
-				Panel p = new Panel();
-				TextField tf = new TextField(15);
-				
-				p.add(tf);
-				this.add(p, BorderLayout.CENTER);
-				
-				Button button = new Button("SUBMIT");
-				button.addActionListener(new ActionListener() {
-					public void actionPerformed(ActionEvent e) {			
-						dispose();
-						String name = tf.getText();
-						scoreboard.addPlayer(new Player(name, timerLabel.getText()), currentDiff);
-						displayScoreboard();
-					}
-				});
-				button.setBackground(new Color(148, 148, 184));
-				button.setForeground(new Color(41, 41, 61));
-				button.setFont(new Font("SansSerif", Font.BOLD, 11));
-				this.add(button, BorderLayout.SOUTH);
-				
-				this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
-				setVisible(true);
+				p.add(label);
+				p.add(fields[i]);
 			}
+			this.add(p, BorderLayout.CENTER);
+			
+			this.add(createButton("START", new ActionListener() {
+				public void actionPerformed(ActionEvent e) {
+					try {
+						int rows = Integer.parseInt(rowsTF.getText().trim());
+						int columns = Integer.parseInt(columnsTF.getText().trim());
+						int mines = Integer.parseInt(minesTF.getText().trim());
+						if (rows <= 0 || columns <= 0 || (long)rows * columns > MAX_CUSTOM_CELLS || mines < 0 || mines >= rows * columns) {
+							error.setText("Invalid board!");
+							return;
+						}
+						setVisible(false);
+						restartCustom(rows, columns, mines);
+					} catch (NumberFormatException ex) {
+						error.setText("Invalid number!");
+					}
+				}
+			}), BorderLayout.SOUTH);
+			this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
+		}
+		
+		/**
+		 * Fills the TextFields with the last custom board, displays the dialog and waits until it is closed.
+		 */
+		public void display() {
+			error.setText("");
+			rowsTF.setText("" + (customRows == 0 ? 30 : customRows));
+			columnsTF.setText("" + (customColumns == 0 ? 30 : customColumns));
+			minesTF.setText("" + (customMines == 0 ? 150 : customMines));
+			center(this, width, height);
+			setVisible(true);
+		}
+	}
+	
+	/**
+	 * An EntryDialog object is a Dialog with a TextField used to enter the name of a scoreboard entry. Like a MessageDialog, it is
+	 * built once and only hidden when closed.
+	 */
+	private class EntryDialog extends Dialog {
+		private static final long serialVersionUID = 1L;
+		private int width = 170, height = 150;
+		private TextField tf;
+		
+		/**
+		 * Creates an EntryDialog object.
+		 */
+		public EntryDialog() {
+			super(Game.this);
+			setTitle("Name");
+			setResizable(false);
+			setBackground(new Color(41, 41, 61));
+			
+			this.addWindowListener(new WindowAdapter() {
+			    public void windowClosing(WindowEvent e) { 
+			    	setVisible(false);
+			    }
+			});
+			
+			setLayout(new BorderLayout(2,1));
+			String labelText = "<h3><font color=\"#e6c300\">Enter name:</h3>";
+			JLabel label = new JLabel("<html><center>" + labelText + "</center></html>", JLabel.CENTER);
+			label.setFont(new Font("SansSerif", Font.PLAIN, 12));
+			label.setForeground(new Color(240, 240, 245));
+			this.add(label, BorderLayout.NORTH);
+			
+			Panel p = new Panel();
+			tf = new TextField(15);
+			p.add(tf);
+			this.add(p, BorderLayout.CENTER);
+			
+			this.add(createButton("SUBMIT", new ActionListener() {
+				public void actionPerformed(ActionEvent e) {			
+					setVisible(false);
+					String name = tf.getText();
+					if (getScoreboard() == null) return;
+					scoreboard.addPlayer(new Player(name, timerLabel.getText()), currentDiff);
+					displayScoreboard();
+				}
+			}), BorderLayout.SOUTH);
+			this.setModalityType(Dialog.ModalityType.APPLICATION_MODAL);
+		}
+		
+		/**
+		 * Clears the TextField, displays the dialog and waits until it is closed.
+		 */
+		public void display() {
+			tf.setText("");
+			center(this, width, height);
+			setVisible(true);
 		}
-		Score dialog = new Score(this);
-		dialog.dispose();
 	}
 	
 	/**
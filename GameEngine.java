@@ -0,0 +1,333 @@
+package minesweeper;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GameEngine object is the single owner of a game's state. Every change of the game - opening cells, placing flags, undoing moves,
+ * starting and stopping the timer and restarting the game - is submitted as a command to a queue, and all commands are executed one
+ * after another by the engine's own thread, which is the only thread that ever touches the board. After every command, the engine
+ * publishes an immutable Snapshot which any thread can read, so input can arrive from any source and readers never see a board
+ * which is only partly updated. While the timer runs, the engine also publishes a snapshot without any command at every whole second of
+ * the game, a tick, so readers which show the time don't need a clock of their own. A tick isn't a command, so it keeps the version of
+ * the snapshot before it.
+ * @author Nikola Stankovic
+ */
+public class GameEngine {
+	private static final int OPEN = 0, FLAG = 1, UNDO = 2, REDO = 3, EXPLODE = 4, START_TIMER = 5, STOP_TIMER = 6, RESTART = 7, SHUTDOWN = 8, TICK = 9, LOAD = 10;
+	private static final long SECOND = 1000000000L;
+
+	private LinkedBlockingQueue<int[]> commands;
+	private LinkedBlockingQueue<Board> loaded;
+	private CopyOnWriteArrayList<Listener> listeners;
+	private volatile Snapshot snapshot;
+	private Thread writer;
+	private BoardPool pool;
+	private GameMetrics metrics;
+
+	/* The fields below are owned by the writer thread. */
+	private Board board;
+	private long version;
+	private long startTime, stopTime;
+	private long nextTick;
+	private int clicks;
+
+	/**
+	 * Creates a GameEngine object with a new board and starts the engine's thread.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 */
+	public GameEngine(int rows, int columns, int mines) {
+		this(rows, columns, mines, null);
+	}
+
+	/**
+	 * Creates a GameEngine object with a new board, which takes the boards of new games from a pool, and starts the engine's thread.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @param pool The pool new boards are taken from, or null if every board is generated when its game starts.
+	 */
+	public GameEngine(int rows, int columns, int mines, BoardPool pool) {
+		this(rows, columns, mines, pool, null);
+	}
+
+	/**
+	 * Creates a GameEngine object with a new board, which takes the boards of new games from a pool and records the time of every
+	 * command in metrics, and starts the engine's thread.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 * @param pool The pool new boards are taken from, or null if every board is generated when its game starts.
+	 * @param metrics The metrics of the game, or null if nothing is recorded.
+	 */
+	public GameEngine(int rows, int columns, int mines, BoardPool pool, GameMetrics metrics) {
+		this.pool = pool;
+		this.metrics = metrics;
+		this.commands = new LinkedBlockingQueue<int[]>();
+		this.loaded = new LinkedBlockingQueue<Board>();
+		this.listeners = new CopyOnWriteArrayList<Listener>();
+		this.board = new Board(rows, columns, mines);
+		this.snapshot = publish(null, false, true, false);
+		if (metrics != null) metrics.gameStarted();
+
+		writer = new Thread("minesweeper-engine") {
+			public void run() {
+				try {
+					while (true) {
+						int command[] = nextTick == 0 ? commands.take() : commands.poll(nextTick - System.nanoTime(), TimeUnit.NANOSECONDS);
+						if (command == null) command = new int[] {TICK};
+						if (command[0] == SHUTDOWN) break;
+
+						/* A failed command, such as a new game without memory for its board, is reported and skipped, so the engine
+						   keeps serving the commands after it instead of leaving the game frozen. */
+						try {
+							execute(command);
+						} catch (Throwable e) {
+							System.err.println("Engine command " + command[0] + " failed:");
+							e.printStackTrace();
+						}
+					}
+				} catch (InterruptedException e) {}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Adds a listener which is notified about every published snapshot. Listeners are called on the engine's thread, in the order
+	 * the snapshots were published, and should hand any longer work over to their own thread.
+	 * @param listener The listener being added.
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a previously added listener.
+	 * @param listener The listener being removed.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the most recently published snapshot.
+	 * @return the latest snapshot of the game.
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Submits opening the cell at row x and column y. The timer is started by the first move that opens a cell.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 */
+	public void open(int x, int y) {
+		commands.add(new int[] {OPEN, x, y});
+	}
+
+	/**
+	 * Submits placing or removing a flag on the cell at row x and column y.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 */
+	public void flag(int x, int y) {
+		commands.add(new int[] {FLAG, x, y});
+	}
+
+	/**
+	 * Submits undoing the last move.
+	 */
+	public void undo() {
+		commands.add(new int[] {UNDO});
+	}
+
+	/**
+	 * Submits redoing the last undone move.
+	 */
+	public void redo() {
+		commands.add(new int[] {REDO});
+	}
+
+	/**
+	 * Submits ending the game, which is won if all mines are flagged and lost otherwise.
+	 */
+	public void explode() {
+		commands.add(new int[] {EXPLODE});
+	}
+
+	/**
+	 * Submits starting the timer, if it wasn't already started.
+	 */
+	public void startTimer() {
+		commands.add(new int[] {START_TIMER});
+	}
+
+	/**
+	 * Submits stopping the timer.
+	 */
+	public void stopTimer() {
+		commands.add(new int[] {STOP_TIMER});
+	}
+
+	/**
+	 * Submits starting a new game on a new board.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines the board has.
+	 */
+	public void restart(int rows, int columns, int mines) {
+		commands.add(new int[] {RESTART, rows, columns, mines});
+	}
+
+	/**
+	 * Submits starting a new game on a given board, such as a board read from a BoardFile. The board must not be used by anything else.
+	 * @param board The board of the new game.
+	 */
+	public void load(Board board) {
+		loaded.add(board);
+		commands.add(new int[] {LOAD});
+	}
+
+	/**
+	 * Stops the engine's thread once all previously submitted commands have been executed.
+	 */
+	public void shutdown() {
+		commands.add(new int[] {SHUTDOWN});
+	}
+
+	/**
+	 * Executes a single command on the writer thread and publishes the resulting snapshot.
+	 * @param command The command, followed by its arguments.
+	 */
+	private void execute(int command[]) {
+		long start = System.nanoTime();
+		Delta delta = null;
+		boolean undone = false, restarted = false, tick = false;
+
+		if ((command[0] == OPEN || command[0] == FLAG) && board.getStatus() == Status.PLAYING) clicks++;
+		switch (command[0]) {
+			case OPEN: {
+				delta = board.open(command[1], command[2]);
+				if (!delta.isEmpty() && startTime == 0) startTime = System.nanoTime();
+				break;
+			}
+			case FLAG: {
+				delta = board.flag(command[1], command[2]);
+				break;
+			}
+			case UNDO: {
+				delta = board.undo();
+				undone = true;
+				break;
+			}
+			case REDO: {
+				delta = board.redo();
+				break;
+			}
+			case EXPLODE: {
+				board.endGame();
+				break;
+			}
+			case START_TIMER: {
+				if (startTime == 0 && board.getStatus() == Status.PLAYING) startTime = System.nanoTime();
+				break;
+			}
+			case STOP_TIMER: {
+				if (startTime != 0 && stopTime == 0) stopTime = System.nanoTime();
+				break;
+			}
+			case RESTART:
+			case LOAD: {
+				if (command[0] == LOAD) board = loaded.poll();
+				else board = pool != null ? pool.take(command[1], command[2], command[3]) : new Board(command[1], command[2], command[3]);
+				startTime = stopTime = 0;
+				clicks = 0;
+				restarted = true;
+				break;
+			}
+			case TICK: {
+				tick = true;
+				break;
+			}
+		}
+
+		/* The timer stops as soon as the game ends, regardless of the command that ended it. */
+		if (board.getStatus() != Status.PLAYING && startTime != 0 && stopTime == 0) stopTime = System.nanoTime();
+		nextTick = startTime == 0 || stopTime != 0 ? 0 : startTime + ((System.nanoTime() - startTime) / SECOND + 1) * SECOND;
+
+		if (!tick) version++;
+		snapshot = publish(delta, undone, restarted, tick);
+		if (metrics != null && !tick) record(command[0], delta, System.nanoTime() - start);
+		for (Listener listener : listeners) {
+			try {
+				listener.snapshotPublished(snapshot);
+			} catch (RuntimeException e) {
+				System.err.println("Engine listener failed:");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Records a command which was executed in the metrics of the game.
+	 * @param command The command.
+	 * @param delta The cells changed by the command, or null if no cell was changed.
+	 * @param time Time it took to execute the command and publish its snapshot in nanoseconds.
+	 */
+	private void record(int command, Delta delta, long time) {
+		metrics.moveProcessed(time);
+		if (command == OPEN && delta != null && !delta.isEmpty()) metrics.cellsRevealed(delta.getCells());
+		if (command == RESTART || command == LOAD) metrics.gameStarted();
+		if (snapshot.isEnded()) metrics.gameEnded(snapshot.getStatus() == Status.WON);
+	}
+
+	/**
+	 * Creates a snapshot out of the current state of the board and the cells changed by the last command.
+	 * @param delta The cells changed by the command, or null if no cell was changed.
+	 * @param undone true if the command undid a move, meaning that the cells went back to their state before the move.
+	 * @param restarted true if the command started a new game.
+	 * @param tick true if the snapshot is a tick of the timer.
+	 * @return the new snapshot.
+	 */
+	private Snapshot publish(Delta delta, boolean undone, boolean restarted, boolean tick) {
+		if (snapshot == null) {
+			return new Snapshot(version, board, restarted, tick, startTime, stopTime, clicks, new int[0], new byte[0], new byte[0], new byte[0], null);
+		}
+
+		int size = delta == null ? 0 : delta.getCells();
+		int changed[] = new int[size];
+		byte states[] = new byte[size], previous[] = new byte[size], counts[] = new byte[size];
+
+		int columns = board.getColumns(), i = 0;
+		for (int r = 0; delta != null && r < delta.getRuns(); r++) {
+			byte state = undone ? delta.getBefore(r) : delta.getAfter(r), old = undone ? delta.getAfter(r) : delta.getBefore(r);
+			for (int cell = delta.getStart(r); cell < delta.getStart(r) + delta.getLength(r); cell++, i++) {
+				changed[i] = cell;
+				states[i] = state;
+				previous[i] = old;
+				counts[i] = (byte)board.getSurroundingMines(cell / columns, cell % columns);
+			}
+		}
+
+		boolean ended = board.getStatus() != Status.PLAYING && snapshot.getStatus() == Status.PLAYING;
+		int mineCells[] = ended ? board.getMineCells() : null;
+		return new Snapshot(version, board, restarted, tick, startTime, stopTime, clicks, changed, states, previous, counts, mineCells);
+	}
+
+	/**
+	 * A Listener is notified about every snapshot published by the engine.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the engine's thread after a command has been executed.
+		 * @param snapshot The snapshot taken after the command.
+		 */
+		void snapshotPublished(Snapshot snapshot);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,311 @@
+package minesweeper;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * A GameMetrics object keeps live counters and latency distributions of a game, and exposes them as a platform MBean named
+ * minesweeper:type=GameMetrics,name=... which JMX tools can watch while the game runs. Every game records into its own metrics and
+ * into the metrics of the application, a single aggregate which also records the work shared by all games: generating boards,
+ * loading and saving the scoreboard and ciphering. Counters are LongAdders and distributions are ConcurrentHistograms, so recording
+ * from any number of threads never takes a lock, and everything is merged only when a tool reads it.
+ * <p>
+ * Metrics are recorded from the moment they are created, but registered as an MBean only when asked to, and the metrics of the
+ * application only once the first game registers, so a game can register after its first frame and headless tools which never
+ * register a game don't load JMX at all.
+ * @author Nikola Stankovic
+ */
+public class GameMetrics implements ApplicationMetricsMXBean {
+	private static final GameMetrics application = new GameMetrics(null);
+	private static boolean applicationRegistered;
+
+	private GameMetrics parent;
+	private ObjectName name;
+	private LongAdder moves, started, won, lost, revealed, cipherCharacters, cipherTime;
+	private ConcurrentHistogram moveLatency, revealSize, repaintLatency;
+	private ConcurrentHistogram boardGeneration, scoreboardLoad, scoreboardSave, cipherLatency;
+
+	/**
+	 * Creates a GameMetrics object of a game, which isn't registered yet.
+	 */
+	public GameMetrics() {
+		this(application);
+	}
+
+	/**
+	 * Creates a GameMetrics object.
+	 * @param parent The metrics every value is also recorded into, or null for the metrics of the application.
+	 */
+	private GameMetrics(GameMetrics parent) {
+		this.parent = parent;
+		this.moves = new LongAdder();
+		this.started = new LongAdder();
+		this.won = new LongAdder();
+		this.lost = new LongAdder();
+		this.revealed = new LongAdder();
+		this.moveLatency = new ConcurrentHistogram();
+		this.revealSize = new ConcurrentHistogram();
+		this.repaintLatency = new ConcurrentHistogram();
+		if (parent == null) {
+			this.cipherCharacters = new LongAdder();
+			this.cipherTime = new LongAdder();
+			this.boardGeneration = new ConcurrentHistogram();
+			this.scoreboardLoad = new ConcurrentHistogram();
+			this.scoreboardSave = new ConcurrentHistogram();
+			this.cipherLatency = new ConcurrentHistogram();
+		}
+	}
+
+	/**
+	 * Returns the metrics of the whole application.
+	 * @return the aggregate metrics.
+	 */
+	public static GameMetrics getApplication() {
+		return application;
+	}
+
+	/**
+	 * Registers the metrics of a game with the platform MBean server, together with the metrics of the application if they aren't
+	 * registered yet. Values recorded before are kept. If JMX refuses the name, the metrics are still recorded, only not exposed.
+	 * @param name The name the game is registered under, unique in the application.
+	 */
+	public void register(String name) {
+		if (parent == null || this.name != null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			synchronized (GameMetrics.class) {
+				if (!applicationRegistered) {
+					ObjectName applicationName = new ObjectName("minesweeper:type=GameMetrics,name=application");
+					server.registerMBean(new StandardMBean(application, ApplicationMetricsMXBean.class, true), applicationName);
+					application.name = applicationName;
+					applicationRegistered = true;
+				}
+			}
+			ObjectName objectName = new ObjectName("minesweeper:type=GameMetrics,name=" + ObjectName.quote(name));
+			server.registerMBean(new StandardMBean(this, GameMetricsMXBean.class, true), objectName);
+			this.name = objectName;
+		} catch (JMException e) {}
+	}
+
+	/**
+	 * Removes the MBean of a game which ended. Its values stay in the metrics of the application.
+	 */
+	public void unregister() {
+		if (name == null || parent == null) return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {}
+		name = null;
+	}
+
+	/**
+	 * Records a processed move.
+	 * @param time Time it took to process the move in nanoseconds.
+	 */
+	public void moveProcessed(long time) {
+		moves.increment();
+		moveLatency.record(time);
+		if (parent != null) parent.moveProcessed(time);
+	}
+
+	/**
+	 * Records a move which opened cells.
+	 * @param cells Number of opened cells.
+	 */
+	public void cellsRevealed(int cells) {
+		revealed.add(cells);
+		revealSize.record(cells);
+		if (parent != null) parent.cellsRevealed(cells);
+	}
+
+	/**
+	 * Records the start of a new game.
+	 */
+	public void gameStarted() {
+		started.increment();
+		if (parent != null) parent.gameStarted();
+	}
+
+	/**
+	 * Records the end of a game.
+	 * @param victory true if the game was won, false if it was lost.
+	 */
+	public void gameEnded(boolean victory) {
+		if (victory) won.increment();
+		else lost.increment();
+		if (parent != null) parent.gameEnded(victory);
+	}
+
+	/**
+	 * Records the display of a move.
+	 * @param time Time it took to display the move in nanoseconds.
+	 */
+	public void repainted(long time) {
+		repaintLatency.record(time);
+		if (parent != null) parent.repainted(time);
+	}
+
+	/**
+	 * Records the generation of a board. Only the metrics of the application record it.
+	 * @param time Time it took to generate the board in nanoseconds.
+	 */
+	public void boardGenerated(long time) {
+		application.boardGeneration.record(time);
+	}
+
+	/**
+	 * Records loading the scoreboard. Only the metrics of the application record it.
+	 * @param time Time it took to load the scoreboard in nanoseconds.
+	 */
+	public void scoreboardLoaded(long time) {
+		application.scoreboardLoad.record(time);
+	}
+
+	/**
+	 * Records saving the scoreboard. Only the metrics of the application record it.
+	 * @param time Time it took to save the scoreboard in nanoseconds.
+	 */
+	public void scoreboardSaved(long time) {
+		application.scoreboardSave.record(time);
+	}
+
+	/**
+	 * Records ciphering or deciphering a string. Only the metrics of the application record it.
+	 * @param characters Length of the string.
+	 * @param time Time it took in nanoseconds.
+	 */
+	public void ciphered(int characters, long time) {
+		application.cipherCharacters.add(characters);
+		application.cipherTime.add(time);
+		application.cipherLatency.record(time);
+	}
+
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	public long getGamesStarted() {
+		return started.sum();
+	}
+
+	public long getGamesWon() {
+		return won.sum();
+	}
+
+	public long getGamesLost() {
+		return lost.sum();
+	}
+
+	public long getCellsRevealed() {
+		return revealed.sum();
+	}
+
+	public Distribution getMoveLatency() {
+		return new Distribution(moveLatency.getHistogram());
+	}
+
+	public Distribution getRevealSize() {
+		return new Distribution(revealSize.getHistogram());
+	}
+
+	public Distribution getRepaintLatency() {
+		return new Distribution(repaintLatency.getHistogram());
+	}
+
+	public Distribution getBoardGeneration() {
+		return new Distribution(application.boardGeneration.getHistogram());
+	}
+
+	public Distribution getScoreboardLoad() {
+		return new Distribution(application.scoreboardLoad.getHistogram());
+	}
+
+	public Distribution getScoreboardSave() {
+		return new Distribution(application.scoreboardSave.getHistogram());
+	}
+
+	public long getCipherCharacters() {
+		return application.cipherCharacters.sum();
+	}
+
+	public Distribution getCipherLatency() {
+		return new Distribution(application.cipherLatency.getHistogram());
+	}
+
+	public double getCipherThroughput() {
+		long time = application.cipherTime.sum();
+		return time == 0 ? 0 : application.cipherCharacters.sum() * 1e9 / time;
+	}
+
+	/**
+	 * A Distribution object is a summary of a histogram at the moment it was read, which JMX tools show as a composite value.
+	 */
+	public static class Distribution {
+		private long count, p50, p90, p99, p999, max;
+
+		/**
+		 * Creates a Distribution object out of a histogram.
+		 * @param histogram The histogram being summarized.
+		 */
+		public Distribution(Histogram histogram) {
+			this.count = histogram.getCount();
+			this.p50 = histogram.getPercentile(50);
+			this.p90 = histogram.getPercentile(90);
+			this.p99 = histogram.getPercentile(99);
+			this.p999 = histogram.getPercentile(99.9);
+			this.max = histogram.getMax();
+		}
+
+		/**
+		 * Returns the number of recorded values.
+		 * @return number of values.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the median.
+		 * @return the 50th percentile.
+		 */
+		public long getP50() {
+			return p50;
+		}
+
+		/**
+		 * Returns the 90th percentile.
+		 * @return the 90th percentile.
+		 */
+		public long getP90() {
+			return p90;
+		}
+
+		/**
+		 * Returns the 99th percentile.
+		 * @return the 99th percentile.
+		 */
+		public long getP99() {
+			return p99;
+		}
+
+		/**
+		 * Returns the 99.9th percentile.
+		 * @return the 99.9th percentile.
+		 */
+		public long getP999() {
+			return p999;
+		}
+
+		/**
+		 * Returns the largest recorded value.
+		 * @return maximum value.
+		 */
+		public long getMax() {
+			return max;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package minesweeper;
+
+/**
+ * A GameMetricsMXBean is the management interface of the metrics of a single game, or of all games of a server, as seen by JMX tools
+ * such as JConsole. Counters only grow, so tools can turn them into rates, and every distribution holds all values since the game
+ * was registered.
+ * @author Nikola Stankovic
+ */
+public interface GameMetricsMXBean {
+	/**
+	 * Returns the number of commands processed, including new games.
+	 * @return number of moves.
+	 */
+	long getMoves();
+
+	/**
+	 * Returns the number of games started.
+	 * @return number of games.
+	 */
+	long getGamesStarted();
+
+	/**
+	 * Returns the number of games won.
+	 * @return number of won games.
+	 */
+	long getGamesWon();
+
+	/**
+	 * Returns the number of games lost.
+	 * @return number of lost games.
+	 */
+	long getGamesLost();
+
+	/**
+	 * Returns the number of cells opened by all moves.
+	 * @return number of revealed cells.
+	 */
+	long getCellsRevealed();
+
+	/**
+	 * Returns the time it took to process a move.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getMoveLatency();
+
+	/**
+	 * Returns the number of cells opened by a move which opened any.
+	 * @return distribution of the numbers of cells.
+	 */
+	GameMetrics.Distribution getRevealSize();
+
+	/**
+	 * Returns the time it took to display the result of a move.
+	 * @return distribution of the times in nanoseconds.
+	 */
+	GameMetrics.Distribution getRepaintLatency();
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A GameServer object hosts many concurrent headless games behind the line-based protocol of Session, on a socket bound to localhost.
+ * Connections are accepted by a dedicated thread and spread over a fixed number of event loops, each of which serves all of its
+ * connections from a single NIO Selector, so the number of threads doesn't grow with the number of games. A request which fails
+ * unexpectedly closes only its own connection, never the loop serving the others.
+ * @author Nikola Stankovic
+ */
+public class GameServer {
+	public static final int DEFAULT_PORT = 7878;
+	public static final int MAX_CELLS = 1 << 20;
+	private static final int MAX_LINE = 256;
+
+	private ServerSocketChannel server;
+	private Loop loops[];
+	private Thread acceptor;
+	private volatile boolean running;
+	private GameMetrics metrics;
+
+	/**
+	 * Creates a GameServer object and binds it to a port on localhost. The server doesn't accept connections until it is started.
+	 * @param port The port the server listens on, or 0 for any free port.
+	 * @param threads Number of event loops serving the connections.
+	 * @throws IOException
+	 */
+	public GameServer(int port, int threads) throws IOException {
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("127.0.0.1", port), 1024);
+		loops = new Loop[threads];
+		for (int i = 0; i < threads; i++) loops[i] = new Loop(i);
+		metrics = new GameMetrics();
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * @return port number.
+	 * @throws IOException
+	 */
+	public int getPort() throws IOException {
+		return ((InetSocketAddress)server.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Starts the event loops and starts accepting connections. The metrics of all sessions are registered as a single MBean named
+	 * after the port, since a bean per session would cost more than the sessions themselves.
+	 */
+	public void start() {
+		running = true;
+		metrics.register("server-" + server.socket().getLocalPort());
+		for (Loop loop : loops) loop.start();
+
+		/* Accepted connections are handed to the event loops in turns. */
+		acceptor = new Thread("minesweeper-acceptor") {
+			public void run() {
+				int next = 0;
+				while (running) {
+					try {
+						SocketChannel channel = server.accept();
+						channel.configureBlocking(false);
+						channel.socket().setTcpNoDelay(true);
+						loops[next].add(channel);
+						next = (next + 1) % loops.length;
+					} catch (IOException e) {
+						if (running) System.err.println("Accept failed: " + e.getMessage());
+					}
+				}
+			}
+		};
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting connections and closes all connections and event loops.
+	 */
+	public void stop() {
+		running = false;
+		metrics.unregister();
+		try {
+			server.close();
+		} catch (IOException e) {}
+		for (Loop loop : loops) loop.selector.wakeup();
+	}
+
+	/**
+	 * A Loop object is a thread which reads requests from its connections, plays them on their sessions and writes the responses.
+	 */
+	private class Loop extends Thread {
+		private Selector selector;
+		private ConcurrentLinkedQueue<SocketChannel> pending;
+		private StringBuilder response;
+
+		private Loop(int id) throws IOException {
+			super("minesweeper-loop-" + id);
+			this.selector = Selector.open();
+			this.pending = new ConcurrentLinkedQueue<SocketChannel>();
+			this.response = new StringBuilder();
+		}
+
+		/**
+		 * Hands a newly accepted connection to the loop. Channels can only be registered from the loop's own thread, so the channel
+		 * waits in a queue until the selector is woken up.
+		 */
+		private void add(SocketChannel channel) {
+			pending.add(channel);
+			selector.wakeup();
+		}
+
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+
+					SocketChannel channel;
+					while ((channel = pending.poll()) != null) {
+						channel.register(selector, SelectionKey.OP_READ, new Connection(channel, metrics));
+					}
+
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						Connection connection = (Connection)key.attachment();
+						try {
+							if (key.isReadable()) connection.read(response);
+							if (key.isValid() && key.isWritable()) connection.flush();
+							if (connection.closing && !connection.out.hasRemaining()) connection.close();
+							else if (key.isValid()) {
+								key.interestOps(connection.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+							}
+						} catch (IOException e) {
+							connection.close();
+						} catch (RuntimeException e) {
+							System.err.println("Connection failed:");
+							e.printStackTrace();
+							connection.close();
+						}
+					}
+				}
+			} catch (IOException e) {
+				System.err.println("Event loop failed: " + e.getMessage());
+			} finally {
+				for (SelectionKey key : selector.keys()) ((Connection)key.attachment()).close();
+				try {
+					selector.close();
+				} catch (IOException e) {}
+			}
+		}
+	}
+
+	/**
+	 * A Connection object holds a single client's session together with its input and output buffers.
+	 */
+	private static class Connection {
+		private SocketChannel channel;
+		private Session session;
+		private ByteBuffer in;
+		private ByteBuffer out;
+		private StringBuilder line;
+		private boolean closing;
+
+		private Connection(SocketChannel channel, GameMetrics metrics) {
+			this.channel = channel;
+			this.session = new Session(MAX_CELLS, metrics);
+			this.in = ByteBuffer.allocate(1024);
+			this.out = ByteBuffer.allocate(1024);
+			this.out.flip();
+			this.line = new StringBuilder();
+		}
+
+		/**
+		 * Reads everything that is available, answers every complete request and tries to write the responses right away.
+		 * @param response A builder shared by all connections of the loop, used to assemble responses.
+		 */
+		private void read(StringBuilder response) throws IOException {
+			if (channel.read(in) < 0) {
+				closing = true;
+				return;
+			}
+			in.flip();
+			response.setLength(0);
+			while (in.hasRemaining() && !closing) {
+				char c = (char)(in.get() & 0xFF);
+				if (c == '\n') {
+					session.handle(line.toString().trim(), response);
+					line.setLength(0);
+					if (session.isClosed()) closing = true;
+				}
+				else if (line.length() < MAX_LINE) line.append(c);
+			}
+			in.clear();
+			if (response.length() > 0) {
+				queue(response);
+				flush();
+			}
+		}
+
+		/**
+		 * Appends a response to the output buffer, growing the buffer if needed.
+		 */
+		private void queue(CharSequence response) {
+			if (out.capacity() - out.remaining() < response.length()) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.remaining() + response.length()));
+				bigger.put(out);
+				out = bigger;
+			}
+			else out.compact();
+			for (int i = 0; i < response.length(); i++) out.put((byte)response.charAt(i));
+			out.flip();
+		}
+
+		/**
+		 * Writes as much of the output buffer as the socket accepts without blocking.
+		 */
+		private void flush() throws IOException {
+			if (out.hasRemaining()) channel.write(out);
+		}
+
+		/**
+		 * Closes the connection, which also cancels its registration with the selector.
+		 */
+		private void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * Starts a server. The optional arguments are the port and the number of event loops.
+	 * @param args Arguments for the main function.
+	 * @throws IOException
+	 */
+	public static void main(String args[]) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		GameServer server = new GameServer(port, threads);
+		server.start();
+		System.out.println("Minesweeper server listening on 127.0.0.1:" + server.getPort() + " with " + threads + " event loops.");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package minesweeper;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A Histogram object records latencies in nanoseconds with a relative precision of about 3%, using a fixed number of buckets no matter
+ * how many values are recorded. Values below 64 are stored exactly, and every higher power of two is split into 32 equal sub-buckets.
+ * @author Nikola Stankovic
+ */
+public class Histogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int EXACT = SUB_BUCKETS * 2;
+	static final int BUCKETS = EXACT + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+	private long counts[];
+	private long total;
+	private long max;
+
+	/**
+	 * Creates an empty Histogram object.
+	 */
+	public Histogram() {
+		counts = new long[BUCKETS];
+	}
+
+	/**
+	 * Records a single value.
+	 * @param value The value being recorded, usually a duration in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if (value < 0) value = 0;
+		counts[bucket(value)]++;
+		total++;
+		if (value > max) max = value;
+	}
+
+	/**
+	 * Adds all values recorded in another histogram to this one.
+	 * @param other The histogram being merged.
+	 */
+	public void merge(Histogram other) {
+		for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+		total += other.total;
+		if (other.max > max) max = other.max;
+	}
+
+	/**
+	 * Adds values to a single bucket, for recorders which keep their buckets elsewhere and merge them into a histogram.
+	 * @param bucket The bucket, as returned by bucket.
+	 * @param count Number of values added to the bucket.
+	 * @param max The largest value recorded by the recorder.
+	 */
+	void add(int bucket, long count, long max) {
+		counts[bucket] += count;
+		total += count;
+		if (max > this.max) this.max = max;
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+		total = 0;
+		max = 0;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * @return number of values.
+	 */
+	public long getCount() {
+		return total;
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 * @return maximum value.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the value below which a given percentage of recorded values fall.
+	 * @param percentile The percentage, between 0 and 100.
+	 * @return the upper bound of the bucket containing the percentile, or 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (total == 0) return 0;
+		long rank = (long)Math.ceil(percentile / 100 * total);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * Makes a short summary of the histogram, with values converted from nanoseconds to microseconds.
+	 * @return a formatted string.
+	 */
+	public String getPrintable() {
+		return String.format("count=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", total,
+				getPercentile(50) / 1000.0, getPercentile(90) / 1000.0, getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0,
+				max / 1000.0);
+	}
+
+	/**
+	 * Writes the histogram to a stream. Only the buckets which hold values are written, so a histogram of a few values stays small.
+	 * @param out The stream the histogram is written to.
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		int used = 0;
+		for (int i = 0; i < BUCKETS; i++) if (counts[i] != 0) used++;
+		out.writeLong(total);
+		out.writeLong(max);
+		out.writeInt(used);
+		for (int i = 0; i < BUCKETS; i++) {
+			if (counts[i] == 0) continue;
+			out.writeShort(i);
+			out.writeLong(counts[i]);
+		}
+	}
+
+	/**
+	 * Reads a histogram written by write.
+	 * @param in The stream the histogram is read from.
+	 * @return the histogram.
+	 * @throws IOException
+	 */
+	public static Histogram read(DataInputStream in) throws IOException {
+		Histogram histogram = new Histogram();
+		histogram.total = in.readLong();
+		histogram.max = in.readLong();
+		int used = in.readInt();
+		for (int i = 0; i < used; i++) {
+			int bucket = in.readUnsignedShort();
+			if (bucket >= BUCKETS) throw new IOException("Invalid histogram bucket " + bucket);
+			histogram.counts[bucket] = in.readLong();
+		}
+		return histogram;
+	}
+
+	/**
+	 * Finds the bucket of a value.
+	 */
+	static int bucket(long value) {
+		if (value < EXACT) return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return EXACT + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value that falls in a bucket.
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < EXACT) return bucket;
+		int exponent = (bucket - EXACT) / SUB_BUCKETS + SUB_BITS + 1;
+		long sub = (bucket - EXACT) % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+}
\ No newline at end of file
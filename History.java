@@ -0,0 +1,138 @@
+package minesweeper;
+
+import java.util.ArrayList;
+
+/**
+ * A History object is an unlimited undo/redo log of moves. Every move is stored as a Delta which only contains the cells changed by
+ * that move, so the memory taken by every undo step grows only with the size of its change, never with the size of the field.
+ * <p>
+ * In order to keep random access to any point of the game bounded, every CHECKPOINT_INTERVAL moves are also merged into a single
+ * checkpoint delta, every CHECKPOINT_INTERVAL checkpoints into a checkpoint of the next level, and so on. A checkpoint holds only the
+ * cells its moves changed, so the checkpoints take at most as much memory per level as the moves themselves. Seeking to any position
+ * combines at most 2 * (CHECKPOINT_INTERVAL - 1) deltas per level instead of every move in between.
+ * @author Nikola Stankovic
+ */
+public class History {
+	public static final int CHECKPOINT_INTERVAL = 64;
+
+	private ArrayList<Delta> moves;
+	private ArrayList<ArrayList<Delta>> checkpoints;		// Entry k of level l merges moves k * N^(l+1) to (k+1) * N^(l+1) - 1.
+	private int position;
+
+	/**
+	 * Creates an empty History object.
+	 */
+	public History() {
+		this.moves = new ArrayList<Delta>();
+		this.checkpoints = new ArrayList<ArrayList<Delta>>();
+		this.position = 0;
+	}
+
+	/**
+	 * Records a move which was just played. All moves that were undone before this one can no longer be redone.
+	 * @param delta The cells changed by the move.
+	 */
+	public void record(Delta delta) {
+		if (delta.isEmpty()) return;
+
+		while (moves.size() > position) moves.remove(moves.size() - 1);
+		long span = CHECKPOINT_INTERVAL;
+		for (ArrayList<Delta> level : checkpoints) {
+			while (level.size() > position / span) level.remove(level.size() - 1);
+			span *= CHECKPOINT_INTERVAL;
+		}
+
+		moves.add(delta);
+		position++;
+
+		/* Every CHECKPOINT_INTERVAL entries of a level which were just completed are merged into an entry of the level above. */
+		ArrayList<Delta> below = moves;
+		span = CHECKPOINT_INTERVAL;
+		for (int level = 0; position % span == 0; level++, span *= CHECKPOINT_INTERVAL) {
+			if (level == checkpoints.size()) checkpoints.add(new ArrayList<Delta>());
+			checkpoints.get(level).add(Delta.merge(below.subList(below.size() - CHECKPOINT_INTERVAL, below.size())));
+			below = checkpoints.get(level);
+		}
+	}
+
+	/**
+	 * Steps one move back.
+	 * @return the delta of the undone move which needs to be reverted, or null if there is nothing to undo.
+	 */
+	public Delta undo() {
+		if (!canUndo()) return null;
+		return moves.get(--position);
+	}
+
+	/**
+	 * Steps one move forward.
+	 * @return the delta of the redone move which needs to be applied again, or null if there is nothing to redo.
+	 */
+	public Delta redo() {
+		if (!canRedo()) return null;
+		return moves.get(position++);
+	}
+
+	/**
+	 * Steps to any position of the history at once, using the largest checkpoints which fit between the current position and the
+	 * target.
+	 * @param target Number of moves applied after the step, between 0 and the number of recorded moves.
+	 * @return the delta whose after states need to be applied to reach the target, with the before states of the current position.
+	 * @throws IllegalArgumentException if the target is outside the history.
+	 */
+	public Delta seek(int target) {
+		if (target < 0 || target > moves.size()) throw new IllegalArgumentException("position outside the history");
+
+		int from = Math.min(position, target), to = Math.max(position, target);
+		ArrayList<Delta> path = new ArrayList<Delta>();
+		while (from < to) {
+			int level = -1;
+			long span = 1;
+			while (level + 1 < checkpoints.size()) {
+				long next = span * CHECKPOINT_INTERVAL;
+				if (from % next != 0 || from + next > to) break;
+				level++;
+				span = next;
+			}
+			path.add(level < 0 ? moves.get(from) : checkpoints.get(level).get((int)(from / span)));
+			from += span;
+		}
+
+		Delta delta = Delta.merge(path);
+		boolean forward = target > position;
+		position = target;
+		return forward ? delta : delta.reverse();
+	}
+
+	/**
+	 * Checks if there is a move that can be undone.
+	 * @return true if a move can be undone, false otherwise.
+	 */
+	public boolean canUndo() {
+		return position > 0;
+	}
+
+	/**
+	 * Checks if there is a move that can be redone.
+	 * @return true if a move can be redone, false otherwise.
+	 */
+	public boolean canRedo() {
+		return position < moves.size();
+	}
+
+	/**
+	 * Returns the number of moves currently applied to the field.
+	 * @return current position in the history.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the total number of recorded moves, including the ones that were undone.
+	 * @return number of recorded moves.
+	 */
+	public int size() {
+		return moves.size();
+	}
+}
\ No newline at end of file
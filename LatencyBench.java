@@ -0,0 +1,237 @@
+package minesweeper;
+
+import java.awt.Component;
+import java.awt.Dialog;
+import java.awt.EventQueue;
+import java.awt.Point;
+import java.awt.Robot;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.InputEvent;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A LatencyBench object plays the real Game with a Robot and measures how long every input takes to show on the screen, from the
+ * moment the mouse button is released, or the new game is asked for, until the engine has published the result, the event dispatch
+ * thread has painted it and the display has drawn everything it was sent. Clicks land on random cells and are grouped by what they
+ * did: opens of a single cell, flood fills of an opening and flag toggles, and new games are measured separately, for each difficulty
+ * and for large custom boards. A game which ends is started again, so its dialogs are closed without being measured.
+ * <pre>
+ * java minesweeper.LatencyBench [games] [clicks] [limit]
+ * </pre>
+ * Every configuration plays the given number of games of at most the given number of clicks each. With a limit in milliseconds, the
+ * exit status is 1 if the 99th percentile of any group exceeded it, so the benchmark can fail a build. It needs a display; latency.sh
+ * runs it on a virtual X display when there isn't one.
+ * @author Nikola Stankovic
+ */
+public class LatencyBench {
+	private static final long TIMEOUT = 2000;
+	private static final int CUSTOM[][] = {{100, 100, 1000}, {1000, 1000, 100000}};
+
+	private Game game;
+	private GameEngine engine;
+	private Robot robot;
+	private SplittableRandom random;
+	private LinkedBlockingQueue<Snapshot> snapshots;
+	private LinkedHashMap<String, Histogram> results;
+
+	/**
+	 * Creates a LatencyBench object and opens the game.
+	 * @throws Exception
+	 */
+	public LatencyBench() throws Exception {
+		this.robot = new Robot();
+		this.random = new SplittableRandom(42);
+		this.snapshots = new LinkedBlockingQueue<Snapshot>();
+		this.results = new LinkedHashMap<String, Histogram>();
+
+		final Game created[] = new Game[1];
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					created[0] = new Game(Difficulty.EASY);
+				} catch (IOException e) {}
+			}
+		});
+		this.game = created[0];
+		this.engine = game.getEngine();
+		engine.addListener(new GameEngine.Listener() {
+			public void snapshotPublished(Snapshot snapshot) {
+				snapshots.add(snapshot);
+			}
+		});
+		settle();
+	}
+
+	/**
+	 * Plays all configurations.
+	 * @param games Number of games of every configuration.
+	 * @param clicks Largest number of clicks of a game.
+	 */
+	public void run(int games, int clicks) throws Exception {
+		for (Difficulty diff : Difficulty.values()) {
+			for (int i = 0; i < games; i++) {
+				restart("" + diff, diff, 0, 0, 0);
+				play("" + diff, clicks);
+			}
+		}
+		for (int custom[] : CUSTOM) {
+			String name = custom[0] + "x" + custom[1];
+			for (int i = 0; i < games; i++) {
+				restart(name, null, custom[0], custom[1], custom[2]);
+				play(name, clicks);
+			}
+		}
+	}
+
+	/**
+	 * Starts a new game the way the menu does and measures it.
+	 * @param name The name the game is recorded under.
+	 * @param diff The difficulty of the game, or null for a custom board of the given size.
+	 */
+	private void restart(String name, final Difficulty diff, final int rows, final int columns, final int mines) throws Exception {
+		closeDialogs();
+		snapshots.clear();
+		long start = System.nanoTime();
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				if (diff == null) game.restartCustom(rows, columns, mines);
+				else game.selectDifficulty(diff);
+			}
+		});
+		Snapshot snapshot;
+		do snapshot = snapshots.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		while (snapshot != null && !snapshot.isRestarted());
+		if (snapshot == null) throw new IllegalStateException("The game didn't restart.");
+		Point center = board().getLocationOnScreen();
+		record(name, "new game", start, center.x + 1, center.y + 1);
+	}
+
+	/**
+	 * Plays random clicks until the game ends or the number of clicks is reached.
+	 * @param name The name the clicks are recorded under.
+	 */
+	private void play(String name, int clicks) throws Exception {
+		for (int i = 0; i < clicks && engine.getSnapshot().getStatus() == Status.PLAYING; i++) {
+			Component board = board();
+			Point origin = board.getLocationOnScreen();
+
+			/* Clicks stay away from the edges of a BoardCanvas, where its minimap is drawn. */
+			int x = origin.x + board.getWidth() / 5 + random.nextInt(Math.max(1, board.getWidth() * 3 / 5));
+			int y = origin.y + board.getHeight() / 5 + random.nextInt(Math.max(1, board.getHeight() * 3 / 5));
+			boolean flag = random.nextInt(5) == 0;
+			int button = flag ? InputEvent.BUTTON3_DOWN_MASK : InputEvent.BUTTON1_DOWN_MASK;
+
+			robot.mouseMove(x, y);
+			robot.waitForIdle();
+			snapshots.clear();
+			robot.mousePress(button);
+			long start = System.nanoTime();
+			robot.mouseRelease(button);
+
+			Snapshot snapshot;
+			do snapshot = snapshots.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+			while (snapshot != null && snapshot.isTick());
+			if (snapshot == null || snapshot.getChangedCount() == 0) {
+				settle();
+				continue;
+			}
+			String kind = flag ? "flag" : snapshot.getChangedCount() == 1 ? "open" : "flood fill";
+			record(name, kind, start, x, y);
+		}
+	}
+
+	/**
+	 * Waits until the result of an input is on the screen and records the time since the input.
+	 */
+	private void record(String name, String kind, long start, int x, int y) throws Exception {
+		settle();
+		robot.getPixelColor(x, y);
+		long elapsed = System.nanoTime() - start;
+
+		String key = String.format("%-10s %-10s", name, kind);
+		Histogram histogram = results.get(key);
+		if (histogram == null) results.put(key, histogram = new Histogram());
+		histogram.record(elapsed);
+	}
+
+	/**
+	 * Waits until the event dispatch thread has handled all events, including the paints of the last snapshot, and the display has
+	 * received all drawing requests. Reading a pixel afterwards waits until the display has drawn them.
+	 */
+	private void settle() throws InterruptedException, InvocationTargetException {
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {}
+		});
+		robot.waitForIdle();
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	/**
+	 * Hides the dialogs shown when a game ends.
+	 */
+	private void closeDialogs() throws Exception {
+		settle();
+		for (final Window window : Window.getWindows()) {
+			if (!(window instanceof Dialog) || !window.isShowing()) continue;
+			EventQueue.invokeLater(new Runnable() {
+				public void run() {
+					window.setVisible(false);
+				}
+			});
+			settle();
+		}
+	}
+
+	/**
+	 * Returns the component which displays the board.
+	 */
+	private Component board() {
+		for (Component component : game.getComponents()) {
+			if ((component instanceof Field || component instanceof BoardCanvas) && component.isShowing()) return component;
+		}
+		throw new IllegalStateException("The board isn't displayed.");
+	}
+
+	/**
+	 * Prints the percentiles of every group in milliseconds.
+	 * @param limit The largest allowed 99th percentile in milliseconds, or 0 for none.
+	 * @return true if no group exceeded the limit.
+	 */
+	public boolean report(double limit) {
+		boolean passed = true;
+		System.out.printf("%-10s %-10s %8s %8s %8s %8s %8s%n", "board", "input", "count", "p50", "p90", "p99", "max");
+		for (String key : results.keySet()) {
+			Histogram h = results.get(key);
+			System.out.printf("%s %8d %8.2f %8.2f %8.2f %8.2f%n", key, h.getCount(), h.getPercentile(50) / 1e6, h.getPercentile(90) / 1e6,
+					h.getPercentile(99) / 1e6, h.getMax() / 1e6);
+			if (limit > 0 && h.getPercentile(99) / 1e6 > limit) {
+				System.out.println("  p99 exceeds the limit of " + limit + " ms.");
+				passed = false;
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * Runs the benchmark. The optional arguments are the number of games of every configuration, the largest number of clicks of a
+	 * game and the limit of the 99th percentile in milliseconds.
+	 * @param args Arguments for the main function.
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int clicks = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		double limit = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+		LatencyBench bench = new LatencyBench();
+		bench.run(games, clicks);
+		boolean passed = bench.report(limit);
+		System.exit(passed ? 0 : 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,289 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * A LoadGenerator object plays many games at once against a GameServer and measures the latency of every request. Every
+ * connection plays random opens and flags and starts a new game as soon as the previous one ends, sending its requests at a fixed
+ * rate, like a player who clicks every so often, so the latency measured is the server's and not the time requests spend queued
+ * behind each other. A request is due at a fixed interval after the previous one; when a slow response delays it past that
+ * moment, its latency is counted from the moment it was due rather than from when it could be sent, so a stalled server isn't
+ * hidden by the requests it kept from being sent. With a rate of 0 every connection sends its next request as soon as the
+ * response arrives instead, which measures throughput, while the latencies then mostly show how long requests waited.
+ * <p>
+ * Without a port argument, a server is started in the same JVM, where it competes with the generator for the processors. To check
+ * a latency target, start the server in a process of its own, ideally on other processors, and pass its port:
+ * <pre>
+ * java minesweeper.GameServer 7878 &amp;
+ * java minesweeper.LoadGenerator [--rate requests] [--target-p99 milliseconds] [connections] [seconds] [threads] [port]
+ * </pre>
+ * The rate is the number of requests every connection sends per second, 10 by default. With a target, the exit status is 1 if the
+ * 99th percentile of move latency exceeds it.
+ * @author Nikola Stankovic
+ */
+public class LoadGenerator {
+	private static final int WARMUP_SECONDS = 2;
+
+	private InetSocketAddress address;
+	private int connections, seconds, threads;
+	private long interval;
+	private Histogram moves, games;
+	private volatile boolean recording, running;
+
+	/**
+	 * Creates a LoadGenerator object.
+	 * @param address Address of the server.
+	 * @param connections Number of concurrent games.
+	 * @param seconds Duration of the measurement, not counting the warmup.
+	 * @param threads Number of client threads the connections are spread over.
+	 * @param rate Number of requests every connection sends per second, or 0 to send every request as soon as the previous one is
+	 * answered.
+	 */
+	public LoadGenerator(InetSocketAddress address, int connections, int seconds, int threads, double rate) {
+		this.address = address;
+		this.connections = connections;
+		this.seconds = seconds;
+		this.threads = threads;
+		this.interval = rate > 0 ? (long)(1e9 / rate) : 0;
+		this.moves = new Histogram();
+		this.games = new Histogram();
+	}
+
+	/**
+	 * Opens all connections, plays games for the warmup period and then for the measured period, and prints the results.
+	 * @param target The largest allowed 99th percentile of move latency in milliseconds, or 0 for none.
+	 * @return true if the 99th percentile of move latency didn't exceed the target.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public boolean run(double target) throws IOException, InterruptedException {
+		Worker workers[] = new Worker[threads];
+		for (int i = 0; i < threads; i++) workers[i] = new Worker(i);
+		for (int i = 0; i < connections; i++) workers[i % threads].connect(i);
+		System.out.println("Opened " + connections + " connections to " + address + (interval > 0 ? ", each sending "
+				+ String.format("%.1f", 1e9 / interval) + " requests per second." : ", each sending as fast as it is answered."));
+
+		running = true;
+		for (Worker worker : workers) worker.start();
+		Thread.sleep(WARMUP_SECONDS * 1000L);
+		recording = true;
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+		recording = false;
+		long elapsed = System.nanoTime() - start;
+		running = false;
+		for (Worker worker : workers) worker.join();
+
+		long late = 0;
+		for (Worker worker : workers) {
+			moves.merge(worker.moves);
+			games.merge(worker.games);
+			late += worker.late;
+		}
+		System.out.printf("Moves:     %.0f/s %s%n", moves.getCount() * 1e9 / elapsed, moves.getPrintable());
+		System.out.printf("New games: %.0f/s %s%n", games.getCount() * 1e9 / elapsed, games.getPrintable());
+		if (interval > 0) System.out.println(late + " requests were due before the previous response arrived.");
+		if (target > 0 && moves.getPercentile(99) / 1e6 > target) {
+			System.out.println("Move p99 exceeds the target of " + target + " ms.");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A Worker object is a thread which drives its share of the connections from a single selector. Connections waiting for their
+	 * next request to be due are kept in a queue ordered by that moment.
+	 */
+	private class Worker extends Thread {
+		private Selector selector;
+		private ArrayList<Client> clients;
+		private PriorityQueue<Client> idle;
+		private Histogram moves, games;
+		private ByteBuffer request;
+		private long late;
+
+		private Worker(int id) throws IOException {
+			super("minesweeper-load-" + id);
+			this.selector = Selector.open();
+			this.clients = new ArrayList<Client>();
+			this.idle = new PriorityQueue<Client>(16, new Comparator<Client>() {
+				public int compare(Client a, Client b) {
+					return Long.compare(a.due, b.due);
+				}
+			});
+			this.moves = new Histogram();
+			this.games = new Histogram();
+			this.request = ByteBuffer.allocate(64);
+		}
+
+		/**
+		 * Opens a connection and registers it with the worker's selector.
+		 */
+		private void connect(int id) throws IOException {
+			SocketChannel channel = SocketChannel.open(address);
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Client client = new Client(channel, id);
+			channel.register(selector, SelectionKey.OP_READ, client);
+			clients.add(client);
+		}
+
+		public void run() {
+			try {
+				/* The first requests are spread over an interval, so the connections don't all send at the same moment. */
+				long now = System.nanoTime();
+				for (Client client : clients) {
+					client.due = now + (interval > 0 ? client.random.nextLong(interval) : 0);
+					idle.add(client);
+				}
+				while (running) {
+					now = System.nanoTime();
+					while (!idle.isEmpty() && idle.peek().due <= now) send(idle.poll(), now);
+
+					long wait = idle.isEmpty() ? 100 : (idle.peek().due - now + 999999) / 1000000;
+					if (wait > 0) selector.select(wait);
+					else selector.selectNow();
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						Client client = (Client)key.attachment();
+						if (!client.receive()) continue;
+
+						/* A request which became due while the previous one was answered is sent right away, timed from when it was due. */
+						now = System.nanoTime();
+						client.due += interval;
+						if (interval == 0 || client.due > now) idle.add(client);
+						else if (running) {
+							if (recording) late++;
+							send(client, client.due);
+						}
+					}
+				}
+				for (SelectionKey key : selector.keys()) key.channel().close();
+				selector.close();
+			} catch (IOException e) {
+				System.err.println("Load generator failed: " + e.getMessage());
+			}
+		}
+
+		/**
+		 * Sends the next request of a client. A finished game is followed by a new game, otherwise a random cell is opened or flagged.
+		 * @param start The moment the latency of the request is counted from.
+		 */
+		private void send(Client client, long start) throws IOException {
+			request.clear();
+			if (client.ended) {
+				put("NEW 10 10 10");
+				client.newGame = true;
+			}
+			else {
+				put(client.random.nextInt(4) == 0 ? "FLAG " : "OPEN ");
+				put(Integer.toString(client.random.nextInt(10)));
+				put(" ");
+				put(Integer.toString(client.random.nextInt(10)));
+				client.newGame = false;
+			}
+			put("\n");
+			request.flip();
+			client.due = start;
+			while (request.hasRemaining()) client.channel.write(request);
+		}
+
+		private void put(String string) {
+			for (int i = 0; i < string.length(); i++) request.put((byte)string.charAt(i));
+		}
+
+		/**
+		 * A Client object is the state of a single connection.
+		 */
+		private class Client {
+			private SocketChannel channel;
+			private SplittableRandom random;
+			private ByteBuffer in;
+			private StringBuilder header;
+			private long due;
+			private boolean ended, newGame;
+
+			private Client(SocketChannel channel, int id) {
+				this.channel = channel;
+				this.random = new SplittableRandom(id);
+				this.in = ByteBuffer.allocate(4096);
+				this.header = new StringBuilder();
+			}
+
+			/**
+			 * Reads the available part of the response. Only the beginning of the line is kept, since it holds the game status.
+			 * @return true if the whole response was read, false otherwise.
+			 */
+			private boolean receive() throws IOException {
+				in.clear();
+				if (channel.read(in) < 0) throw new IOException("Connection closed by the server.");
+				in.flip();
+				while (in.hasRemaining()) {
+					char c = (char)in.get();
+					if (c != '\n') {
+						if (header.length() < 16) header.append(c);
+						continue;
+					}
+
+					long latency = System.nanoTime() - due;
+					if (recording) {
+						if (newGame) games.record(latency);
+						else moves.record(latency);
+					}
+					String line = header.toString();
+					if (line.startsWith("ERR")) throw new IOException("Server error: " + line);
+					ended = line.startsWith("MOVE WON") || line.startsWith("MOVE LOST");
+					header.setLength(0);
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Runs the load generator. The options --rate and --target-p99 may come before the other arguments.
+	 * @param args Number of connections, number of measured seconds, number of client threads and the port of a running server.
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		double rate = 10, target = 0;
+		int first = 0;
+		while (first + 1 < args.length && args[first].startsWith("--")) {
+			if (args[first].equals("--rate")) rate = Double.parseDouble(args[first + 1]);
+			else if (args[first].equals("--target-p99")) target = Double.parseDouble(args[first + 1]);
+			else throw new IllegalArgumentException("Unknown option " + args[first] + ".");
+			first += 2;
+		}
+		int connections = args.length > first ? Integer.parseInt(args[first]) : 10000;
+		int seconds = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : 10;
+		int threads = args.length > first + 2 ? Integer.parseInt(args[first + 2])
+				: Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+		GameServer server = null;
+		int port;
+		if (args.length > first + 3) port = Integer.parseInt(args[first + 3]);
+		else {
+			server = new GameServer(0, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+			server.start();
+			port = server.getPort();
+			if (target > 0) System.out.println("The server runs in the same JVM; start it on its own to check a latency target.");
+		}
+
+		boolean passed = new LoadGenerator(new InetSocketAddress("127.0.0.1", port), connections, seconds, threads, rate).run(target);
+		if (server != null) server.stop();
+		System.exit(passed ? 0 : 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package minesweeper;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A MipmapPyramid object is an overview of a board as a stack of images. The base level has one pixel per cell, stored as a single
+ * byte indexing a palette, and every following level has half the width and height of the previous one, each pixel being the
+ * average of the four pixels below it, down to a single pixel. Changed cells only mark the tiles of the base level they belong to,
+ * and flushing recomputes just the marked tiles on every level, so a move costs in proportion to the area it changed and not to the
+ * size of the board.
+ * @author Nikola Stankovic
+ */
+public class MipmapPyramid {
+	private static final int TILE_SHIFT = 6;
+
+	private int levels;
+	private int widths[], heights[];
+	private int palette[];
+	private byte base[];
+	private int pixels[][];
+	private BufferedImage images[];
+	private int tilesAcross;
+	private BitSet dirty;
+
+	/**
+	 * Creates a MipmapPyramid object with every cell set to the same color.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param palette The colors cells can have, at most 256.
+	 * @param color Index of the initial color of every cell.
+	 */
+	public MipmapPyramid(int rows, int columns, int palette[], int color) {
+		int count = 1;
+		while ((columns - 1) >> (count - 1) > 0 || (rows - 1) >> (count - 1) > 0) count++;
+		this.levels = count;
+		this.widths = new int[levels];
+		this.heights = new int[levels];
+		this.pixels = new int[levels][];
+		this.images = new BufferedImage[levels];
+		this.palette = palette;
+		for (int k = 0; k < levels; k++) {
+			widths[k] = ((columns - 1) >> k) + 1;
+			heights[k] = ((rows - 1) >> k) + 1;
+		}
+
+		this.base = new byte[rows * columns];
+		Arrays.fill(base, (byte)color);
+		images[0] = new BufferedImage(columns, rows, BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, palette.length, palette, 0, false, -1, 0));
+		images[0].getRaster().setDataElements(0, 0, columns, rows, base);
+		for (int k = 1; k < levels; k++) {
+			pixels[k] = new int[widths[k] * heights[k]];
+			Arrays.fill(pixels[k], palette[color]);
+			images[k] = new BufferedImage(widths[k], heights[k], BufferedImage.TYPE_INT_RGB);
+			images[k].getRaster().setDataElements(0, 0, widths[k], heights[k], pixels[k]);
+		}
+		this.tilesAcross = ((columns - 1) >> TILE_SHIFT) + 1;
+		this.dirty = new BitSet();
+	}
+
+	/**
+	 * Returns the number of levels of the pyramid.
+	 * @return number of levels.
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Returns the width of a level.
+	 * @param level The level.
+	 * @return width of the level in pixels.
+	 */
+	public int getWidth(int level) {
+		return widths[level];
+	}
+
+	/**
+	 * Returns the height of a level.
+	 * @param level The level.
+	 * @return height of the level in pixels.
+	 */
+	public int getHeight(int level) {
+		return heights[level];
+	}
+
+	/**
+	 * Returns the image of a level. The image is only up to date after flush was called.
+	 * @param level The level.
+	 * @return image of the level.
+	 */
+	public BufferedImage getImage(int level) {
+		return images[level];
+	}
+
+	/**
+	 * Changes the color of a cell on the base level and marks its tile for the next flush.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @param color Index of the new color of the cell.
+	 */
+	public void set(int x, int y, int color) {
+		base[x * widths[0] + y] = (byte)color;
+		dirty.set((x >> TILE_SHIFT) * tilesAcross + (y >> TILE_SHIFT));
+	}
+
+	/**
+	 * Recomputes every level inside the marked tiles and copies the recomputed pixels into the images.
+	 */
+	public void flush() {
+		for (int tile = dirty.nextSetBit(0); tile >= 0; tile = dirty.nextSetBit(tile + 1)) {
+			int x0 = (tile / tilesAcross) << TILE_SHIFT, y0 = (tile % tilesAcross) << TILE_SHIFT;
+			int x1 = Math.min(x0 + (1 << TILE_SHIFT), heights[0]) - 1, y1 = Math.min(y0 + (1 << TILE_SHIFT), widths[0]) - 1;
+			copy(0, x0, y0, x1, y1);
+			for (int k = 1; k < levels; k++) {
+				for (int x = x0 >> k; x <= x1 >> k; x++) {
+					for (int y = y0 >> k; y <= y1 >> k; y++) pixels[k][x * widths[k] + y] = average(k - 1, x * 2, y * 2);
+				}
+				copy(k, x0 >> k, y0 >> k, x1 >> k, y1 >> k);
+			}
+		}
+		dirty.clear();
+	}
+
+	/**
+	 * Averages the colors of up to four pixels of a level, starting at row x and column y.
+	 */
+	private int average(int level, int x, int y) {
+		int r = 0, g = 0, b = 0, n = 0;
+		for (int dx = 0; dx < 2 && x + dx < heights[level]; dx++) {
+			for (int dy = 0; dy < 2 && y + dy < widths[level]; dy++) {
+				int index = (x + dx) * widths[level] + y + dy;
+				int rgb = level == 0 ? palette[base[index] & 255] : pixels[level][index];
+				r += (rgb >> 16) & 255; g += (rgb >> 8) & 255; b += rgb & 255;
+				n++;
+			}
+		}
+		return ((r / n) << 16) | ((g / n) << 8) | (b / n);
+	}
+
+	/**
+	 * Copies a rectangle of a level's pixels into its image. The image's raster is written through setDataElements rather than
+	 * through its backing array, so it can still be cached by the graphics pipeline.
+	 */
+	private void copy(int level, int x0, int y0, int x1, int y1) {
+		int w = y1 - y0 + 1, h = x1 - x0 + 1;
+		Object source = level == 0 ? base : pixels[level];
+		Object rect = level == 0 ? new byte[w * h] : new int[w * h];
+		for (int x = 0; x < h; x++) System.arraycopy(source, (x0 + x) * widths[level] + y0, rect, x * w, w);
+		images[level].getRaster().setDataElements(y0, x0, w, h, rect);
+	}
+}
\ No newline at end of file
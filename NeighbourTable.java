@@ -0,0 +1,118 @@
+package minesweeper;
+
+/**
+ * A NeighbourTable object holds the neighbours of every cell of a board with a given topology, computed once, so code which visits
+ * neighbours doesn't need to know the topology or check the edges of the board. The neighbours of a cell are stored one after
+ * another in a single array, always degree of them. Neighbours a cell doesn't have, because they are outside the board or because
+ * a small wrapping board reaches the same cell twice or the cell itself, point to the sentinel: an extra cell after the last cell of
+ * the board, which storages keep opened and without a mine, so it never counts as a mine and is never revealed.
+ * <p>
+ * Computing a table visits every neighbour once, so the last table of every topology is kept and shared by all boards of the same
+ * size, which is what new games of the same difficulty are.
+ * @author Nikola Stankovic
+ */
+public class NeighbourTable {
+	private static final NeighbourTable cache[] = new NeighbourTable[Topology.values().length];
+
+	private Topology topology;
+	private int rows, columns, size, degree;
+	private int neighbours[];
+
+	/**
+	 * Creates a NeighbourTable object and computes the neighbours of every cell.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param topology The topology of the board.
+	 */
+	public NeighbourTable(int rows, int columns, Topology topology) {
+		if (rows <= 0 || columns <= 0 || (long)rows * columns * topology.getDegree() > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Invalid board size " + rows + "x" + columns + ".");
+		}
+		this.topology = topology;
+		this.rows = rows;
+		this.columns = columns;
+		this.size = rows * columns;
+		this.degree = topology.getDegree();
+		this.neighbours = new int[size * degree];
+
+		for (int x = 0, i = 0; x < rows; x++) {
+			for (int y = 0; y < columns; y++) {
+				int cell = x * columns + y, first = i;
+				for (int n = 0; n < degree; n++, i++) {
+					int next = topology.getNeighbour(rows, columns, x, y, n);
+					for (int j = first; j < i && next >= 0; j++) if (neighbours[j] == next) next = -1;
+					neighbours[i] = next < 0 || next == cell ? size : next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the table of a board, computing it only if the last table of the same topology was made for a different size. Can be
+	 * called from any thread.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param topology The topology of the board.
+	 * @return the neighbour table.
+	 */
+	public static NeighbourTable get(int rows, int columns, Topology topology) {
+		synchronized (cache) {
+			NeighbourTable table = cache[topology.ordinal()];
+			if (table != null && table.rows == rows && table.columns == columns) return table;
+		}
+		NeighbourTable table = new NeighbourTable(rows, columns, topology);
+		synchronized (cache) {
+			cache[topology.ordinal()] = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the topology the table was computed for.
+	 * @return topology of the board.
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the number of rows of the board.
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the board.
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of cells of the board, which is also the index of the sentinel.
+	 * @return number of cells.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of neighbours stored for every cell.
+	 * @return degree of the topology.
+	 */
+	public int getDegree() {
+		return degree;
+	}
+
+	/**
+	 * Returns the neighbours of all cells. The neighbours of a cell start at its index times the degree. The array is shared and must
+	 * not be changed.
+	 * @return row-major indices of the neighbours, or the size of the board for missing neighbours.
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+}
\ No newline at end of file
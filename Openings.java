@@ -0,0 +1,213 @@
+package minesweeper;
+
+/**
+ * An Openings object labels the openings of a board once its mines are placed. An opening is a group of cells without surrounding
+ * mines which touch each other, together with its border, the numbered cells around it, and opening any of its cells without
+ * surrounding mines opens exactly the whole opening. The groups are found in a single pass over the board with a union-find, and
+ * the cells of every opening are stored one after another in ascending order, so an opening can be revealed without checking any
+ * neighbours. The same pass finds the 3BV of the board, the smallest number of clicks which clears it: one click for every opening,
+ * and one for every numbered cell outside of all openings. Boards whose storage has a NeighbourTable are labelled through the table,
+ * which works for every topology.
+ * @author Nikola Stankovic
+ */
+public class Openings {
+	private int opening[];
+	private int start[];
+	private int members[];
+	private int count;
+	private int value;
+
+	/**
+	 * Creates an Openings object and labels the openings of a square board.
+	 * @param cells The storage of the board, after its mines were placed.
+	 */
+	public Openings(CellStorage cells) {
+		this(cells, null);
+	}
+
+	/**
+	 * Creates an Openings object and labels the openings of a board whose neighbours are given by a table.
+	 * @param cells The storage of the board, after its mines were placed.
+	 * @param table The neighbours of the cells, or null for a square board.
+	 */
+	public Openings(CellStorage cells, NeighbourTable table) {
+		int rows = cells.getRows(), columns = cells.getColumns(), size = rows * columns;
+
+		/* The extra element stands for the sentinel of the table, which belongs to no opening. */
+		this.opening = new int[size + 1];
+		opening[size] = -1;
+
+		/* Reads every cell from the storage only once, as the number of surrounding mines, or -1 for a mine. */
+		byte counts[] = new byte[size];
+		for (int cell = 0; cell < size; cell++) counts[cell] = cells.hasMine(cell) ? -1 : (byte)cells.getSurroundingMines(cell);
+
+		/* Joins every cell without surrounding mines with its neighbours without surrounding mines which were already visited. */
+		int parent[] = opening;
+		int neighbours[] = table == null ? null : table.getNeighbours(), degree = table == null ? 8 : table.getDegree();
+		for (int cell = 0; table != null && cell < size; cell++) {
+			if (counts[cell] != 0) {
+				parent[cell] = -1;
+				continue;
+			}
+			parent[cell] = cell;
+			for (int i = cell * degree; i < cell * degree + degree; i++) {
+				int next = neighbours[i];
+				if (next < cell && parent[next] >= 0) union(parent, cell, next);
+			}
+		}
+		for (int x = 0; table == null && x < rows; x++) {
+			for (int y = 0; y < columns; y++) {
+				int cell = x * columns + y;
+				if (counts[cell] != 0) {
+					parent[cell] = -1;
+					continue;
+				}
+				parent[cell] = cell;
+				if (y > 0 && parent[cell - 1] >= 0) union(parent, cell, cell - 1);
+				if (x > 0) {
+					for (int dy = -1; dy <= 1; dy++) {
+						if (y + dy >= 0 && y + dy < columns && parent[cell - columns + dy] >= 0) union(parent, cell, cell - columns + dy);
+					}
+				}
+			}
+		}
+
+		/* Numbers the openings in the order of their first cell. Every cell points to a smaller cell of its group, except for the root,
+		 * which is the first cell of the group, so a single scan can replace the pointers with the numbers of the openings. The numbers
+		 * are stored as -2 - number until the scan is done, so they can't be mistaken for pointers.
+		 */
+		for (int cell = 0; cell < size; cell++) {
+			if (parent[cell] < 0) continue;
+			opening[cell] = parent[cell] == cell ? -2 - count++ : opening[parent[cell]];
+		}
+		for (int cell = 0; cell < size; cell++) if (opening[cell] != -1) opening[cell] = -2 - opening[cell];
+
+		/* Counts the cells of every opening, then fills them in ascending order. A numbered cell belongs to every opening it touches. */
+		int found[] = new int[degree];
+		this.start = new int[count + 1];
+		for (int pass = 0; pass < 2; pass++) {
+			int next[] = pass == 0 ? null : start.clone();
+			if (pass == 1) this.members = new int[start[count]];
+			for (int cell = 0; cell < size; cell++) {
+				if (counts[cell] < 0) continue;
+				int length = opening[cell] >= 0 ? 1 : table != null ? touching(neighbours, degree, cell, found) : touching(rows, columns, cell, found);
+				if (opening[cell] >= 0) found[0] = opening[cell];
+				if (pass == 0 && length == 0) value++;
+				for (int i = 0; i < length; i++) {
+					if (pass == 0) start[found[i] + 1]++;
+					else members[next[found[i]]++] = cell;
+				}
+			}
+			if (pass == 0) for (int i = 0; i < count; i++) start[i + 1] += start[i];
+		}
+		value += count;
+	}
+
+	/**
+	 * Returns the 3BV of the board.
+	 * @return the smallest number of clicks which clears the board.
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the number of openings of the board.
+	 * @return number of openings.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the opening of a cell without surrounding mines.
+	 * @param cell Row-major index of the cell.
+	 * @return the number of the opening, or -1 if the cell has a mine or surrounding mines.
+	 */
+	public int getOpening(int cell) {
+		return opening[cell];
+	}
+
+	/**
+	 * Returns the position of the first cell of an opening.
+	 * @param opening The number of the opening.
+	 * @return position of its first cell.
+	 */
+	public int getStart(int opening) {
+		return start[opening];
+	}
+
+	/**
+	 * Returns the position after the last cell of an opening.
+	 * @param opening The number of the opening.
+	 * @return position after its last cell.
+	 */
+	public int getEnd(int opening) {
+		return start[opening + 1];
+	}
+
+	/**
+	 * Returns a cell of an opening.
+	 * @param position Position of the cell, between the start and the end of its opening.
+	 * @return row-major index of the cell.
+	 */
+	public int getMember(int position) {
+		return members[position];
+	}
+
+	/**
+	 * Collects the distinct openings of the neighbours of a numbered cell.
+	 * @return number of openings found.
+	 */
+	private int touching(int rows, int columns, int cell, int found[]) {
+		int x = cell / columns, y = cell % columns, length = 0;
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				int nx = x + dx, ny = y + dy;
+				if (nx < 0 || nx >= rows || ny < 0 || ny >= columns) continue;
+				int id = opening[nx * columns + ny];
+				if (id < 0) continue;
+				boolean seen = false;
+				for (int i = 0; i < length && !seen; i++) seen = found[i] == id;
+				if (!seen) found[length++] = id;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Collects the distinct openings of the neighbours of a numbered cell from a neighbour table.
+	 * @return number of openings found.
+	 */
+	private int touching(int neighbours[], int degree, int cell, int found[]) {
+		int length = 0;
+		for (int i = cell * degree; i < cell * degree + degree; i++) {
+			int id = opening[neighbours[i]];
+			if (id < 0) continue;
+			boolean seen = false;
+			for (int j = 0; j < length && !seen; j++) seen = found[j] == id;
+			if (!seen) found[length++] = id;
+		}
+		return length;
+	}
+
+	/**
+	 * Finds the root of a group, halving the path on the way.
+	 */
+	private static int find(int parent[], int cell) {
+		while (parent[cell] != cell) {
+			parent[cell] = parent[parent[cell]];
+			cell = parent[cell];
+		}
+		return cell;
+	}
+
+	/**
+	 * Joins the groups of two cells, keeping the smaller root so that a root is always the first cell of its group.
+	 */
+	private static void union(int parent[], int a, int b) {
+		int rootA = find(parent, a), rootB = find(parent, b);
+		if (rootA < rootB) parent[rootB] = rootA;
+		else if (rootB < rootA) parent[rootA] = rootB;
+	}
+}
\ No newline at end of file
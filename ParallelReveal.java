@@ -0,0 +1,214 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A ParallelReveal object opens a large empty area of a board on several cores. The area is expanded level by level: every level
+ * is the frontier of opened cells without surrounding mines, whose neighbours still have to be visited, and it is split into tasks
+ * of a ForkJoinPool which visit the neighbours and build the next frontier. A neighbour is claimed with a compare-and-set on a shared
+ * bitmap, so every cell is opened by exactly one task no matter how many frontier cells touch it. The bitmap is split into pages
+ * which are only allocated once a cell of theirs is claimed, so its memory follows the size of the area rather than of the board.
+ * The storage is only read while the area is expanded; the claimed cells are applied to the board afterwards, in a single batch.
+ * <p>
+ * A Board hands over an area once a move has opened THRESHOLD cells of it one by one, on any storage. Boards of up to
+ * Board.LABELLED_CELLS cells reveal their openings from precomputed lists and never get there. A BitboardStorage opens a whole area 64
+ * cells at a time on a single core, which visiting the cells one by one only beats with enough threads, so a Board opens its areas
+ * cell by cell instead only when the pool has at least BULK_PARALLELISM threads; the claimed cells are then opened by the storage a
+ * word at a time.
+ * @author Nikola Stankovic
+ */
+public class ParallelReveal {
+	/** Number of cells a move opens sequentially before the rest of the area is opened in parallel. */
+	public static final int THRESHOLD = 1 << 16;
+	/** Number of threads the pool needs before a storage which opens whole areas at once hands them over to the parallel reveal. */
+	public static final int BULK_PARALLELISM = 8;
+	private static final int GRAIN = 1024;
+	private static final int PAGE_BITS = 16;
+
+	private CellStorage cells;
+	private NeighbourTable table;
+	private int rows, columns, size;
+	private ForkJoinPool pool;
+	private AtomicReferenceArray<AtomicLongArray> claimed;
+	private LongAdder count, flagged;
+
+	/**
+	 * Creates a ParallelReveal object for a board.
+	 * @param cells The storage of the board, which must not change until the area is expanded.
+	 * @param table The neighbour table of the board, or null for the eight neighbours of a square board.
+	 * @param pool The pool the tasks are executed in.
+	 */
+	public ParallelReveal(CellStorage cells, NeighbourTable table, ForkJoinPool pool) {
+		this.cells = cells;
+		this.table = table;
+		this.rows = cells.getRows();
+		this.columns = cells.getColumns();
+		this.size = rows * columns;
+		this.pool = pool;
+		this.claimed = new AtomicReferenceArray<AtomicLongArray>((int)(((long)size + (1 << PAGE_BITS) - 1) >>> PAGE_BITS));
+		this.count = new LongAdder();
+		this.flagged = new LongAdder();
+	}
+
+	/**
+	 * Expands the area from a frontier until no cells are left to open.
+	 * @param frontier Opened cells without surrounding mines whose neighbours haven't been visited yet.
+	 * @param length Number of cells in the frontier.
+	 * @return number of claimed cells.
+	 */
+	public long expand(int frontier[], int length) {
+		while (length > 0) {
+			frontier = pool.invoke(new Level(frontier, 0, length));
+			length = frontier.length;
+		}
+		return count.sum();
+	}
+
+	/**
+	 * Returns the number of claimed cells which were flagged.
+	 * @return number of flags the claimed cells hold.
+	 */
+	public long getFlagged() {
+		return flagged.sum();
+	}
+
+	/**
+	 * Returns the claims of 64 consecutive cells, so a storage can open the claimed cells a word at a time.
+	 * @param from Row-major index of the first cell.
+	 * @return a word whose lowest bit is the claim of the first cell, with zeros for cells past the end of the board.
+	 */
+	public long getClaimed(int from) {
+		int shift = from & 63;
+		long bits = getWord(from >>> 6) >>> shift;
+		return shift == 0 ? bits : bits | getWord((from >>> 6) + 1) << (64 - shift);
+	}
+
+	/**
+	 * Returns a word of the claimed bitmap, or zero if its page was never allocated.
+	 */
+	private long getWord(int word) {
+		int page = word >>> (PAGE_BITS - 6);
+		AtomicLongArray words = page < claimed.length() ? claimed.get(page) : null;
+		return words == null ? 0 : words.get(word & (words.length() - 1));
+	}
+
+	/**
+	 * Finds the next claimed cell, so the claimed cells can be visited in ascending order.
+	 * @param from Row-major index the search starts from.
+	 * @return row-major index of the first claimed cell at or after from, or -1 if there are none.
+	 */
+	public int nextClaimed(int from) {
+		for (int page = from >>> PAGE_BITS; from < size && page < claimed.length(); page++, from = page << PAGE_BITS) {
+			AtomicLongArray words = claimed.get(page);
+			if (words == null) continue;
+			int first = (from >>> 6) & (words.length() - 1);
+			for (int word = first; word < words.length(); word++) {
+				long bits = words.get(word);
+				if (word == first) bits &= -1L << from;
+				if (bits != 0) return (page << PAGE_BITS) + (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks if a cell was claimed, without claiming it.
+	 */
+	private boolean isClaimed(int index) {
+		AtomicLongArray words = claimed.get(index >>> PAGE_BITS);
+		return words != null && (words.get((index >>> 6) & (words.length() - 1)) & (1L << index)) != 0;
+	}
+
+	/**
+	 * Claims a cell, unless another task already claimed it. The page of the cell is allocated by the first task claiming one of its
+	 * cells.
+	 * @return true if the cell was claimed by this call, false otherwise.
+	 */
+	private boolean claim(int index) {
+		int page = index >>> PAGE_BITS;
+		AtomicLongArray words = claimed.get(page);
+		if (words == null) {
+			claimed.compareAndSet(page, null, new AtomicLongArray(1 << (PAGE_BITS - 6)));
+			words = claimed.get(page);
+		}
+		int word = (index >>> 6) & (words.length() - 1);
+		long bit = 1L << index;
+		while (true) {
+			long current = words.get(word);
+			if ((current & bit) != 0) return false;
+			if (words.compareAndSet(word, current, current | bit)) return true;
+		}
+	}
+
+	/**
+	 * A Level task visits the neighbours of a part of the frontier and returns the part of the next frontier it found.
+	 */
+	private class Level extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private int frontier[], next[];
+		private int from, to, length;
+
+		Level(int frontier[], int from, int to) {
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected int[] compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				Level left = new Level(frontier, from, middle);
+				left.fork();
+				int right[] = new Level(frontier, middle, to).compute();
+				int joined[] = left.join();
+				int result[] = Arrays.copyOf(joined, joined.length + right.length);
+				System.arraycopy(right, 0, result, joined.length, right.length);
+				return result;
+			}
+
+			next = new int[16];
+			length = 0;
+			int claims = 0;
+			for (int i = from; i < to; i++) {
+				int cell = frontier[i];
+				if (table != null) {
+					int neighbours[] = table.getNeighbours(), degree = table.getDegree();
+					for (int j = cell * degree; j < cell * degree + degree; j++) if (neighbours[j] != size) claims += visit(neighbours[j]);
+					continue;
+				}
+				int cx = cell / columns, cy = cell % columns;
+				for (int dx = -1; dx <= 1; dx++) {
+					for (int dy = -1; dy <= 1; dy++) {
+						int nx = cx + dx, ny = cy + dy;
+						if (nx >= 0 && nx < rows && ny >= 0 && ny < columns) claims += visit(nx * columns + ny);
+					}
+				}
+			}
+			count.add(claims);
+			return Arrays.copyOf(next, length);
+		}
+
+		/**
+		 * Claims a neighbour of a frontier cell and adds it to the next frontier if it has no surrounding mines. Neighbours of a cell
+		 * without surrounding mines never have a mine, so they only need to be claimed. Most neighbours were already claimed through
+		 * another frontier cell, which is checked before the storage is read.
+		 * @return 1 if the neighbour was claimed by this task, 0 otherwise.
+		 */
+		private int visit(int neighbour) {
+			if (isClaimed(neighbour)) return 0;
+			byte state = cells.getState(neighbour);
+			if (state == Delta.OPENED || !claim(neighbour)) return 0;
+			if (state == Delta.FLAGGED) flagged.increment();
+			if (cells.getSurroundingMines(neighbour) == 0) {
+				if (length == next.length) next = Arrays.copyOf(next, length * 2);
+				next[length++] = neighbour;
+			}
+			return 1;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package minesweeper;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A PlayerStatistics object summarizes every finished game of a player on one kind of board. Games are not kept: each one only updates
+ * running totals and a Histogram of the winning times, so the statistics take the same amount of memory after ten games as after ten
+ * million, and two summaries can be merged into the summary of all their games.
+ * @author Nikola Stankovic
+ */
+public class PlayerStatistics {
+	private long games, wins;
+	private long bestTime = Long.MAX_VALUE;
+	private long totalTime;
+	private long wonClicks, wonValue, valueTime;
+	private Histogram times;
+
+	/**
+	 * Creates a PlayerStatistics object without any games.
+	 */
+	public PlayerStatistics() {
+		this.times = new Histogram();
+	}
+
+	/**
+	 * Records a finished game.
+	 * @param won true if the game was won, false if it was lost.
+	 * @param time The time of the game in milliseconds.
+	 * @param clicks Number of opens and flags played in the game.
+	 * @param value The 3BV of the board, or 0 if it isn't known, in which case the game doesn't count towards the efficiency.
+	 */
+	public void record(boolean won, long time, int clicks, int value) {
+		games++;
+		if (!won) return;
+		wins++;
+		bestTime = Math.min(bestTime, time);
+		totalTime += time;
+		times.record(time);
+		if (value == 0) return;
+		wonClicks += clicks;
+		wonValue += value;
+		valueTime += time;
+	}
+
+	/**
+	 * Records the game of a snapshot which ended it.
+	 * @param snapshot The snapshot in which the game was won or lost.
+	 */
+	public void record(Snapshot snapshot) {
+		record(snapshot.getStatus() == Status.WON, snapshot.getTime() * 10L, snapshot.getClicks(), snapshot.getValue());
+	}
+
+	/**
+	 * Adds all games of another summary to this one.
+	 * @param other The summary being merged.
+	 */
+	public void merge(PlayerStatistics other) {
+		games += other.games;
+		wins += other.wins;
+		bestTime = Math.min(bestTime, other.bestTime);
+		totalTime += other.totalTime;
+		wonClicks += other.wonClicks;
+		wonValue += other.wonValue;
+		valueTime += other.valueTime;
+		times.merge(other.times);
+	}
+
+	/**
+	 * Returns the number of finished games.
+	 * @return number of games.
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Returns the number of won games.
+	 * @return number of wins.
+	 */
+	public long getWins() {
+		return wins;
+	}
+
+	/**
+	 * Returns the share of games which were won.
+	 * @return win rate between 0 and 1, or 0 if no game was finished.
+	 */
+	public double getWinRate() {
+		return games == 0 ? 0 : (double)wins / games;
+	}
+
+	/**
+	 * Returns the time of the fastest win.
+	 * @return best time in milliseconds, or 0 if no game was won.
+	 */
+	public long getBestTime() {
+		return wins == 0 ? 0 : bestTime;
+	}
+
+	/**
+	 * Returns the average time of the won games.
+	 * @return mean time in milliseconds, or 0 if no game was won.
+	 */
+	public long getMeanTime() {
+		return wins == 0 ? 0 : totalTime / wins;
+	}
+
+	/**
+	 * Returns the time below which a percentage of the wins fall, within the precision of a Histogram.
+	 * @param percentile The percentage, between 0 and 100.
+	 * @return time in milliseconds, or 0 if no game was won.
+	 */
+	public long getTime(double percentile) {
+		return Math.max(getBestTime(), times.getPercentile(percentile));
+	}
+
+	/**
+	 * Returns the efficiency of the won games, the 3BV of their boards divided by the clicks played, which is 1 for a game played
+	 * without a single unnecessary click.
+	 * @return 3BV per click, or 0 if no game on a board with a known 3BV was won.
+	 */
+	public double getEfficiency() {
+		return wonClicks == 0 ? 0 : (double)wonValue / wonClicks;
+	}
+
+	/**
+	 * Returns the speed of the won games, which unlike the time can be compared between boards of a different difficulty.
+	 * @return 3BV per second, or 0 if no game on a board with a known 3BV was won.
+	 */
+	public double getSpeed() {
+		return valueTime == 0 ? 0 : wonValue * 1000.0 / valueTime;
+	}
+
+	/**
+	 * Writes the summary to a stream.
+	 * @param out The stream the summary is written to.
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeLong(games);
+		out.writeLong(wins);
+		out.writeLong(bestTime);
+		out.writeLong(totalTime);
+		out.writeLong(wonClicks);
+		out.writeLong(wonValue);
+		out.writeLong(valueTime);
+		times.write(out);
+	}
+
+	/**
+	 * Reads a summary written by write.
+	 * @param in The stream the summary is read from.
+	 * @return the summary.
+	 * @throws IOException
+	 */
+	public static PlayerStatistics read(DataInputStream in) throws IOException {
+		PlayerStatistics statistics = new PlayerStatistics();
+		statistics.games = in.readLong();
+		statistics.wins = in.readLong();
+		statistics.bestTime = in.readLong();
+		statistics.totalTime = in.readLong();
+		statistics.wonClicks = in.readLong();
+		statistics.wonValue = in.readLong();
+		statistics.valueTime = in.readLong();
+		statistics.times = Histogram.read(in);
+		return statistics;
+	}
+}
\ No newline at end of file
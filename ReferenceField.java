@@ -0,0 +1,196 @@
+package minesweeper;
+
+/**
+ * A ReferenceField object is a headless copy of the rules of the original Field and Tile, kept as the reference the optimized boards
+ * are tested against. It keeps the original algorithms, like the recursive opening of cells, the scan of the whole field after every
+ * opened cell and the counting of flags and unopened cells in checkTiles, with the labels replaced by arrays, the dialogs of the game
+ * replaced by a status and the mines given instead of placed randomly. The only change is in counting the surrounding mines: the
+ * original compared rows with the number of columns and columns with the number of rows, which only worked for square fields.
+ * @author Nikola Stankovic
+ */
+public class ReferenceField {
+	private int rows, columns, mines, flags;
+	private boolean mine[][], flag[][], opened[][];
+	private int text[][];
+	private Status status;
+
+	/**
+	 * Creates a ReferenceField object with mines on the given cells.
+	 * @param rows Number of rows of the field.
+	 * @param columns Number of columns of the field.
+	 * @param mineCells Row-major indices of the cells with a mine.
+	 */
+	public ReferenceField(int rows, int columns, int mineCells[]) {
+		this.rows = rows;
+		this.columns = columns;
+		this.flags = this.mines = mineCells.length;
+		this.mine = new boolean[rows][columns];
+		this.flag = new boolean[rows][columns];
+		this.opened = new boolean[rows][columns];
+		this.text = new int[rows][columns];
+		this.status = Status.PLAYING;
+		for (int cell : mineCells) mine[cell / columns][cell % columns] = true;
+	}
+
+	/**
+	 * Left click on the tile at row x and column y, which explodes the field if the tile has a mine and opens it otherwise.
+	 * @param x The row of the tile.
+	 * @param y The column of the tile.
+	 */
+	public void open(int x, int y) {
+		if (status != Status.PLAYING) return;
+		if (mine[x][y]) endGame();
+		else openTile(x, y);
+	}
+
+	/**
+	 * Right click on the tile at row x and column y, which places a flag if the tile hadn't been opened, there are flags remaining and
+	 * a flag isn't already on the tile, or removes the flag if one is placed.
+	 * @param x The row of the tile.
+	 * @param y The column of the tile.
+	 */
+	public void flag(int x, int y) {
+		if (status != Status.PLAYING) return;
+		if (flag[x][y] == false && flags > 0 && !opened[x][y]) {
+			flag[x][y] = true;
+			flags--;
+		}
+		else if (flag[x][y] == true) {
+			flag[x][y] = false;
+			flags++;
+		}
+	}
+
+	/**
+	 * Returns the number of flags left on the field.
+	 * @return remaining number of flags.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Returns the status of the game.
+	 * @return PLAYING until the game ends, then WON or LOST.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Checks if the tile at row x and column y was opened.
+	 * @return true if the tile was opened, false otherwise.
+	 */
+	public boolean isOpened(int x, int y) {
+		return opened[x][y];
+	}
+
+	/**
+	 * Checks if the tile at row x and column y has a flag.
+	 * @return true if a flag is placed, false otherwise.
+	 */
+	public boolean hasFlag(int x, int y) {
+		return flag[x][y];
+	}
+
+	/**
+	 * Returns the number displayed on the opened tile at row x and column y.
+	 * @return number of surrounding mines, 0 for a tile without a number.
+	 */
+	public int getText(int x, int y) {
+		return text[x][y];
+	}
+
+	/**
+	 * Returns the number of opened tiles, counted over the whole field like checkTiles counts the unopened ones.
+	 * @return number of opened tiles.
+	 */
+	public int getOpened() {
+		int tiles = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) if (opened[i][j]) tiles++;
+		}
+		return tiles;
+	}
+
+	/**
+	 * Checks if the game is completed. If all tiles with a mine have been flagged or if the remaining number of unopened tiles
+	 * is equal to the number of mines, the game was successfully completed and the call returns true, otherwise returns false.
+	 * @return true if game was successfully completed, false otherwise.
+	 */
+	public boolean checkTiles() {
+		int success = 0;
+		int tiles = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				if (mine[i][j] && flag[i][j]) success++;
+				if (!opened[i][j]) tiles++;
+			}
+		}
+		if (success == mines || tiles == mines) return true;
+		else return false;
+	}
+
+	/**
+	 * Ends the game, which is won if the field is successfully completed and lost otherwise.
+	 */
+	private void endGame() {
+		if (status != Status.PLAYING) return;
+		status = checkTiles() ? Status.WON : Status.LOST;
+	}
+
+	/**
+	 * Opens the tile at row x and column y, removing its flag, and ends the game once all tiles without mines are opened.
+	 */
+	private void openTile(int x, int y) {
+		if (flag[x][y]) {
+			flag[x][y] = false;
+			flags++;
+		}
+		opened[x][y] = true;
+
+		/* First just sets the open flag of a tile to true before actually opening the tile due to the recursive calls of
+		 * countSurroundingMines. */
+		text[x][y] = countSurroundingMines(x, y);
+
+		/* If all tiles without mines have been opened, the game ends. */
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				if (!(opened[i][j] || mine[i][j])) return;
+			}
+		}
+		endGame();
+	}
+
+	/**
+	 * Counts the number of surrounding tiles with mines. If the number is equal to 0, all unopened surrounding tiles are opened,
+	 * causing a recursive call.
+	 * @return number of surrounding tiles with mines.
+	 */
+	private int countSurroundingMines(int x, int y) {
+		int count = 0;
+
+		if ((x-1)>=0 && (y-1)>=0 && mine[x-1][y-1]) count++;								// Top left
+		if ((x-1)>=0 && mine[x-1][y]) count++;												// Top
+		if ((x-1)>=0 && (y+1)<columns && mine[x-1][y+1]) count++;							// Top right
+		if ((y+1)<columns && mine[x][y+1]) count++;											// Right
+		if ((x+1)<rows && (y+1)<columns && mine[x+1][y+1]) count++;							// Bottom right
+		if ((x+1)<rows && mine[x+1][y]) count++;											// Bottom
+		if ((x+1)<rows && (y-1)>=0 && mine[x+1][y-1]) count++;								// Bottom left
+		if ((y-1)>=0 && mine[x][y-1]) count++;												// Left
+
+		// Opens unopened surrounding tiles recursively if there are no surrounding mines.
+		if (count == 0) {
+			if ((x-1)>=0 && (y-1)>=0 && !opened[x-1][y-1]) openTile(x-1, y-1);
+			if ((x-1)>=0 && !opened[x-1][y]) openTile(x-1, y);
+			if ((x-1)>=0 && (y+1)<columns && !opened[x-1][y+1]) openTile(x-1, y+1);
+			if ((y+1)<columns && !opened[x][y+1]) openTile(x, y+1);
+			if ((x+1)<rows && (y+1)<columns && !opened[x+1][y+1]) openTile(x+1, y+1);
+			if ((x+1)<rows && !opened[x+1][y]) openTile(x+1, y);
+			if ((x+1)<rows && (y-1)>=0 && !opened[x+1][y-1]) openTile(x+1, y-1);
+			if ((y-1)>=0 && !opened[x][y-1]) openTile(x, y-1);
+		}
+
+		return count;
+	}
+}
\ No newline at end of file
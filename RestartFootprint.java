@@ -0,0 +1,128 @@
+package minesweeper;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A RestartFootprint object checks that starting new games doesn't make the game use more and more memory. It opens the real Game and
+ * starts hundreds of new games, switching between the difficulties and a custom size so that the field is both reused and resized,
+ * and compares the heap which is still in use after a garbage collection once the warmup is over and after the last game. It also
+ * checks that no timer threads are left behind, and prints how many bytes the event dispatch thread allocated per new game.
+ * <pre>
+ * java minesweeper.RestartFootprint [restarts] [limit]
+ * </pre>
+ * The exit status is 1 if the heap grew by more than the limit in kilobytes, 512 by default, or if more than one timer thread is
+ * alive. It needs a display; latency.sh runs it on a virtual X display with --footprint.
+ * @author Nikola Stankovic
+ */
+public class RestartFootprint {
+	private static final int WARMUP = 100;
+
+	private Game game;
+	private GameEngine engine;
+	private Thread dispatcher;
+
+	/**
+	 * Creates a RestartFootprint object and opens the game.
+	 * @throws Exception
+	 */
+	public RestartFootprint() throws Exception {
+		final Game created[] = new Game[1];
+		final Thread thread[] = new Thread[1];
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					created[0] = new Game(Difficulty.EASY);
+				} catch (IOException e) {}
+				thread[0] = Thread.currentThread();
+			}
+		});
+		this.game = created[0];
+		this.engine = game.getEngine();
+		this.dispatcher = thread[0];
+	}
+
+	/**
+	 * Starts a new game, cycling through the difficulties and a custom size, and waits until it is displayed.
+	 * @param i Number of the new game.
+	 */
+	private void restart(final int i) throws Exception {
+		final long version = engine.getSnapshot().getVersion();
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {
+				switch (i % 5) {
+					case 0: game.restartCustom(19, 21, 40); break;
+					case 4: game.selectDifficulty(Difficulty.HARD); break;
+					case 3: game.selectDifficulty(Difficulty.MEDIUM); break;
+					default: game.selectDifficulty(Difficulty.EASY); break;
+				}
+			}
+		});
+		while (engine.getSnapshot().getVersion() == version) Thread.sleep(1);
+
+		/* The snapshot is displayed by an event posted after it was published, so it has been applied once a later event has run. */
+		EventQueue.invokeAndWait(new Runnable() {
+			public void run() {}
+		});
+	}
+
+	/**
+	 * Returns the heap still in use after collecting garbage until it stops shrinking.
+	 */
+	private static long usedHeap() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			Thread.sleep(20);
+			long now = memory.getHeapMemoryUsage().getUsed();
+			if (now >= used) break;
+			used = now;
+		}
+		return used;
+	}
+
+	/**
+	 * Returns the number of bytes a thread allocated so far, or -1 if the virtual machine doesn't measure it.
+	 */
+	private static long allocated(Thread thread) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+		return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(thread.getId());
+	}
+
+	/**
+	 * Runs the check. The optional arguments are the number of new games and the allowed growth of the heap in kilobytes.
+	 * @param args Arguments for the main function.
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		int restarts = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		long limit = args.length > 1 ? Long.parseLong(args[1]) : 512;
+
+		RestartFootprint check = new RestartFootprint();
+		for (int i = 0; i < WARMUP; i++) check.restart(i);
+		long before = usedHeap();
+		long allocatedBefore = allocated(check.dispatcher);
+
+		for (int i = 0; i < restarts; i++) check.restart(WARMUP + i);
+		long allocatedAfter = allocated(check.dispatcher);
+		long after = usedHeap();
+		int timers = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) if (thread instanceof Timer) timers++;
+
+		long growth = (after - before) / 1024;
+		System.out.println("Heap after " + WARMUP + " new games: " + before / 1024 + " KB, after " + (WARMUP + restarts) + ": "
+				+ after / 1024 + " KB, growth: " + growth + " KB (limit " + limit + " KB).");
+		System.out.println("Timer threads alive: " + timers + ".");
+		if (allocatedBefore >= 0) {
+			System.out.println("Allocated by the event dispatch thread: " + (allocatedAfter - allocatedBefore) / restarts + " bytes per new game.");
+		}
+		boolean passed = growth <= limit && timers <= 1;
+		System.out.println(passed ? "Passed." : "Failed.");
+		System.exit(passed ? 0 : 1);
+	}
+}
\ No newline at end of file
@@ -1,125 +1,110 @@
 package minesweeper;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * A Scoreboard object is used to keep track of player scores.
+ * A Scoreboard object is used to keep track of player scores. A Scoreboard is thread safe, so a single one can be shared by every game
+ * and session of the application: each difficulty is guarded by its own lock, which is only taken by players who beat the slowest
+ * time of a full scoreboard, and readers always see a whole scoreboard as it was after some addition, never one being updated.
+ * <p>
+ * Several processes can share the same files too. Loading and saving lock the file 'scoreboard.lock', which holds a version that
+ * every save increases. If another process saved since the scoreboard was last loaded or saved, its files are read again and the
+ * players added here since then are merged into them before they are written, so no process overwrites the results of another.
  * @author Nikola Stankovic
  */
 public class Scoreboard {
-	private ArrayList<Player> listEasy, listMed, listHard;
-	private FileReader fileEasy, fileMed, fileHard;
+	private static final int SIZE = 10;
+	private static final File LOCK = new File(System.getProperty("user.dir") + "/scoreboard.lock");
+	private static Scoreboard shared;
+
+	private Ranking rankEasy, rankMed, rankHard;
 	private Cipher cryptor;
+	private long version;
 	
 	/**
-	 * Creates a Scoreboard object. Creates three lists of players and three file readers, one for each difficulty.
+	 * Creates a Scoreboard object. Creates three rankings of players, one for each difficulty.
 	 * It loads previously saved scoreboards from respective files, after deciphering their contents.
 	 * @throws IOException
 	 */
 	public Scoreboard() throws IOException {
+		long start = System.nanoTime();
 		cryptor = new Cipher();
-		listEasy = new ArrayList<Player>();
-		listMed = new ArrayList<Player>();
-		listHard = new ArrayList<Player>();
-		fileEasy = new FileReader(Difficulty.EASY);
-		fileMed = new FileReader(Difficulty.MEDIUM);
-		fileHard = new FileReader(Difficulty.HARD);
+		rankEasy = new Ranking();
+		rankMed = new Ranking();
+		rankHard = new Ranking();
 		
-		while(fileEasy.hasNextLine()) {
-			String line = fileEasy.getLine();
-			
-			line = cryptor.decrypt(line);
-			
-			String info[] = line.split(";");
-			Player player = new Player(info[0], info[1]);
-			listEasy.add(player);		
-		}
-		while(fileMed.hasNextLine()) {
-			String line = fileMed.getLine();
-			
-			line = cryptor.decrypt(line);
-			
-			String info[] = line.split(";");
-			Player player = new Player(info[0], info[1]);
-			listMed.add(player);		
-		}
-		while(fileHard.hasNextLine()) {
-			String line = fileHard.getLine();
-			
-			line = cryptor.decrypt(line);
-			
-			String info[] = line.split(";");
-			Player player = new Player(info[0], info[1]);
-			listHard.add(player);		
+		/* A process can't hold two locks on the same file, so scoreboards of one process also take turns on a common monitor. */
+		synchronized (Scoreboard.class) {
+			try (FileChannel channel = new RandomAccessFile(LOCK, "rw").getChannel()) {
+				channel.lock();
+				version = readVersion(channel);
+				rankEasy.sync(read(Difficulty.EASY));
+				rankMed.sync(read(Difficulty.MEDIUM));
+				rankHard.sync(read(Difficulty.HARD));
+			}
 		}
+		GameMetrics.getApplication().scoreboardLoaded(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Returns the scoreboard shared by the whole application, loading it the first time it is needed. Games which save the shared
+	 * scoreboard save the results of every other game too, instead of overwriting them with their own.
+	 * @return the shared scoreboard.
+	 * @throws IOException
+	 */
+	public static synchronized Scoreboard getShared() throws IOException {
+		if (shared == null) shared = new Scoreboard();
+		return shared;
 	}
 	
 	/**
 	 * Adds a player to the scoreboard list. The list is sorted by player time. If the added player is not in the top 10, it is removed
-	 * from the list.
+	 * from the list. Can be called from any thread.
 	 * @param p The player who is added to the list.
 	 * @param diff The difficulty of the game played in order to determine to which list the player needs to be added to.
 	 * @return true if player was added, false otherwise.
 	 */
 	public boolean addPlayer(Player p, Difficulty diff) {
-		ArrayList<Player> list = null;
-		if (diff == Difficulty.EASY) list = listEasy;
-		else if (diff == Difficulty.MEDIUM) list = listMed;
-		else if (diff == Difficulty.HARD) list = listHard;
-		
-		/* Determines where in the list the player needs to be added in order to keep the list sorted. */
-		boolean added = false;
-		for (int i = 0; i < list.size(); i++) {
-			Player p1 = list.get(i);
-			if (Player.compare(p, p1) < 0) {
-				list.add(i, p);
-				added = true;
-				break;
-			}
-			else continue;
-		}
-		if (!added && list.size() < 10) list.add(p);
-		if (list.size() > 10) {
-			list.remove(10);
-			return false;
-		}
-		return true;
+		return getRanking(diff).add(p);
 	}
 	
 	/**
-	 * Saves all three scoreboards to their respective files after previously ciphering the contents.
+	 * Saves all three scoreboards to their respective files after previously ciphering the contents. Saves from several threads and
+	 * processes are done one after another, and the files are only read again if another process saved them in the meantime.
 	 */
-	public void saveScoreboard() {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < listEasy.size(); i++) {
-			Player p = listEasy.get(i);
-			sb.append(p.getName() + ";" + p.getTime());
-			if (i != listEasy.size() - 1) sb.append("\n");
+	public synchronized void saveScoreboard() {
+		long start = System.nanoTime();
+		synchronized (Scoreboard.class) {
+			/* The lock is released when the channel is closed. */
+			try (FileChannel channel = new RandomAccessFile(LOCK, "rw").getChannel()) {
+				channel.lock();
+				long current = readVersion(channel);
+				boolean changed = current != version;
+				save(Difficulty.EASY, rankEasy.sync(changed ? read(Difficulty.EASY) : null));
+				save(Difficulty.MEDIUM, rankMed.sync(changed ? read(Difficulty.MEDIUM) : null));
+				save(Difficulty.HARD, rankHard.sync(changed ? read(Difficulty.HARD) : null));
+				
+				version = current + 1;
+				ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, version);
+				channel.write(buffer, 0);
+			} catch (IOException e) {}
 		}
-		try {
-			fileEasy.print(cryptor.encrypt(sb.toString()));
-		} catch (IOException e) {}
-		
-		sb = new StringBuilder();
-		for (int i = 0; i < listMed.size(); i++) {
-			Player p = listMed.get(i);
-			sb.append(p.getName() + ";" + p.getTime());
-			if (i != listMed.size() - 1) sb.append("\n");
-		}
-		try {
-			fileMed.print(cryptor.encrypt(sb.toString()));
-		} catch (IOException e) {}
-		
-		sb = new StringBuilder();
-		for (int i = 0; i < listHard.size(); i++) {
-			Player p = listHard.get(i);
-			sb.append(p.getName() + ";" + p.getTime());
-			if (i != listHard.size() - 1) sb.append("\n");
-		}
-		try {
-			fileHard.print(cryptor.encrypt(sb.toString()));
-		} catch (IOException e) {}
+		GameMetrics.getApplication().scoreboardSaved(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Returns the players of a scoreboard, sorted by their times, as they were at a single moment.
+	 * @param diff The difficulty of the game.
+	 * @return the players of the scoreboard of the game with difficulty diff.
+	 */
+	public Player[] getPlayers(Difficulty diff) {
+		return getRanking(diff).players.clone();
 	}
 	
 	/**
@@ -128,18 +113,15 @@ public class Scoreboard {
 	 * @return scoreboard of the game with difficulty diff.
 	 */
 	public String getPrintable(Difficulty diff) {
-		ArrayList<Player> list = null;
-		if (diff == Difficulty.EASY) list = listEasy;
-		else if (diff == Difficulty.MEDIUM) list = listMed;
-		else if (diff == Difficulty.HARD) list = listHard;
+		Player list[] = getRanking(diff).players;
 		
 		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < list.size(); i++) {
-			Player p = list.get(i);
+		for (int i = 0; i < list.length; i++) {
+			Player p = list[i];
 			if (i == 0 || i == 1 || i == 2) sb.append("<b><font color=\"#a10035\">");
 			else sb.append("<b><font color=\"#9494b8\">");
 			sb.append((i + 1) + ".\t" + p.getName() + " - " + p.getTime() + "</b>");
-			if (i != list.size() - 1) sb.append("\n");
+			if (i != list.length - 1) sb.append("\n");
 		}
 		return sb.toString();
 	}
@@ -150,10 +132,125 @@ public class Scoreboard {
 	 * @return number of entries in the scoreboard of the game with difficulty diff.
 	 */
 	public int getNumOfEntries(Difficulty diff) {
-		ArrayList<Player> list = null;
-		if (diff == Difficulty.EASY) list = listEasy;
-		else if (diff == Difficulty.MEDIUM) list = listMed;
-		else if (diff == Difficulty.HARD) list = listHard;
-		return list.size();
+		return getRanking(diff).players.length;
+	}
+	
+	/**
+	 * Returns the ranking of a difficulty.
+	 */
+	private Ranking getRanking(Difficulty diff) {
+		if (diff == Difficulty.EASY) return rankEasy;
+		else if (diff == Difficulty.MEDIUM) return rankMed;
+		else return rankHard;
+	}
+	
+	/**
+	 * Reads the version of the saved scoreboards from the lock file.
+	 * @return the version, or 0 if the scoreboards were never saved with a version.
+	 */
+	private static long readVersion(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0);
+		return buffer.hasRemaining() ? 0 : buffer.getLong(0);
+	}
+	
+	/**
+	 * Reads the players saved in the file of a difficulty.
+	 * @return the players, sorted by their times.
+	 */
+	private Player[] read(Difficulty diff) throws IOException {
+		FileReader file = new FileReader(diff);
+		Ranking ranking = new Ranking();
+		while(file.hasNextLine()) {
+			String line = file.getLine();
+			
+			line = cryptor.decrypt(line);
+			
+			String info[] = line.split(";");
+			Player player = new Player(info[0], info[1]);
+			ranking.insert(player);		
+		}
+		file.closeFile();
+		return ranking.players;
+	}
+	
+	/**
+	 * Saves players to the file of a difficulty after ciphering them.
+	 */
+	private void save(Difficulty diff, Player list[]) throws IOException {
+		FileReader file = new FileReader(diff);
+		file.closeFile();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < list.length; i++) {
+			Player p = list[i];
+			sb.append(p.getName() + ";" + p.getTime());
+			if (i != list.length - 1) sb.append("\n");
+		}
+		file.print(cryptor.encrypt(sb.toString()));
+	}
+	
+	/**
+	 * A Ranking object holds the players of one scoreboard in an array which is never changed once it is published; every addition
+	 * publishes a new array. Readers therefore need no lock, and a player who is slower than the last of a full ranking is turned away
+	 * without taking the lock either, which is what almost every submission is once the scoreboard fills up. The players added since
+	 * the ranking was last synchronized with its file are remembered, so they can be merged into the file if another process changed it.
+	 */
+	private static class Ranking {
+		private volatile Player players[] = new Player[0];
+		private ArrayList<Player> pending = new ArrayList<Player>();
+		
+		/**
+		 * Adds a player after all players with the same or a better time, if the player makes the top 10.
+		 * @return true if the player was added, false otherwise.
+		 */
+		private boolean add(Player p) {
+			Player list[] = players;
+			if (list.length == SIZE && Player.compare(p, list[SIZE - 1]) >= 0) return false;
+			
+			synchronized (this) {
+				if (!insert(p)) return false;
+				pending.add(p);
+				
+				/* Players who dropped out of the top 10 would drop out of the merged ranking too, so they are forgotten. */
+				if (pending.size() > SIZE) pending.retainAll(Arrays.asList(players));
+				return true;
+			}
+		}
+		
+		/**
+		 * Inserts a player after all players with the same or a better time, if the player makes the top 10. The caller must hold the
+		 * lock of a ranking which is shared.
+		 * @return true if the player was inserted, false otherwise.
+		 */
+		private boolean insert(Player p) {
+			Player list[] = players;
+			int index = 0;
+			while (index < list.length && Player.compare(p, list[index]) >= 0) index++;
+			if (index == SIZE) return false;
+			
+			Player next[] = new Player[Math.min(SIZE, list.length + 1)];
+			System.arraycopy(list, 0, next, 0, index);
+			next[index] = p;
+			System.arraycopy(list, index, next, index + 1, next.length - index - 1);
+			players = next;
+			return true;
+		}
+		
+		/**
+		 * Synchronizes the ranking with its file. If the file was changed by another process, the ranking is replaced by the players
+		 * of the file, merged with the players added here since the last synchronization.
+		 * @param saved The players of the file, or null if the file wasn't changed.
+		 * @return the players to be written to the file.
+		 */
+		private synchronized Player[] sync(Player saved[]) {
+			if (saved != null) {
+				Player added[] = pending.toArray(new Player[pending.size()]);
+				Player kept[] = players;
+				players = saved;
+				for (Player p : added) if (Arrays.asList(kept).contains(p)) insert(p);
+			}
+			pending.clear();
+			return players;
+		}
 	}
 }
\ No newline at end of file
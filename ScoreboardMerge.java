@@ -0,0 +1,288 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A ScoreboardMerge object merges the scoreboards of many installations of the game into one. Every installation is a directory
+ * with its own key file and scoreboard files, as written by a Scoreboard, and may also contain the history files written by an
+ * earlier merge, which are used instead of its scoreboard files, so merged results can be merged again. The files of an
+ * installation are deciphered with its own key, which is only read, never created or replaced, and all files of a difficulty are
+ * merged by time with a k-way merge which holds at most two batches of lines of every file in memory. Batches are read,
+ * deciphered and parsed by a pool of threads, and the next batch of a file is already being parsed while the merge consumes the
+ * current one. The best entries of every difficulty are written as the scoreboard of the output directory and all entries as its
+ * history, both ciphered with the output directory's key, so the output directory can be used as an installation of the game.
+ * <pre>
+ * java minesweeper.ScoreboardMerge output top installation...
+ * </pre>
+ * Input files have to be sorted by time, as a Scoreboard and a merge write them. Lines which are malformed or out of order are
+ * skipped and counted.
+ * @author Nikola Stankovic
+ */
+public class ScoreboardMerge {
+	private static final int BATCH = 1024;
+
+	private File output;
+	private int top;
+	private ExecutorService pool;
+	private Cipher cryptor;
+
+	/**
+	 * Creates a ScoreboardMerge object.
+	 * @param output The directory the merged files are written to, which is created if needed.
+	 * @param top Number of entries kept in the merged scoreboard of every difficulty.
+	 * @param threads Number of threads which read and parse the files.
+	 * @throws IOException
+	 */
+	public ScoreboardMerge(File output, int top, int threads) throws IOException {
+		output.mkdirs();
+		this.output = output;
+		this.top = top;
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.cryptor = new Cipher(new File(output, "key.txt"));
+	}
+
+	/**
+	 * Merges the files of every difficulty of the given installations and prints a summary for each difficulty.
+	 * @param installations The directories of the installations. Directories without a key file are skipped. Nothing is written
+	 * into them.
+	 * @throws IOException if a key file of an installation is empty or invalid, before any file is written.
+	 */
+	public void merge(File installations[]) throws IOException {
+		try {
+			ArrayList<File> valid = new ArrayList<File>();
+			ArrayList<Cipher> keys = new ArrayList<Cipher>();
+			for (File directory : installations) {
+				File key = new File(directory, "key.txt");
+				if (!key.isFile()) {
+					System.out.println("Skipped " + directory + ": no key file.");
+					continue;
+				}
+				valid.add(directory);
+				keys.add(Cipher.read(key));
+			}
+
+			for (Difficulty diff : Difficulty.values()) {
+				ArrayList<Source> sources = new ArrayList<Source>();
+				for (int i = 0; i < valid.size(); i++) {
+					/* The history of an earlier merge already contains its scoreboard. */
+					File file = new File(valid.get(i), "history" + diff + ".txt");
+					if (!file.isFile()) file = new File(valid.get(i), "scoreboard" + diff + ".txt");
+					if (file.isFile()) sources.add(new Source(sources.size(), file, keys.get(i)));
+				}
+				merge(diff, sources);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Merges the sources of a difficulty. The head of every source is kept in a priority queue ordered by time, with ties broken by
+	 * the order of the sources, so equal times always come out in the same order.
+	 */
+	private void merge(Difficulty diff, ArrayList<Source> sources) throws IOException {
+		PriorityQueue<Source> heads = new PriorityQueue<Source>(Math.max(1, sources.size()), new Comparator<Source>() {
+			public int compare(Source s1, Source s2) {
+				int result = Player.compare(s1.head(), s2.head());
+				return result != 0 ? result : Integer.compare(s1.index, s2.index);
+			}
+		});
+		for (Source source : sources) source.start();
+		for (Source source : sources) if (source.advance()) heads.add(source);
+
+		int written = 0, skipped = 0;
+		BufferedWriter scores = Files.newBufferedWriter(new File(output, "scoreboard" + diff + ".txt").toPath(), Charset.defaultCharset());
+		BufferedWriter history = Files.newBufferedWriter(new File(output, "history" + diff + ".txt").toPath(), Charset.defaultCharset());
+		try {
+			while (!heads.isEmpty()) {
+				Source source = heads.poll();
+				Player p = source.head();
+				String line = cryptor.encrypt(p.getName() + ";" + p.getTime());
+				if (written++ < top) {
+					scores.write(line);
+					scores.write("\n");
+				}
+				history.write(line);
+				history.write("\n");
+				if (source.advance()) heads.add(source);
+			}
+		} finally {
+			scores.close();
+			history.close();
+			for (Source source : sources) {
+				skipped += source.skipped;
+				source.close();
+			}
+		}
+		System.out.println(diff + ": " + written + " entries from " + sources.size() + " files, " + Math.min(written, top)
+				+ " in the scoreboard, " + skipped + " lines skipped.");
+	}
+
+	/**
+	 * A Batch object is a run of parsed lines of a file.
+	 */
+	private static class Batch {
+		private Player players[] = new Player[BATCH];
+		private int count, malformed;
+		private boolean last;
+	}
+
+	/**
+	 * A Source object is a file being merged. It is read one batch at a time on the pool: while the merge consumes a batch, the next
+	 * one is already being read, and a new read is only submitted once the previous one was taken, so at most one task reads the file
+	 * at a time and its reader needs no locking.
+	 */
+	private class Source implements Callable<Batch> {
+		private int index;
+		private File file;
+		private Cipher cipher;
+		private BufferedReader reader;
+		private Future<Batch> next;
+		private Batch current;
+		private int position;
+		private Player head;
+		private int skipped;
+
+		Source(int index, File file, Cipher cipher) {
+			this.index = index;
+			this.file = file;
+			this.cipher = cipher;
+		}
+
+		/**
+		 * Submits the read of the first batch.
+		 */
+		void start() {
+			next = pool.submit(this);
+		}
+
+		/**
+		 * Reads, deciphers and parses the next batch of lines. Runs on the pool.
+		 */
+		public Batch call() throws IOException {
+			if (reader == null) reader = Files.newBufferedReader(file.toPath(), Charset.defaultCharset());
+			Batch batch = new Batch();
+			while (batch.count < BATCH) {
+				String line = reader.readLine();
+				if (line == null) {
+					batch.last = true;
+					break;
+				}
+				if (line.isEmpty()) continue;
+				Player player = parse(cipher.decrypt(line));
+				if (player == null) batch.malformed++;
+				else batch.players[batch.count++] = player;
+			}
+			return batch;
+		}
+
+		/**
+		 * Moves to the next entry of the file, skipping entries faster than the previous one.
+		 * @return true if there is a next entry, false if the file is exhausted.
+		 */
+		boolean advance() throws IOException {
+			while (true) {
+				if (current == null || position == current.count) {
+					if (next == null) return false;
+					current = take();
+					position = 0;
+					next = current.last ? null : pool.submit(this);
+					skipped += current.malformed;
+					continue;
+				}
+				Player player = current.players[position++];
+				if (head != null && Player.compare(player, head) < 0) {
+					skipped++;
+					continue;
+				}
+				head = player;
+				return true;
+			}
+		}
+
+		/**
+		 * Returns the current entry of the file.
+		 */
+		Player head() {
+			return head;
+		}
+
+		/**
+		 * Waits for the batch being read.
+		 */
+		private Batch take() throws IOException {
+			try {
+				return next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + file);
+			} catch (ExecutionException e) {
+				throw new IOException("Could not read " + file + ": " + e.getCause().getMessage());
+			}
+		}
+
+		/**
+		 * Closes the file.
+		 */
+		void close() {
+			try {
+				if (next != null) next.get();
+				if (reader != null) reader.close();
+			} catch (Exception e) {}
+		}
+	}
+
+	/**
+	 * Parses a deciphered line of a scoreboard file.
+	 * @param line The line, made of the name and the time separated by a semicolon.
+	 * @return the player, or null if the line is malformed.
+	 */
+	private static Player parse(String line) {
+		int separator = line.indexOf(';');
+		if (separator < 0) return null;
+		String time = line.substring(separator + 1);
+		int minutes = time.indexOf(':'), seconds = time.indexOf(':', minutes + 1);
+		if (minutes < 0 || seconds < 0) return null;
+		try {
+			return new Player(line.substring(0, separator), time);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Merges the scoreboards of the given installations.
+	 * @param args The output directory, the number of entries kept in every scoreboard, and the directories of the installations.
+	 * @throws IOException
+	 */
+	public static void main(String args[]) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: java minesweeper.ScoreboardMerge output top installation...");
+			return;
+		}
+		File installations[] = new File[args.length - 2];
+		for (int i = 2; i < args.length; i++) installations[i - 2] = new File(args[i]);
+
+		long start = System.nanoTime();
+		try {
+			new ScoreboardMerge(new File(args[0]), Integer.parseInt(args[1]), Runtime.getRuntime().availableProcessors()).merge(installations);
+		} catch (IOException e) {
+			System.err.println("Merge failed: " + e.getMessage());
+			System.exit(1);
+		}
+		System.out.printf("Merged %d installations in %.1f ms.%n", installations.length, (System.nanoTime() - start) / 1e6);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * A Session object is a single headless game played through a simple line-based text protocol. Every request is one line and is
+ * answered with exactly one line:
+ * <pre>
+ * NEW rows columns mines [seed] [topology]   -&gt; OK rows columns mines
+ * LOAD file                                  -&gt; OK rows columns mines
+ * OPEN x y | FLAG x y                        -&gt; MOVE status flags n x,y,c ...
+ * UNDO | REDO | SEEK move | EXPLODE          -&gt; MOVE status flags n x,y,c ...
+ * QUIT                                       -&gt; BYE
+ * </pre>
+ * The topology of a new board is SQUARE, TORUS, HEX or KNIGHT, square by default. LOAD starts a game on a board read from a BoardFile,
+ * and is refused unless the session was allowed to read files, since a client of a server mustn't read the server's files.
+ * SEEK undoes or redoes all moves up to the given number of moves played at once.
+ * A MOVE response lists only the n cells changed by the request, where c is the number of surrounding mines of an opened cell, F for a
+ * flag, # for a closed cell and * for a mine revealed at the end of the game. Invalid requests are answered with ERR and a message.
+ * @author Nikola Stankovic
+ */
+public class Session {
+	private Board board;
+	private int maxCells;
+	private boolean closed;
+	private boolean ended;
+	private GameMetrics metrics;
+	private boolean files;
+
+	/**
+	 * Creates a Session object with a new board at easy difficulty.
+	 * @param maxCells The largest number of cells a board requested with NEW may have.
+	 */
+	public Session(int maxCells) {
+		this(maxCells, null);
+	}
+
+	/**
+	 * Creates a Session object with a new board at easy difficulty, which records its moves and games into metrics.
+	 * @param maxCells The largest number of cells a board requested with NEW may have.
+	 * @param metrics The metrics the session records into, possibly shared with other sessions, or null.
+	 */
+	public Session(int maxCells, GameMetrics metrics) {
+		this.board = new Board(10, 10, 10);
+		this.maxCells = maxCells;
+		this.closed = false;
+		this.ended = false;
+		this.metrics = metrics;
+		if (metrics != null) metrics.gameStarted();
+	}
+
+	/**
+	 * Returns the board that is currently played in the session.
+	 * @return current board.
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Allows or forbids loading boards from files with LOAD. Loading is forbidden by default.
+	 * @param files true if LOAD may read files, false otherwise.
+	 */
+	public void setFilesAllowed(boolean files) {
+		this.files = files;
+	}
+
+	/**
+	 * Checks if the client asked for the session to be closed.
+	 * @return true if the session is closed, false otherwise.
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Executes a single request and appends the response, terminated by a line break, to the output.
+	 * @param line The request, without the line break.
+	 * @param out The builder the response is appended to.
+	 */
+	public void handle(String line, StringBuilder out) {
+		long start = System.nanoTime();
+		Tokens tokens = new Tokens(line);
+		String command = tokens.next();
+		try {
+			if (command == null) out.append("ERR empty request");
+			else if (command.equals("OPEN")) {
+				Delta delta = board.open(tokens.nextInt(), tokens.nextInt());
+				if (delta != null && metrics != null) metrics.cellsRevealed(delta.getCells());
+				appendMove(delta, false, out);
+			}
+			else if (command.equals("FLAG")) appendMove(board.flag(tokens.nextInt(), tokens.nextInt()), false, out);
+			else if (command.equals("UNDO")) appendMove(board.undo(), true, out);
+			else if (command.equals("REDO")) appendMove(board.redo(), false, out);
+			else if (command.equals("SEEK")) appendMove(board.seek(tokens.nextInt()), false, out);
+			else if (command.equals("EXPLODE")) {
+				board.endGame();
+				appendMove(null, false, out);
+			}
+			else if (command.equals("NEW")) {
+				int rows = tokens.nextInt(), columns = tokens.nextInt(), mines = tokens.nextInt();
+				String seed = tokens.next(), shape = tokens.next();
+				if (seed != null && shape == null && Character.isLetter(seed.charAt(0))) {
+					shape = seed;
+					seed = null;
+				}
+				Topology topology = shape == null ? Topology.SQUARE : Topology.parse(shape);
+				if ((long)rows * columns > maxCells) throw new IllegalArgumentException("board larger than " + maxCells + " cells");
+				board = new Board(rows, columns, mines, seed == null ? new SplittableRandom().nextLong() : Long.parseLong(seed), topology);
+				ended = false;
+				if (metrics != null) metrics.gameStarted();
+				out.append("OK ").append(rows).append(' ').append(columns).append(' ').append(mines);
+			}
+			else if (command.equals("LOAD")) {
+				String path = tokens.rest();
+				if (!files) throw new IllegalArgumentException("loading files is not allowed");
+				if (path == null) throw new IllegalArgumentException("missing argument");
+				BoardFile file = new BoardFile(new File(path));
+				try {
+					if ((long)file.getRows() * file.getColumns() > maxCells) throw new IllegalArgumentException("board larger than " + maxCells + " cells");
+					board = file.load();
+				} finally {
+					file.close();
+				}
+				ended = false;
+				if (metrics != null) metrics.gameStarted();
+				out.append("OK ").append(board.getRows()).append(' ').append(board.getColumns()).append(' ').append(board.getMines());
+			}
+			else if (command.equals("QUIT")) {
+				closed = true;
+				out.append("BYE");
+			}
+			else out.append("ERR unknown command ").append(command);
+		} catch (IllegalArgumentException e) {
+			out.append("ERR ").append(e.getMessage());
+		} catch (IOException e) {
+			out.append("ERR can't read ").append(e.getMessage());
+		}
+		out.append('\n');
+		if (metrics != null) metrics.moveProcessed(System.nanoTime() - start);
+	}
+
+	/**
+	 * Appends a MOVE response. When the move ended the game, all mines are appended to the changed cells.
+	 * @param delta The cells changed by the move, or null if nothing changed.
+	 * @param undone true if the move was undone, meaning that the cells went back to their state before the move.
+	 * @param out The builder the response is appended to.
+	 */
+	private void appendMove(Delta delta, boolean undone, StringBuilder out) {
+		boolean revealMines = !ended && board.getStatus() != Status.PLAYING;
+		ended = board.getStatus() != Status.PLAYING;
+		if (revealMines && metrics != null) metrics.gameEnded(board.getStatus() == Status.WON);
+
+		int count = delta == null ? 0 : delta.getCells();
+		if (revealMines) count += board.getMines();
+		out.append("MOVE ").append(board.getStatus()).append(' ').append(board.getFlags()).append(' ').append(count);
+
+		int columns = board.getColumns();
+		if (delta != null) {
+			for (int r = 0; r < delta.getRuns(); r++) {
+				byte state = undone ? delta.getBefore(r) : delta.getAfter(r);
+				for (int i = delta.getStart(r); i < delta.getStart(r) + delta.getLength(r); i++) {
+					appendCell(i / columns, i % columns, state, out);
+				}
+			}
+		}
+		if (revealMines) {
+			for (int cell : board.getMineCells()) out.append(' ').append(cell / columns).append(',').append(cell % columns).append(",*");
+		}
+	}
+
+	/**
+	 * Appends a single changed cell in the x,y,c format.
+	 */
+	private void appendCell(int x, int y, byte state, StringBuilder out) {
+		out.append(' ').append(x).append(',').append(y).append(',');
+		if (state == Delta.OPENED) out.append(board.getSurroundingMines(x, y));
+		else if (state == Delta.FLAGGED) out.append('F');
+		else out.append('#');
+	}
+
+	/**
+	 * A Tokens object splits a request into words separated by spaces.
+	 */
+	private static class Tokens {
+		private String line;
+		private int position;
+
+		private Tokens(String line) {
+			this.line = line;
+			this.position = 0;
+		}
+
+		/**
+		 * Returns the next word, or null if there are no words left.
+		 */
+		private String next() {
+			while (position < line.length() && line.charAt(position) == ' ') position++;
+			if (position == line.length()) return null;
+			int start = position;
+			while (position < line.length() && line.charAt(position) != ' ') position++;
+			return line.substring(start, position);
+		}
+
+		/**
+		 * Returns the rest of the request without the spaces around it, or null if nothing is left.
+		 */
+		private String rest() {
+			String rest = line.substring(position).trim();
+			position = line.length();
+			return rest.isEmpty() ? null : rest;
+		}
+
+		/**
+		 * Returns the next word as a number.
+		 * @throws IllegalArgumentException if there are no words left or the word is not a number.
+		 */
+		private int nextInt() {
+			String token = next();
+			if (token == null) throw new IllegalArgumentException("missing argument");
+			return Integer.parseInt(token);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package minesweeper;
+
+/**
+ * A Snapshot object is an immutable view of a game published by the GameEngine after every command. Besides the counters of the game,
+ * it holds the cells changed by the command, so readers which keep their own copy of the board, such as the GUI, stay consistent by
+ * applying every snapshot in order. Snapshots can be shared between threads freely, since none of their fields ever change.
+ * @author Nikola Stankovic
+ */
+public class Snapshot {
+	private final long version;
+	private final int rows, columns, mines, flags;
+	private final int opened, clicks, value;
+	private final Status status;
+	private final boolean restarted, tick;
+	private final long startTime, stopTime;
+	private final int changed[];
+	private final byte states[], previous[];
+	private final byte counts[];
+	private final int mineCells[];
+
+	/**
+	 * Creates a Snapshot object. Called only by the GameEngine, which hands over arrays it never touches again.
+	 * @param version Number of commands executed by the engine before this snapshot was taken.
+	 * @param board The board the snapshot is taken of.
+	 * @param restarted true if the command started a new game, meaning that all cells are closed.
+	 * @param tick true if the snapshot was published by the engine because another second of the game passed.
+	 * @param startTime Value of System.nanoTime() when the timer was started, or 0 if it wasn't started.
+	 * @param stopTime Value of System.nanoTime() when the timer was stopped, or 0 if it is still running.
+	 * @param clicks Number of opens and flags played in the game so far.
+	 * @param changed Row-major indices of the cells changed by the command.
+	 * @param states New states of the changed cells.
+	 * @param previous States of the changed cells before the command.
+	 * @param counts Numbers of mines surrounding the changed cells.
+	 * @param mineCells Row-major indices of all mines if the command ended the game, null otherwise.
+	 */
+	Snapshot(long version, Board board, boolean restarted, boolean tick, long startTime, long stopTime, int clicks, int changed[],
+			byte states[], byte previous[], byte counts[], int mineCells[]) {
+		this.version = version;
+		this.rows = board.getRows();
+		this.columns = board.getColumns();
+		this.mines = board.getMines();
+		this.flags = board.getFlags();
+		this.opened = board.getOpened();
+		this.clicks = clicks;
+		this.value = board.getValue();
+		this.status = board.getStatus();
+		this.restarted = restarted;
+		this.tick = tick;
+		this.startTime = startTime;
+		this.stopTime = stopTime;
+		this.changed = changed;
+		this.states = states;
+		this.previous = previous;
+		this.counts = counts;
+		this.mineCells = mineCells;
+	}
+
+	/**
+	 * Returns the number of commands executed before the snapshot was taken.
+	 * @return version of the snapshot.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the number of rows of the board.
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the board.
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of mines of the board.
+	 * @return number of mines.
+	 */
+	public int getMines() {
+		return mines;
+	}
+
+	/**
+	 * Returns the number of flags left on the board.
+	 * @return remaining number of flags.
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Returns the number of opened cells.
+	 * @return number of opened cells.
+	 */
+	public int getOpened() {
+		return opened;
+	}
+
+	/**
+	 * Returns the number of opens and flags played in the game, including those which were undone.
+	 * @return number of clicks.
+	 */
+	public int getClicks() {
+		return clicks;
+	}
+
+	/**
+	 * Returns the 3BV of the board.
+	 * @return the smallest number of clicks which clears the board, or 0 if it isn't known.
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the status of the game.
+	 * @return PLAYING, WON or LOST.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Checks if the snapshot is the first one of a new game.
+	 * @return true if a new game was started, false otherwise.
+	 */
+	public boolean isRestarted() {
+		return restarted;
+	}
+
+	/**
+	 * Checks if the snapshot was published only because another whole second of the game passed, without any command.
+	 * @return true for a tick of the timer, false otherwise.
+	 */
+	public boolean isTick() {
+		return tick;
+	}
+
+	/**
+	 * Checks if the command ended the game.
+	 * @return true if the game was won or lost by the command, false otherwise.
+	 */
+	public boolean isEnded() {
+		return mineCells != null;
+	}
+
+	/**
+	 * Checks if the timer was started.
+	 * @return true if the timer was started, false otherwise.
+	 */
+	public boolean isStarted() {
+		return startTime != 0;
+	}
+
+	/**
+	 * Returns the time elapsed since the timer was started, up to the moment it was stopped.
+	 * @return time in tens of milliseconds.
+	 */
+	public int getTime() {
+		if (startTime == 0) return 0;
+		long end = stopTime != 0 ? stopTime : System.nanoTime();
+		return (int)((end - startTime) / 10000000L);
+	}
+
+	/**
+	 * Returns the number of cells changed by the command.
+	 * @return number of changed cells.
+	 */
+	public int getChangedCount() {
+		return changed.length;
+	}
+
+	/**
+	 * Returns the row-major index of a changed cell.
+	 * @param i Position of the cell among the changed cells.
+	 * @return index of the cell.
+	 */
+	public int getChangedCell(int i) {
+		return changed[i];
+	}
+
+	/**
+	 * Returns the new state of a changed cell.
+	 * @param i Position of the cell among the changed cells.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public byte getChangedState(int i) {
+		return states[i];
+	}
+
+	/**
+	 * Returns the state a changed cell had before the command.
+	 * @param i Position of the cell among the changed cells.
+	 * @return one of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 */
+	public byte getChangedPrevious(int i) {
+		return previous[i];
+	}
+
+	/**
+	 * Returns the number of mines surrounding a changed cell.
+	 * @param i Position of the cell among the changed cells.
+	 * @return number of surrounding mines.
+	 */
+	public int getChangedMines(int i) {
+		return counts[i];
+	}
+
+	/**
+	 * Returns the number of mines revealed by the command, which is non-zero only for the command that ended the game.
+	 * @return number of revealed mines.
+	 */
+	public int getRevealedMines() {
+		return mineCells == null ? 0 : mineCells.length;
+	}
+
+	/**
+	 * Returns the row-major index of a revealed mine.
+	 * @param i Position of the mine among the revealed mines.
+	 * @return index of the mine.
+	 */
+	public int getRevealedMine(int i) {
+		return mineCells[i];
+	}
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * A SparseStorage object is a storage for giant boards with a low density of mines, where even a byte per cell would take too much
+ * memory. Mines are kept in an open-addressing hash set of cell indices, and opened and flagged cells are kept in two compressed
+ * CellBitmaps, which store large contiguous opened regions as runs. The number of surrounding mines is not stored at all; it is counted
+ * on demand from the hash set, and the most recently counted cells are kept in a small cache. Every cache entry packs the cell and
+ * its count into a single int, so the storage can be read from several threads at once while no thread changes it. A filter with one bit for every 64 cells
+ * tells which parts of the board have no mines at all, so that a large flood fill rarely needs to probe the hash set.
+ * @author Nikola Stankovic
+ */
+public class SparseStorage implements CellStorage {
+	private static final int EMPTY = -1;
+	private static final int CACHE_SIZE = 4096;
+
+	private int rows, columns;
+	private int mineTable[];
+	private long mineFilter[];
+	private int mineCount;
+	private CellBitmap opened, flagged;
+	private int cache[];
+
+	/**
+	 * Creates a SparseStorage object with all cells closed and without mines.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param mines Number of mines that will be placed, used to size the hash set.
+	 */
+	public SparseStorage(int rows, int columns, int mines) {
+		this.rows = rows;
+		this.columns = columns;
+		this.mineTable = new int[Integer.highestOneBit(Math.max(mines, 4) * 2 - 1) << 1];
+		Arrays.fill(mineTable, EMPTY);
+		this.mineFilter = new long[(int)(((long)rows * columns + 4095) >>> 12)];
+		this.opened = new CellBitmap(rows * columns);
+		this.flagged = new CellBitmap(rows * columns);
+		this.cache = new int[CACHE_SIZE];
+		Arrays.fill(cache, EMPTY);
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public boolean hasMine(int index) {
+		if ((mineFilter[index >>> 12] & (1L << (index >>> 6))) == 0) return false;
+		int mask = mineTable.length - 1;
+		for (int slot = hash(index) & mask; ; slot = (slot + 1) & mask) {
+			if (mineTable[slot] == index) return true;
+			if (mineTable[slot] == EMPTY) return false;
+		}
+	}
+
+	public void setMine(int index) {
+		if ((mineCount + 1) * 2 > mineTable.length) grow();
+		int mask = mineTable.length - 1;
+		int slot = hash(index) & mask;
+		while (mineTable[slot] != EMPTY) {
+			if (mineTable[slot] == index) return;
+			slot = (slot + 1) & mask;
+		}
+		mineTable[slot] = index;
+		mineFilter[index >>> 12] |= 1L << (index >>> 6);
+		mineCount++;
+	}
+
+	public void minesPlaced() {
+		Arrays.fill(cache, EMPTY);
+	}
+
+	public int getSurroundingMines(int index) {
+		/* The slot is chosen by the lowest bits of the cell, so the entry only needs the remaining bits to tell which cell it holds. */
+		int slot = index & (CACHE_SIZE - 1), tag = index >>> 12;
+		int entry = cache[slot];
+		if (entry != EMPTY && entry >>> 4 == tag) return entry & 15;
+
+		int x = index / columns, y = index % columns;
+		int count = 0;
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				int nx = x + dx, ny = y + dy;
+				if ((dx != 0 || dy != 0) && nx >= 0 && nx < rows && ny >= 0 && ny < columns && hasMine(nx * columns + ny)) count++;
+			}
+		}
+		cache[slot] = tag << 4 | count;
+		return count;
+	}
+
+	public byte getState(int index) {
+		if (opened.get(index)) return Delta.OPENED;
+		else if (flagged.get(index)) return Delta.FLAGGED;
+		else return Delta.CLOSED;
+	}
+
+	public void setState(int index, byte state) {
+		opened.set(index, state == Delta.OPENED);
+		flagged.set(index, state == Delta.FLAGGED);
+	}
+
+	public boolean openArea(int index, Delta.Builder move) {
+		return false;
+	}
+
+	public boolean openClaimed(ParallelReveal reveal, Delta.Builder move) {
+		return false;
+	}
+
+	public void moveFinished() {
+		opened.compact();
+		flagged.compact();
+	}
+
+	/**
+	 * Collects the mines from the hash set, so the cost depends only on the number of mines and not on the size of the board.
+	 */
+	public int[] getMineCells() {
+		int mineCells[] = new int[mineCount];
+		int found = 0;
+		for (int value : mineTable) if (value != EMPTY) mineCells[found++] = value;
+		Arrays.sort(mineCells);
+		return mineCells;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the storage.
+	 * @return memory used by the storage.
+	 */
+	public long getMemory() {
+		return mineTable.length * 4L + mineFilter.length * 8L + opened.getMemory() + flagged.getMemory() + CACHE_SIZE * 4L;
+	}
+
+	/**
+	 * Doubles the size of the hash set.
+	 */
+	private void grow() {
+		int old[] = mineTable;
+		mineTable = new int[old.length * 2];
+		Arrays.fill(mineTable, EMPTY);
+		mineCount = 0;
+		for (int value : old) if (value != EMPTY) setMine(value);
+	}
+
+	/**
+	 * Spreads the bits of a cell index, so that neighbouring cells don't end up in neighbouring slots.
+	 */
+	private static int hash(int index) {
+		int h = index * 0x9E3779B1;
+		return h ^ (h >>> 16);
+	}
+}
\ No newline at end of file
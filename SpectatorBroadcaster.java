@@ -0,0 +1,595 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A SpectatorBroadcaster object streams a live game to any number of spectators connected to a socket bound to localhost. Every
+ * snapshot published by the engine is encoded once, as a frame with the cells it changed, into a direct buffer, and the same buffer
+ * is written to every spectator, so the cost of a move doesn't grow with the size of the frame times the number of spectators. All
+ * connections are served by a single thread from a NIO Selector, and no write ever blocks.
+ * <p>
+ * A new spectator first receives a keyframe with the whole board, and then a delta frame for every move. Every spectator can fall
+ * behind by a limited number of bytes, at least twice the size of a keyframe so that a keyframe always fits; a spectator which
+ * falls further behind loses its queued deltas, and once it catches up it receives a single keyframe of the board at that moment
+ * instead, so slow spectators never make the broadcaster buffer without limit.
+ * <p>
+ * Every frame starts with its length as an int, followed by its type, 'K' or 'D', the version of the snapshot as a long, and the
+ * rows, columns, mines, flags and time of the game as ints and its status as a byte. A keyframe continues with a byte for every cell
+ * in row-major order. A delta frame continues with the number of runs of neighbouring changed cells, and for every run the distance
+ * of its first cell from the end of the previous run, its length and the bytes of its cells, followed by the number of revealed
+ * mines and the distance of every mine from the previous one. A cell byte is the number of surrounding mines of an opened cell,
+ * CLOSED, FLAGGED or MINE. Numbers in delta frames are varints, 7 bits per byte with the highest bit set on all but the last byte,
+ * and distances are zigzag encoded, so small negative distances take a single byte too.
+ * <pre>
+ * java minesweeper.SpectatorBroadcaster [spectators] [moves]
+ * </pre>
+ * Runs a game of random moves watched by local spectators, checks that every spectator ends up with the same board, and prints how
+ * many frames and bytes were sent and how much CPU time the broadcaster used.
+ * @author Nikola Stankovic
+ */
+public class SpectatorBroadcaster implements GameEngine.Listener {
+	public static final byte CLOSED = 9, FLAGGED = 10, MINE = 11;
+	public static final int HEADER = 4 + 1 + 8 + 5 * 4 + 1;
+	private static final int MAX_BEHIND = 256 * 1024;
+	private static final int ARENA = 1024 * 1024;
+
+	private ServerSocketChannel server;
+	private Selector selector;
+	private ConcurrentLinkedQueue<Snapshot> published;
+	private ArrayList<Spectator> spectators;
+	private Thread loop;
+	private volatile boolean running;
+	private volatile long sent, processed;
+
+	/* The fields below are owned by the loop thread. */
+	private byte cells[];
+	private long version;
+	private int rows, columns, mines, flags, time;
+	private Status status;
+	private long maxBehind;
+	private ByteBuffer keyframe, scratch, arena;
+	private long frames, bytes, resyncs;
+
+	/**
+	 * Creates a SpectatorBroadcaster object and binds it to a port on localhost. Spectators aren't accepted until it is started.
+	 * @param port The port spectators connect to, or 0 for any free port.
+	 * @throws IOException
+	 */
+	public SpectatorBroadcaster(int port) throws IOException {
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("127.0.0.1", port), 1024);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		this.published = new ConcurrentLinkedQueue<Snapshot>();
+		this.spectators = new ArrayList<Spectator>();
+	}
+
+	/**
+	 * Returns the port spectators connect to.
+	 * @return port number.
+	 * @throws IOException
+	 */
+	public int getPort() throws IOException {
+		return ((InetSocketAddress)server.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Starts broadcasting the game of an engine. Only the changes of a game are published, so the broadcaster must be attached before
+	 * the first move; otherwise spectators see the game from its next restart on.
+	 * @param engine The engine of the game.
+	 */
+	public void attach(GameEngine engine) {
+		published.add(engine.getSnapshot());
+		engine.addListener(this);
+		selector.wakeup();
+	}
+
+	/**
+	 * Hands a snapshot over to the loop thread, which encodes and sends it. Called on the engine's thread, which is never kept waiting.
+	 */
+	public void snapshotPublished(Snapshot snapshot) {
+		published.add(snapshot);
+		selector.wakeup();
+	}
+
+	/**
+	 * Starts the thread which accepts spectators and sends them the frames.
+	 */
+	public void start() {
+		running = true;
+		loop = new Thread("minesweeper-spectators") {
+			public void run() {
+				try {
+					while (running) {
+						selector.select();
+
+						Snapshot snapshot;
+						while ((snapshot = published.poll()) != null) broadcast(snapshot);
+
+						Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+						while (keys.hasNext()) {
+							SelectionKey key = keys.next();
+							keys.remove();
+							if (!key.isValid()) continue;
+							if (key.isAcceptable()) accept();
+							else {
+								Spectator spectator = (Spectator)key.attachment();
+								try {
+									if (key.isReadable()) spectator.read();
+									if (key.isValid() && key.isWritable()) spectator.flush();
+								} catch (IOException e) {
+									spectator.close();
+								}
+							}
+						}
+					}
+				} catch (IOException e) {
+					System.err.println("Spectator loop failed: " + e.getMessage());
+				} finally {
+					for (Spectator spectator : spectators) spectator.close();
+					try {
+						server.close();
+						selector.close();
+					} catch (IOException e) {}
+				}
+			}
+		};
+		loop.setDaemon(true);
+		loop.start();
+	}
+
+	/**
+	 * Stops the broadcaster and disconnects all spectators.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Waits until the broadcaster has stopped.
+	 * @throws InterruptedException
+	 */
+	public void join() throws InterruptedException {
+		loop.join();
+	}
+
+	/**
+	 * Accepts all pending spectators, each of which starts with a keyframe.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Spectator spectator = new Spectator(channel);
+			spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+			spectators.add(spectator);
+			spectator.resync = cells != null;
+			spectator.flush();
+		}
+	}
+
+	/**
+	 * Applies a snapshot to the broadcaster's copy of the board and sends it to every spectator. A new game is sent as a keyframe,
+	 * and any other snapshot which changed something as a delta frame.
+	 */
+	private void broadcast(Snapshot snapshot) {
+		if (snapshot.isRestarted()) {
+			rows = snapshot.getRows();
+			columns = snapshot.getColumns();
+			cells = new byte[rows * columns];
+			Arrays.fill(cells, CLOSED);
+			maxBehind = Math.max(MAX_BEHIND, 2L * cells.length);
+		}
+		else if (cells == null) return;
+
+		boolean changed = snapshot.isRestarted() || snapshot.getChangedCount() > 0 || snapshot.getRevealedMines() > 0
+				|| snapshot.getFlags() != flags || snapshot.getStatus() != status;
+		version = snapshot.getVersion();
+		mines = snapshot.getMines();
+		flags = snapshot.getFlags();
+		time = snapshot.getTime();
+		status = snapshot.getStatus();
+		for (int i = 0; i < snapshot.getChangedCount(); i++) cells[snapshot.getChangedCell(i)] = code(snapshot, i);
+		for (int i = 0; i < snapshot.getRevealedMines(); i++) cells[snapshot.getRevealedMine(i)] = MINE;
+		keyframe = null;
+		processed = version;
+		if (!changed) return;
+
+		ByteBuffer frame;
+		if (snapshot.isRestarted()) frame = getKeyframe();
+		else {
+			encodeDelta(snapshot);
+			frame = header('D', scratch.position());
+			scratch.flip();
+			frame.put(scratch).flip();
+		}
+		frames++;
+		sent = version;
+
+		for (int i = spectators.size() - 1; i >= 0; i--) {
+			Spectator spectator = spectators.get(i);
+			if (!spectator.channel.isOpen()) {
+				spectators.set(i, spectators.get(spectators.size() - 1));
+				spectators.remove(spectators.size() - 1);
+			}
+			else if (snapshot.isRestarted()) spectator.restart(frame);
+			else spectator.queue(frame);
+		}
+	}
+
+	/**
+	 * Encodes the changes of a snapshot into the scratch buffer. Changed cells come in runs of neighbouring indices, so every run is
+	 * sent as its distance from the end of the previous run and its length, followed by the bytes of its cells, and the revealed mines
+	 * are sent as the distances between them.
+	 */
+	private void encodeDelta(Snapshot snapshot) {
+		int changed = snapshot.getChangedCount(), runs = 0;
+		for (int i = 0; i < changed; i++) if (i == 0 || snapshot.getChangedCell(i) != snapshot.getChangedCell(i - 1) + 1) runs++;
+		int size = 10 + runs * 10 + changed + 5 + snapshot.getRevealedMines() * 5;
+		if (scratch == null || scratch.capacity() < size) scratch = ByteBuffer.allocate(Math.max(size, 4096));
+		scratch.clear();
+
+		putVarint(runs);
+		int end = 0;
+		for (int i = 0, start = 0; i < changed; i = start) {
+			while (++start < changed && snapshot.getChangedCell(start) == snapshot.getChangedCell(start - 1) + 1);
+			int cell = snapshot.getChangedCell(i);
+			putVarint(zigzag(cell - end));
+			putVarint(start - i);
+			for (int j = i; j < start; j++) scratch.put(code(snapshot, j));
+			end = cell + start - i;
+		}
+		putVarint(snapshot.getRevealedMines());
+		for (int i = 0, previous = 0; i < snapshot.getRevealedMines(); i++) {
+			putVarint(zigzag(snapshot.getRevealedMine(i) - previous));
+			previous = snapshot.getRevealedMine(i);
+		}
+	}
+
+	/**
+	 * Writes a non-negative number to the scratch buffer in 7 bits per byte, so small numbers take a single byte.
+	 */
+	private void putVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			scratch.put((byte)(value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		scratch.put((byte)value);
+	}
+
+	/**
+	 * Maps a signed number to a non-negative one, so small negative numbers stay small.
+	 */
+	private static int zigzag(int value) {
+		return value << 1 ^ value >> 31;
+	}
+
+	/**
+	 * Returns the byte a changed cell of a snapshot is sent as.
+	 */
+	private static byte code(Snapshot snapshot, int i) {
+		byte state = snapshot.getChangedState(i);
+		if (state == Delta.OPENED) return (byte)snapshot.getChangedMines(i);
+		return state == Delta.FLAGGED ? FLAGGED : CLOSED;
+	}
+
+	/**
+	 * Returns a keyframe of the board as it is now, encoding it only once for all spectators which need it.
+	 */
+	private ByteBuffer getKeyframe() {
+		if (keyframe == null) {
+			keyframe = header('K', cells.length);
+			keyframe.put(cells).flip();
+		}
+		return keyframe;
+	}
+
+	/**
+	 * Allocates a frame and writes its header. Small frames are cut from a shared direct buffer, which is replaced by a new one once it
+	 * is used up, so most delta frames don't allocate; the old buffer is freed once no spectator has its frames queued.
+	 * @param type The type of the frame.
+	 * @param body Length of the frame after the header.
+	 * @return the frame, positioned after the header.
+	 */
+	private ByteBuffer header(char type, int body) {
+		int size = HEADER + body;
+		ByteBuffer frame;
+		if (type == 'K' || size > ARENA / 16) frame = ByteBuffer.allocateDirect(size);
+		else {
+			if (arena == null || arena.remaining() < size) arena = ByteBuffer.allocateDirect(ARENA);
+			arena.limit(arena.position() + size);
+			frame = arena.slice();
+			arena.position(arena.limit()).limit(arena.capacity());
+		}
+		frame.putInt(size).put((byte)type).putLong(version);
+		frame.putInt(rows).putInt(columns).putInt(mines).putInt(flags).putInt(time).put((byte)status.ordinal());
+		return frame;
+	}
+
+	/**
+	 * A Spectator object holds the frames queued for one spectator. Queued frames are views of the shared frames, each with its own
+	 * position, so queueing a frame never copies it.
+	 */
+	private class Spectator {
+		private SocketChannel channel;
+		private SelectionKey key;
+		private ArrayDeque<ByteBuffer> queued;
+		private ByteBuffer batch[];
+		private long behind;
+		private boolean resync;
+
+		private Spectator(SocketChannel channel) {
+			this.channel = channel;
+			this.queued = new ArrayDeque<ByteBuffer>();
+			this.batch = new ByteBuffer[16];
+		}
+
+		/**
+		 * Queues a delta frame and tries to write it right away. A spectator which is too far behind, or already waiting for a keyframe,
+		 * skips the frame.
+		 */
+		private void queue(ByteBuffer frame) {
+			if (resync) return;
+			if (behind + frame.remaining() > maxBehind) {
+				drop();
+				resyncs++;
+				return;
+			}
+			queued.add(frame.duplicate());
+			behind += frame.remaining();
+			flush();
+		}
+
+		/**
+		 * Queues the keyframe of a new game, which replaces everything queued before it.
+		 */
+		private void restart(ByteBuffer frame) {
+			drop();
+			resync = false;
+			queued.add(frame.duplicate());
+			behind += frame.remaining();
+			flush();
+		}
+
+		/**
+		 * Forgets all queued frames except a partly written one, which must be finished to keep the stream intact, and waits for the
+		 * spectator to catch up before sending a keyframe.
+		 */
+		private void drop() {
+			ByteBuffer current = queued.peek();
+			boolean started = current != null && current.position() > 0;
+			queued.clear();
+			behind = 0;
+			if (started) {
+				queued.add(current);
+				behind = current.remaining();
+			}
+			resync = true;
+			key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+
+		/**
+		 * Writes as many queued frames as the socket accepts without blocking, gathering them into a single write, and sends a keyframe
+		 * once a spectator waiting for one has caught up.
+		 */
+		private void flush() {
+			try {
+				while (true) {
+					if (queued.isEmpty() && resync && cells != null) {
+						resync = false;
+						ByteBuffer frame = getKeyframe().duplicate();
+						queued.add(frame);
+						behind = frame.remaining();
+					}
+					if (queued.isEmpty()) break;
+
+					int count = 0;
+					for (ByteBuffer frame : queued) {
+						if (count == batch.length) break;
+						batch[count++] = frame;
+					}
+					long written = channel.write(batch, 0, count);
+					bytes += written;
+					behind -= written;
+					while (!queued.isEmpty() && !queued.peek().hasRemaining()) queued.poll();
+					Arrays.fill(batch, 0, count, null);
+					if (!queued.isEmpty() && queued.peek().hasRemaining() && written == 0) break;
+				}
+				key.interestOps(queued.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		/**
+		 * Discards anything the spectator sends, and closes the connection once the spectator has closed it.
+		 */
+		private void read() throws IOException {
+			ByteBuffer discard = ByteBuffer.allocate(256);
+			int read;
+			while ((read = channel.read(discard)) > 0) discard.clear();
+			if (read < 0) close();
+		}
+
+		/**
+		 * Closes the connection, which also cancels its registration with the selector.
+		 */
+		private void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * A Viewer object is a spectator used by main, which decodes every frame it receives into its own copy of the board.
+	 */
+	private static class Viewer {
+		private SocketChannel channel;
+		private ByteBuffer in;
+		private byte cells[];
+		private long version;
+		private long keyframes, deltas;
+
+		private Viewer(SocketChannel channel) {
+			this.channel = channel;
+			this.in = ByteBuffer.allocate(64 * 1024);
+		}
+
+		/**
+		 * Reads everything that is available and applies every complete frame.
+		 */
+		private void read() throws IOException {
+			if (channel.read(in) < 0) throw new IOException("Broadcaster closed the connection.");
+			in.flip();
+			while (in.remaining() >= 4 && in.remaining() >= in.getInt(in.position())) {
+				int next = in.position() + in.getInt();
+				char type = (char)in.get();
+				version = in.getLong();
+				int rows = in.getInt(), columns = in.getInt();
+				in.position(in.position() + 3 * 4 + 1);
+				if (type == 'K') {
+					cells = new byte[rows * columns];
+					in.get(cells);
+					keyframes++;
+				}
+				else {
+					int end = 0;
+					for (int runs = getVarint(in); runs > 0; runs--) {
+						int cell = end + unzigzag(getVarint(in));
+						end = cell + getVarint(in);
+						in.get(cells, cell, end - cell);
+					}
+					for (int mines = getVarint(in), cell = 0; mines > 0; mines--) cells[cell += unzigzag(getVarint(in))] = MINE;
+					deltas++;
+				}
+				in.position(next);
+			}
+			in.compact();
+			if (in.position() == in.capacity()) {
+				ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+				in.flip();
+				bigger.put(in);
+				in = bigger;
+			}
+		}
+
+		/**
+		 * Reads a varint written by putVarint.
+		 */
+		private static int getVarint(ByteBuffer in) {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) return value;
+			}
+		}
+
+		/**
+		 * Reverses zigzag.
+		 */
+		private static int unzigzag(int value) {
+			return value >>> 1 ^ -(value & 1);
+		}
+	}
+
+	/**
+	 * Plays a game of random moves watched by local spectators and prints the results. The optional arguments are the number of
+	 * spectators and the number of moves.
+	 * @param args Arguments for the main function.
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int moves = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+		GameEngine engine = new GameEngine(100, 100, 300);
+		SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(0);
+		broadcaster.attach(engine);
+		broadcaster.start();
+
+		Selector selector = Selector.open();
+		Viewer viewers[] = new Viewer[count];
+		for (int i = 0; i < count; i++) {
+			SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", broadcaster.getPort()));
+			channel.configureBlocking(false);
+			viewers[i] = new Viewer(channel);
+			channel.register(selector, SelectionKey.OP_READ, viewers[i]);
+		}
+
+		/* The viewers are read on their own thread, which stops once every viewer has the last version of the board. */
+		final Selector viewerSelector = selector;
+		final Viewer all[] = viewers;
+		final AtomicLong target = new AtomicLong(Long.MAX_VALUE);
+		Thread reader = new Thread("minesweeper-viewers") {
+			public void run() {
+				try {
+					while (true) {
+						viewerSelector.select(100);
+						for (SelectionKey key : viewerSelector.selectedKeys()) ((Viewer)key.attachment()).read();
+						viewerSelector.selectedKeys().clear();
+						boolean done = true;
+						for (Viewer viewer : all) done &= viewer.version >= target.get();
+						if (done) break;
+					}
+				} catch (IOException e) {
+					System.err.println("Viewer failed: " + e.getMessage());
+				}
+			}
+		};
+		reader.start();
+
+		long start = System.nanoTime();
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < moves; i++) {
+			/* Every move waits for the previous one, like a player would, so a finished game is restarted only once. */
+			Snapshot snapshot;
+			while ((snapshot = engine.getSnapshot()).getVersion() < i) Thread.yield();
+			int choice = random.nextInt(10);
+			if (snapshot.getStatus() != Status.PLAYING) engine.restart(100, 100, 300);
+			else if (choice == 0) engine.undo();
+			else if (choice < 3) engine.flag(random.nextInt(100), random.nextInt(100));
+			else engine.open(random.nextInt(100), random.nextInt(100));
+		}
+		while (broadcaster.processed < moves) Thread.sleep(10);
+		target.set(broadcaster.sent);
+		reader.join(30000);
+		long elapsed = System.nanoTime() - start;
+		long cpu = ManagementFactory.getThreadMXBean().getThreadCpuTime(broadcaster.loop.getId());
+		broadcaster.stop();
+		broadcaster.join();
+
+		int matching = 0;
+		for (Viewer viewer : viewers) if (Arrays.equals(viewer.cells, broadcaster.cells)) matching++;
+		long keyframes = 0, deltas = 0;
+		for (Viewer viewer : viewers) {
+			keyframes += viewer.keyframes;
+			deltas += viewer.deltas;
+		}
+		System.out.println(count + " spectators, " + broadcaster.frames + " frames, " + broadcaster.bytes / 1024 + " KB sent in "
+				+ elapsed / 1000000 + " ms.");
+		System.out.println("Received " + deltas + " deltas and " + keyframes + " keyframes, " + broadcaster.resyncs + " resyncs.");
+		System.out.println("Broadcaster CPU time: " + (cpu < 0 ? "unknown" : cpu / 1000000 + " ms") + ".");
+		System.out.println(matching + " of " + count + " spectators have the final board.");
+		engine.shutdown();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package minesweeper;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+/**
+ * A SpriteAtlas object holds an image of every state a cell can be displayed in, all drawn once for a single cell size into one
+ * image. Drawing a cell is then a copy of a part of that image, so a board can be painted without laying out any text. The
+ * sprites use the same colors and symbols as a Tile.
+ * @author Nikola Stankovic
+ */
+public class SpriteAtlas {
+	/** Sprite of a closed cell. */
+	public static final int CLOSED = 0;
+	/** Sprite of an opened cell without surrounding mines; the sprite of an opened cell with n surrounding mines is OPENED + n. */
+	public static final int OPENED = 1;
+	/** Sprite of a flagged cell. */
+	public static final int FLAG = 10;
+	/** Sprite of a revealed mine. */
+	public static final int MINE = 11;
+	/** Sprite of the mine which was opened and ended the game. */
+	public static final int EXPLODED = 12;
+	private static final int SPRITES = 13;
+
+	private static HashMap<Integer, SpriteAtlas> atlases = new HashMap<Integer, SpriteAtlas>();
+
+	private int size;
+	private Image image;
+
+	/**
+	 * Creates a SpriteAtlas object and draws all sprites.
+	 * @param size The width and height of a cell in pixels, including a one pixel gap on every side.
+	 */
+	public SpriteAtlas(int size) {
+		this.size = size;
+		GraphicsEnvironment environment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+		if (environment.isHeadlessInstance()) this.image = new BufferedImage(size * SPRITES, size, BufferedImage.TYPE_INT_RGB);
+		else this.image = environment.getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage(size * SPRITES, size);
+
+		Graphics2D g = (Graphics2D)image.getGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setColor(new Color(41, 41, 61));
+		g.fillRect(0, 0, size * SPRITES, size);
+		g.setFont(new Font("Serif", Font.BOLD, Math.max(8, size * 14 / 25)));
+
+		draw(g, CLOSED, new Color(224, 224, 235), "", null);
+		draw(g, OPENED, new Color(65, 65, 88), "", null);
+		for (int mines = 1; mines <= 8; mines++) draw(g, OPENED + mines, new Color(65, 65, 88), "" + mines, new Color(230, 195, 0));
+		draw(g, FLAG, new Color(224, 224, 235), "\u00B6", new Color(77, 0, 0));				// ASCII symbol that resembles a flag.
+		draw(g, MINE, new Color(128, 0, 0), "\u00D8", Color.BLACK);							// ASCII symbol that resembles a mine.
+		draw(g, EXPLODED, new Color(230, 0, 0), "\u00D8", Color.BLACK);
+		g.dispose();
+	}
+
+	/**
+	 * Returns the atlas for a cell size, drawing it the first time the size is used. Must be called on the event dispatch thread.
+	 * @param size The width and height of a cell in pixels.
+	 * @return the atlas for the size.
+	 */
+	public static SpriteAtlas forSize(int size) {
+		SpriteAtlas atlas = atlases.get(size);
+		if (atlas == null) {
+			atlas = new SpriteAtlas(size);
+			atlases.put(size, atlas);
+		}
+		return atlas;
+	}
+
+	/**
+	 * Returns the sprite for a state of a cell.
+	 * @param state One of Delta.CLOSED, Delta.FLAGGED or Delta.OPENED.
+	 * @param mines The number of mines surrounding the cell.
+	 * @return the sprite of the cell.
+	 */
+	public static int sprite(byte state, int mines) {
+		if (state == Delta.OPENED) return OPENED + mines;
+		else if (state == Delta.FLAGGED) return FLAG;
+		else return CLOSED;
+	}
+
+	/**
+	 * Returns the width and height of a cell.
+	 * @return size of a cell in pixels.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Copies a sprite to a position.
+	 * @param g The graphics the sprite is drawn with.
+	 * @param sprite The sprite.
+	 * @param x The horizontal position of the cell's top left corner.
+	 * @param y The vertical position of the cell's top left corner.
+	 */
+	public void draw(Graphics g, int sprite, int x, int y) {
+		g.drawImage(image, x, y, x + size, y + size, sprite * size, 0, (sprite + 1) * size, size, null);
+	}
+
+	/**
+	 * Draws a single sprite into the atlas.
+	 */
+	private void draw(Graphics2D g, int sprite, Color background, String text, Color textColor) {
+		int left = sprite * size;
+		g.setColor(background);
+		g.fillRect(left + 1, 1, size - 2, size - 2);
+		if (text.isEmpty()) return;
+		FontMetrics metrics = g.getFontMetrics();
+		g.setColor(textColor);
+		g.drawString(text, left + (size - metrics.stringWidth(text)) / 2, (size + metrics.getAscent() - metrics.getDescent()) / 2);
+	}
+}
\ No newline at end of file
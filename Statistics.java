@@ -0,0 +1,128 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * A Statistics object keeps a PlayerStatistics for every player and kind of board, so the statistics of a player on one board are
+ * found with a single lookup and never mix boards of different sizes. The statistics are stored in an external file, next to the
+ * scoreboards. A Statistics object is not thread safe; threads which record games concurrently should each keep their own and merge
+ * them.
+ * @author Nikola Stankovic
+ */
+public class Statistics {
+	private static final int VERSION = 2;
+
+	private HashMap<String, PlayerStatistics> players;
+	private File file;
+
+	/**
+	 * Creates a Statistics object and loads the statistics saved in the default file, 'statistics.dat'.
+	 */
+	public Statistics() {
+		this(new File(System.getProperty("user.dir") + "/statistics.dat"));
+	}
+
+	/**
+	 * Creates a Statistics object and loads the statistics saved in a file. A missing or damaged file is treated as empty.
+	 * @param file The file the statistics are loaded from and saved to.
+	 */
+	public Statistics(File file) {
+		this.file = file;
+		this.players = new HashMap<String, PlayerStatistics>();
+		if (!file.isFile()) return;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != VERSION) return;
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				players.put(key, PlayerStatistics.read(in));
+			}
+		} catch (IOException e) {
+			players.clear();
+		}
+	}
+
+	/**
+	 * Records the game of a snapshot which ended it.
+	 * @param player The name of the player.
+	 * @param board The name of the kind of board the game was played on.
+	 * @param snapshot The snapshot in which the game was won or lost.
+	 */
+	public void record(String player, String board, Snapshot snapshot) {
+		get(player, board).record(snapshot);
+	}
+
+	/**
+	 * Returns the statistics of a player on a kind of board, creating empty ones if the player never finished a game on it.
+	 * @param player The name of the player.
+	 * @param board The name of the kind of board.
+	 * @return the statistics of the player.
+	 */
+	public PlayerStatistics get(String player, String board) {
+		String key = player + "\n" + board;
+		PlayerStatistics statistics = players.get(key);
+		if (statistics == null) {
+			statistics = new PlayerStatistics();
+			players.put(key, statistics);
+		}
+		return statistics;
+	}
+
+	/**
+	 * Adds all games of another Statistics object to this one.
+	 * @param other The statistics being merged.
+	 */
+	public void merge(Statistics other) {
+		for (String key : other.players.keySet()) {
+			PlayerStatistics statistics = players.get(key);
+			if (statistics == null) players.put(key, statistics = new PlayerStatistics());
+			statistics.merge(other.players.get(key));
+		}
+	}
+
+	/**
+	 * Saves the statistics to their file.
+	 */
+	public void save() {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(VERSION);
+			out.writeInt(players.size());
+			for (String key : players.keySet()) {
+				out.writeUTF(key);
+				players.get(key).write(out);
+			}
+		} catch (IOException e) {}
+	}
+
+	/**
+	 * Makes a formatted string of the statistics of a player on a kind of board, ready to be displayed.
+	 * @param player The name of the player.
+	 * @param board The name of the kind of board.
+	 * @return the statistics, one per line.
+	 */
+	public String getPrintable(String player, String board) {
+		PlayerStatistics statistics = players.get(player + "\n" + board);
+		if (statistics == null || statistics.getGames() == 0) return "No games yet!";
+		StringBuilder sb = new StringBuilder();
+		sb.append("Games: " + statistics.getGames() + "\n");
+		sb.append(String.format("Won: %d (%.0f%%)", statistics.getWins(), statistics.getWinRate() * 100) + "\n");
+		if (statistics.getWins() == 0) return sb.toString().trim();
+		sb.append("Best: " + Timer.formatTime((int)(statistics.getBestTime() / 10)) + "\n");
+		sb.append("Median: " + Timer.formatTime((int)(statistics.getTime(50) / 10)) + "\n");
+		sb.append("90%: " + Timer.formatTime((int)(statistics.getTime(90) / 10)) + "\n");
+		sb.append("Average: " + Timer.formatTime((int)(statistics.getMeanTime() / 10)) + "\n");
+		if (statistics.getEfficiency() == 0) return sb.toString().trim();
+		sb.append(String.format("Efficiency: %.0f%%", statistics.getEfficiency() * 100) + "\n");
+		sb.append(String.format("Speed: %.2f 3BV/s", statistics.getSpeed()));
+		return sb.toString();
+	}
+}
\ No newline at end of file
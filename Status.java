@@ -0,0 +1,7 @@
+package minesweeper;
+
+/**
+ * Contains three states of a game - PLAYING, WON and LOST, used to determine whether moves are still accepted on a board.
+ * @author Nikola Stankovic
+ */
+public enum Status {PLAYING, WON, LOST}
\ No newline at end of file
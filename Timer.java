@@ -3,34 +3,41 @@ package minesweeper;
 import java.awt.Label;
 
 /**
- * A Timer object is a Thread used to count elapsed time during the course of the game.
+ * A Timer object is a Thread used to display elapsed time during the course of the game. The time itself is kept by the game engine,
+ * which starts and stops it, so the timer only reads the latest published snapshot and never changes the state of the game. A single
+ * timer serves every game: it is paused when a game ends and resumed when the next one starts, instead of being replaced.
  * @author Nikola Stankovic
  */
 public class Timer extends Thread {
-	private boolean count = false;
-	private int counter = 0;
 	private Label label;
+	private GameEngine engine;
+	private final Object pause = new Object();
+	private boolean paused;
 	
 	/**
 	 * Creates a Timer object.
 	 * @param label Label is a Label object which the timer will use to display the time.
+	 * @param engine The engine whose time is being displayed.
 	 */
-	public Timer(Label label) {
+	public Timer(Label label, GameEngine engine) {
 		super();
 		this.label = label;
+		this.engine = engine;
 	}
 	
 	/**
-	 * While the thread is not interrupted, the timer cyclically sleeps, then increases the counter by one and then displays the time.
-	 * The thread sleeps for 9, instead of 10 milliseconds due to the delay in context switches between threads in order to accurately
-	 * count elapsed time. If count is set to false, time timer is paused and the counter doesn't increase its value.
+	 * While the thread is not interrupted, the timer cyclically sleeps and then displays the time of the latest snapshot. The elapsed time
+	 * is measured by the engine's clock, so the length of the sleep only affects how smoothly the time is displayed. While the timer is
+	 * paused, the thread waits without using any processor time.
 	 */
 	public void run() {	
 		try {
 			while (!this.isInterrupted()) {
+				synchronized (pause) {
+					while (paused) pause.wait();
+				}
 				Thread.sleep(9);						
-				if (count) incTime();					
-				label.setText(formatTime(counter));
+				label.setText(formatTime(getTime()));
 			}
 		} catch (InterruptedException e) {}
 	}
@@ -40,14 +47,7 @@ public class Timer extends Thread {
 	 * @return time in tens of milliseconds
 	 */
 	public int getTime() {
-		return counter;
-	}
-	
-	/**
-	 * Atomically increases the value of the counter by one.
-	 */
-	private synchronized void incTime() {
-		counter++;
+		return engine.getSnapshot().getTime();
 	}
 	
 	/**
@@ -55,7 +55,7 @@ public class Timer extends Thread {
 	 * @param time Time is the total time in tens of milliseconds.
 	 * @return a formatted string.
 	 */
-	private synchronized String formatTime(int time) {
+	public static String formatTime(int time) {
 		String sec, min, milli;
 		
 		if (time % 100 < 10) milli = "0" + (time % 100);
@@ -71,23 +71,36 @@ public class Timer extends Thread {
 	}
 	
 	/**
-	 * Stops the timer by interrupting the thread.
+	 * Stops displaying the time by interrupting the thread.
 	 */
 	public synchronized void stopTimer() {
 		this.interrupt();
 	}
 	
 	/**
-	 * Starts the timer by setting the boolean variable count to true.
+	 * Stops displaying the time until the timer is resumed, leaving the time of the finished game on the label.
 	 */
-	public void startCount() {
-		count = true;
+	public void pauseTimer() {
+		synchronized (pause) {
+			paused = true;
+		}
 	}
 	
 	/**
-	 * Restarts the timer by setting the counter back to 0.
+	 * Displays the time again after the timer was paused, starting the thread if it wasn't started yet.
 	 */
-	public void restartTimer() {
-		counter = 0;
+	public void resumeTimer() {
+		synchronized (pause) {
+			paused = false;
+			pause.notifyAll();
+		}
+		if (getState() == State.NEW) start();
+	}
+	
+	/**
+	 * Starts the timer by submitting a command to the engine.
+	 */
+	public void startCount() {
+		engine.startTimer();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package minesweeper;
+
+/**
+ * Contains the topologies a Board can have, which decide which cells are the neighbours of a cell:
+ * <ul>
+ * <li>SQUARE - the eight cells around a cell of a rectangular grid, as in the classic game.</li>
+ * <li>TORUS - the same eight cells, but the grid wraps around, so the first and the last row and column are next to each other.</li>
+ * <li>HEX - the six cells around a cell of a hexagonal grid, whose odd rows are shifted right by half a cell.</li>
+ * <li>KNIGHT - the eight cells a chess knight can jump to.</li>
+ * </ul>
+ * The neighbours of a whole board are computed once into a NeighbourTable.
+ * @author Nikola Stankovic
+ */
+public enum Topology {
+	SQUARE, TORUS, HEX, KNIGHT;
+
+	private static final int KING[][] = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+	private static final int JUMPS[][] = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+	private static final int HEX_EVEN[][] = {{-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 0}};
+	private static final int HEX_ODD[][] = {{-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, 0}, {1, 1}};
+
+	/**
+	 * Returns the largest number of neighbours a cell can have.
+	 * @return number of neighbours of a cell which isn't at an edge.
+	 */
+	public int getDegree() {
+		return this == HEX ? 6 : 8;
+	}
+
+	/**
+	 * Returns a neighbour of the cell at row x and column y.
+	 * @param rows Number of rows of the board.
+	 * @param columns Number of columns of the board.
+	 * @param x The row of the cell.
+	 * @param y The column of the cell.
+	 * @param i Which neighbour, between 0 and the degree of the topology.
+	 * @return row-major index of the neighbour, or -1 if it is outside the board.
+	 */
+	public int getNeighbour(int rows, int columns, int x, int y, int i) {
+		int offsets[];
+		switch (this) {
+			case HEX: offsets = x % 2 == 0 ? HEX_EVEN[i] : HEX_ODD[i]; break;
+			case KNIGHT: offsets = JUMPS[i]; break;
+			default: offsets = KING[i]; break;
+		}
+		int nx = x + offsets[0], ny = y + offsets[1];
+		if (this == TORUS) {
+			nx = (nx + rows) % rows;
+			ny = (ny + columns) % columns;
+		}
+		if (nx < 0 || nx >= rows || ny < 0 || ny >= columns) return -1;
+		return nx * columns + ny;
+	}
+
+	/**
+	 * Returns the topology with the given name, ignoring case.
+	 * @param name The name of the topology.
+	 * @return the topology.
+	 * @throws IllegalArgumentException if there is no topology with that name.
+	 */
+	public static Topology parse(String name) {
+		for (Topology topology : values()) if (topology.name().equalsIgnoreCase(name)) return topology;
+		throw new IllegalArgumentException("unknown topology " + name);
+	}
+}
\ No newline at end of file
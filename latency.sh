@@ -0,0 +1,37 @@
+#!/bin/sh
+# Measures the input-to-screen latency of the game with LatencyBench, on a virtual X display when there is no display.
+#
+# A Robot clicks random cells of the real game and starts new games at every difficulty and on large custom boards, and
+# the percentiles of every kind of input are printed in milliseconds.
+#
+# Usage: latency.sh [games] [clicks] [limit]
+#        latency.sh --footprint [restarts] [limit]
+#   limit        Exits with status 1 if the 99th percentile of any kind of input exceeded it, in milliseconds.
+#   --footprint  Runs RestartFootprint instead, which starts hundreds of new games and exits with status 1 if the heap grew by
+#                more than the limit in kilobytes.
+#
+# CLASSES is the directory or jar with the compiled classes (bin by default). Without DISPLAY, Xvfb is started on
+# XVFB_DISPLAY (:77 by default) and stopped afterwards.
+
+CLASSES=${CLASSES:-bin}
+XVFB_DISPLAY=${XVFB_DISPLAY:-:77}
+
+if [ -z "$DISPLAY" ]; then
+	Xvfb "$XVFB_DISPLAY" -screen 0 1920x1080x24 -nolisten tcp > /dev/null 2>&1 &
+	XVFB=$!
+	trap 'kill $XVFB' EXIT
+	export DISPLAY="$XVFB_DISPLAY"
+
+	# Waits up to five seconds for the display to accept connections.
+	for i in 1 2 3 4 5 6 7 8 9 10; do
+		[ -S "/tmp/.X11-unix/X${XVFB_DISPLAY#:}" ] && break
+		sleep 0.5
+	done
+fi
+
+if [ "$1" = "--footprint" ]; then
+	shift
+	java $JAVA_OPTS -cp "$CLASSES" minesweeper.RestartFootprint "$@"
+else
+	java $JAVA_OPTS -cp "$CLASSES" minesweeper.LatencyBench "$@"
+fi
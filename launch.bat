@@ -0,0 +1,29 @@
+@echo off
+rem Launches Minesweeper with an Application Class Data Sharing archive of the classes it loads at startup.
+rem The archive is created by a training run whenever it is missing or older than the classes, see launch.sh for details.
+rem Usage: launch.bat [--measure [target]]
+
+setlocal
+if "%CLASSES%"=="" set CLASSES=bin
+if "%ARCHIVE%"=="" set ARCHIVE=minesweeper.jsa
+
+rem cmd can't compare modification times, so PowerShell looks for a class newer than the archive; if it can't run, the archive is rebuilt.
+set STALE=
+if not exist "%ARCHIVE%" set STALE=1
+if not defined STALE powershell -NoProfile -Command "$archive = (Get-Item -LiteralPath '%ARCHIVE%').LastWriteTimeUtc; if (Get-ChildItem -LiteralPath '%CLASSES%' -Recurse -File | Where-Object { $_.LastWriteTimeUtc -gt $archive } | Select-Object -First 1) { exit 1 }"
+if errorlevel 1 set STALE=1
+if defined STALE (
+	if exist "%ARCHIVE%" del /q "%ARCHIVE%"
+	java -XX:ArchiveClassesAtExit="%ARCHIVE%" -Dminesweeper.startup=60000 -cp "%CLASSES%" minesweeper.Game > nul
+)
+
+if "%~1"=="--measure" (
+	set TARGET=%~2
+	if "%~2"=="" set TARGET=1000
+	goto measure
+)
+java -XX:SharedArchiveFile="%ARCHIVE%" %JAVA_OPTS% -cp "%CLASSES%" minesweeper.Game
+goto :eof
+
+:measure
+java -XX:SharedArchiveFile="%ARCHIVE%" %JAVA_OPTS% -Dminesweeper.startup=%TARGET% -cp "%CLASSES%" minesweeper.Game
@@ -0,0 +1,25 @@
+#!/bin/sh
+# Launches Minesweeper with an Application Class Data Sharing archive of the classes it loads at startup.
+#
+# Whenever the archive is missing or older than the classes, a training run opens the game, builds its dialogs and exits,
+# and the virtual machine dumps every class loaded during the run into the archive. Later launches map the archive instead
+# of loading, parsing and verifying those classes again.
+#
+# Usage: launch.sh [--measure [target]]
+#   --measure  Prints the time to the first frame and exits, with status 1 if it exceeded the target in milliseconds
+#              (1000 by default). Set JAVA_OPTS=-Xshare:off to measure without the archive.
+#
+# CLASSES is the directory or jar with the compiled classes (bin by default), ARCHIVE is the archive (minesweeper.jsa by default).
+
+CLASSES=${CLASSES:-bin}
+ARCHIVE=${ARCHIVE:-minesweeper.jsa}
+
+if [ ! -f "$ARCHIVE" ] || [ -n "$(find "$CLASSES" -newer "$ARCHIVE" -print | head -n 1)" ]; then
+	rm -f "$ARCHIVE"
+	java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dminesweeper.startup=60000 -cp "$CLASSES" minesweeper.Game > /dev/null
+fi
+
+if [ "$1" = "--measure" ]; then
+	exec java -XX:SharedArchiveFile="$ARCHIVE" $JAVA_OPTS -Dminesweeper.startup="${2:-1000}" -cp "$CLASSES" minesweeper.Game
+fi
+exec java -XX:SharedArchiveFile="$ARCHIVE" $JAVA_OPTS -cp "$CLASSES" minesweeper.Game